@@ -2,8 +2,10 @@ package cl.condor.calificaciones_api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CalificacionesApiApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,58 @@
+package cl.condor.calificaciones_api.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+// Configuracion comun de los WebClient del servicio. Spring Boot aplica este conector al
+// WebClient.Builder que reciben los *Client, asi todos comparten el mismo pool de conexiones,
+// los mismos timeouts y quedan instrumentados (metrica http.client.requests por servicio destino).
+@Configuration
+public class WebClientConfig {
+
+    @Value("${http-client.max-conexiones:50}")
+    private int maxConexiones;
+
+    @Value("${http-client.max-pendientes:200}")
+    private int maxPendientes;
+
+    @Value("${http-client.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+
+    @Value("${http-client.response-timeout:PT5S}")
+    private Duration responseTimeout;
+
+    @Value("${http-client.max-idle:PT30S}")
+    private Duration maxIdle;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider connectionProvider() {
+        return ConnectionProvider.builder("condor-http")
+                .maxConnections(maxConexiones)
+                .pendingAcquireMaxCount(maxPendientes)
+                .pendingAcquireTimeout(connectTimeout)
+                .maxIdleTime(maxIdle)
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public ClientHttpConnector clientHttpConnector(ConnectionProvider connectionProvider) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout) // ningun .block() queda esperando para siempre
+                .keepAlive(true)
+                .compress(true);                  // Accept-Encoding: gzip
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
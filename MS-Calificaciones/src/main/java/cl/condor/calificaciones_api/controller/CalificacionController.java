@@ -2,15 +2,26 @@ package cl.condor.calificaciones_api.controller;
 
 import cl.condor.calificaciones_api.model.Calificacion;
 import cl.condor.calificaciones_api.service.CalificacionService;
+import cl.condor.calificaciones_api.service.RankingRutas;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 @Tag(
         name = "Calificaciones",
@@ -27,6 +38,9 @@ public class    CalificacionController {
     @Autowired
     private CalificacionService calificacionService;
 
+    @Autowired
+    private RankingRutas rankingRutas;
+
     @Operation(
             summary = "Listar todas las calificaciones",
             description = """
@@ -41,6 +55,30 @@ public class    CalificacionController {
         return ResponseEntity.ok(lista);
     }
 
+    @Operation(
+            summary = "Exportar todas las calificaciones (NDJSON)",
+            description = """
+                Transmite las calificaciones una por linea en formato NDJSON a medida
+                que se leen, sin cargar la tabla en memoria. Con gzip=true la
+                respuesta se comprime y se informa con Content-Encoding: gzip.
+                """
+    )
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarCalificaciones(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody cuerpo = out -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(out, 8192) : out;
+            calificacionService.exportar(destino);
+            if (destino instanceof GZIPOutputStream comprimido) {
+                comprimido.finish();
+            }
+        };
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+
     @Operation(
             summary = "Buscar calificación por ID",
             description = """
@@ -136,4 +174,48 @@ public class    CalificacionController {
         if (resultado == null || ((Integer) resultado.getOrDefault("conteo", 0)) == 0) return ResponseEntity.noContent().build();
         return ResponseEntity.ok(resultado);
     }
+
+    @Operation(
+            summary = "Promedio y conteo de varias rutas",
+            description = """
+                Recibe hasta 500 ids de ruta (ids=1,2,3) y devuelve en una sola respuesta
+                { "idRuta": [promedio, conteo] }; las rutas sin calificaciones vienen como
+                [null, 0]. Incluye ETag y Cache-Control: con If-None-Match igual responde 304.
+                """
+    )
+    @GetMapping("/resumen")
+    public ResponseEntity<?> getResumenes(
+            @RequestParam List<Integer> ids,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Map<Integer, List<Number>> resumenes;
+        try {
+            resumenes = calificacionService.getResumenes(ids);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        // ETag del contenido: el cliente que ya tiene estos valores recibe un 304 sin cuerpo
+        String etag = "\"" + DigestUtils.md5DigestAsHex(resumenes.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        CacheControl cache = CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cache).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cache).body(resumenes);
+    }
+
+    @Operation(
+            summary = "Rutas mejor calificadas",
+            description = """
+                Devuelve las k rutas (máximo 100) con mayor puntaje bayesiano, de todas las
+                regiones o solo de la indicada en 'region'. Se sirve desde un ranking en
+                memoria, sin consultar la base de datos.
+                """
+    )
+    @GetMapping("/top")
+    public ResponseEntity<?> getTop(@RequestParam(defaultValue = "10") int k,
+                                    @RequestParam(required = false) Integer region) {
+        if (k < 1 || k > RankingRutas.K_MAXIMO) {
+            return ResponseEntity.badRequest().body(Map.of("error", "k debe estar entre 1 y " + RankingRutas.K_MAXIMO));
+        }
+        return ResponseEntity.ok(rankingRutas.top(k, region));
+    }
 }
@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "calificacion")
+@Table(name = "calificacion", indexes = {
+        // Recalculo del resumen de una ruta sin leer las filas completas
+        @Index(name = "idx_calificacion_ruta_puntuacion", columnList = "id_ruta, puntuacion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
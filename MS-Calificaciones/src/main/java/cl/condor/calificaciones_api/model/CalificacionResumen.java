@@ -0,0 +1,78 @@
+package cl.condor.calificaciones_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Agregado de las calificaciones de una ruta (conteo, suma y cuantas hay de cada estrella).
+// Se actualiza en la misma transaccion que inserta cada calificacion, asi el promedio se
+// lee por PK sin recorrer las calificaciones de la ruta.
+@Entity
+@Table(name = "calificacion_resumen")
+@Data
+@NoArgsConstructor
+public class CalificacionResumen {
+
+    @Id
+    @Column(name = "id_ruta")
+    private Integer idRuta;
+
+    @Column(nullable = false)
+    private Long conteo;
+
+    @Column(nullable = false)
+    private Long suma;
+
+    @Column(name = "estrellas_1", nullable = false)
+    private Long estrellas1;
+
+    @Column(name = "estrellas_2", nullable = false)
+    private Long estrellas2;
+
+    @Column(name = "estrellas_3", nullable = false)
+    private Long estrellas3;
+
+    @Column(name = "estrellas_4", nullable = false)
+    private Long estrellas4;
+
+    @Column(name = "estrellas_5", nullable = false)
+    private Long estrellas5;
+
+    // Sube con cada cambio del agregado (calificacion nueva o correccion de la conciliacion).
+    // rutas-api la usa para descartar resumenes que llegan tarde, aunque una correccion baje
+    // el conteo. No es parte de los valores: la conciliacion compara sin ella.
+    @EqualsAndHashCode.Exclude
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version = 0L;
+
+    // Tambien lo usa la proyeccion JPQL de CalificacionRepository.resumirPorRuta
+    public CalificacionResumen(Integer idRuta, Long conteo, Long suma, Long estrellas1, Long estrellas2,
+                               Long estrellas3, Long estrellas4, Long estrellas5) {
+        this.idRuta = idRuta;
+        this.conteo = conteo;
+        this.suma = suma;
+        this.estrellas1 = estrellas1;
+        this.estrellas2 = estrellas2;
+        this.estrellas3 = estrellas3;
+        this.estrellas4 = estrellas4;
+        this.estrellas5 = estrellas5;
+    }
+
+    public static CalificacionResumen vacio(Integer idRuta) {
+        return new CalificacionResumen(idRuta, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+    }
+
+    // Promedio redondeado a 2 decimales; null si la ruta no tiene calificaciones
+    public Double promedio() {
+        if (conteo == null || conteo == 0) return null;
+        return Math.round(suma * 100.0 / conteo) / 100.0;
+    }
+
+    // Cantidad de calificaciones de 1 a 5 estrellas, en ese orden
+    public List<Long> histograma() {
+        return List.of(estrellas1, estrellas2, estrellas3, estrellas4, estrellas5);
+    }
+}
@@ -0,0 +1,44 @@
+package cl.condor.calificaciones_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Outbox hacia rutas-api: una fila por ruta con el ultimo promedio que falta enviar.
+// Varias calificaciones seguidas de la misma ruta pisan la misma fila (se envia solo la ultima).
+@Entity
+@Table(name = "promedio_pendiente", indexes = {
+        @Index(name = "idx_promedio_pendiente_f", columnList = "f_pendiente")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromedioPendiente {
+
+    @Id
+    @Column(name = "id_ruta")
+    private Integer idRuta;
+
+    @Column(precision = 3, scale = 2, nullable = false)
+    private BigDecimal promedio;
+
+    @Column(nullable = false)
+    private Long conteo;
+
+    // Cambios de la fila desde que se inserto (vuelve a 1 al reinsertarse). El despachador no la
+    // usa para borrar: para eso esta version_resumen, que nunca baja
+    @Column(nullable = false)
+    private Long version;
+
+    // Version de calificacion_resumen de la que salio este promedio; rutas-api la compara
+    @Column(name = "version_resumen", nullable = false)
+    private Long versionResumen;
+
+    // Primer cambio sin enviar: marca el inicio de la ventana de agrupacion
+    @Column(name = "f_pendiente", nullable = false)
+    private LocalDateTime fPendiente;
+}
@@ -1,7 +1,11 @@
 package cl.condor.calificaciones_api.repository;
 
 import cl.condor.calificaciones_api.model.Calificacion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -9,4 +13,19 @@ public interface CalificacionRepository extends JpaRepository<Calificacion, Inte
 	java.util.List<Calificacion> findByIdRuta(Integer idRuta);
 	java.util.List<Calificacion> findByIdUsuario(Integer idUsuario);
 	boolean existsByIdUsuarioAndIdRuta(Integer idUsuario, Integer idRuta);
+
+	// Agregados calculados desde las filas, para comparar contra calificacion_resumen
+	@Query("SELECT new cl.condor.calificaciones_api.model.CalificacionResumen(c.idRuta, COUNT(c), SUM(c.puntuacion), "
+			+ "SUM(CASE WHEN c.puntuacion = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN c.puntuacion = 2 THEN 1 ELSE 0 END), "
+			+ "SUM(CASE WHEN c.puntuacion = 3 THEN 1 ELSE 0 END), SUM(CASE WHEN c.puntuacion = 4 THEN 1 ELSE 0 END), "
+			+ "SUM(CASE WHEN c.puntuacion = 5 THEN 1 ELSE 0 END)) FROM Calificacion c GROUP BY c.idRuta")
+	java.util.List<cl.condor.calificaciones_api.model.CalificacionResumen> resumirPorRuta();
+
+	// Cursor del driver para /exportar (MySQL solo hace streaming con fetch size Integer.MIN_VALUE)
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("SELECT c FROM Calificacion c ORDER BY c.id")
+	java.util.stream.Stream<Calificacion> streamTodas();
 }
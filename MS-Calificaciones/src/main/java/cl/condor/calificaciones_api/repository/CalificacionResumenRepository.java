@@ -0,0 +1,65 @@
+package cl.condor.calificaciones_api.repository;
+
+import cl.condor.calificaciones_api.model.CalificacionResumen;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CalificacionResumenRepository extends JpaRepository<CalificacionResumen, Integer> {
+
+    // Upsert atomico: dos calificaciones simultaneas de la misma ruta se serializan en el
+    // lock de la fila y ninguna pierde su incremento
+    @Modifying
+    @Query(value = """
+            INSERT INTO calificacion_resumen
+                (id_ruta, conteo, suma, estrellas_1, estrellas_2, estrellas_3, estrellas_4, estrellas_5, version)
+            VALUES (:idRuta, 1, :puntuacion,
+                CASE WHEN :puntuacion = 1 THEN 1 ELSE 0 END,
+                CASE WHEN :puntuacion = 2 THEN 1 ELSE 0 END,
+                CASE WHEN :puntuacion = 3 THEN 1 ELSE 0 END,
+                CASE WHEN :puntuacion = 4 THEN 1 ELSE 0 END,
+                CASE WHEN :puntuacion = 5 THEN 1 ELSE 0 END, 1)
+            ON DUPLICATE KEY UPDATE
+                conteo = conteo + 1,
+                suma = suma + VALUES(suma),
+                estrellas_1 = estrellas_1 + VALUES(estrellas_1),
+                estrellas_2 = estrellas_2 + VALUES(estrellas_2),
+                estrellas_3 = estrellas_3 + VALUES(estrellas_3),
+                estrellas_4 = estrellas_4 + VALUES(estrellas_4),
+                estrellas_5 = estrellas_5 + VALUES(estrellas_5),
+                version = version + 1
+            """, nativeQuery = true)
+    int sumar(@Param("idRuta") Integer idRuta, @Param("puntuacion") Integer puntuacion);
+
+    // Reconstruye el agregado de una ruta desde las filas de calificacion (transaccion propia).
+    // INSERT ... SELECT lee con lock las calificaciones de la ruta, asi no pisa una
+    // calificacion que se confirme mientras corre la conciliacion.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO calificacion_resumen
+                (id_ruta, conteo, suma, estrellas_1, estrellas_2, estrellas_3, estrellas_4, estrellas_5, version)
+            SELECT :idRuta, COUNT(*), COALESCE(SUM(puntuacion), 0),
+                COALESCE(SUM(CASE WHEN puntuacion = 1 THEN 1 ELSE 0 END), 0),
+                COALESCE(SUM(CASE WHEN puntuacion = 2 THEN 1 ELSE 0 END), 0),
+                COALESCE(SUM(CASE WHEN puntuacion = 3 THEN 1 ELSE 0 END), 0),
+                COALESCE(SUM(CASE WHEN puntuacion = 4 THEN 1 ELSE 0 END), 0),
+                COALESCE(SUM(CASE WHEN puntuacion = 5 THEN 1 ELSE 0 END), 0),
+                1
+            FROM calificacion WHERE id_ruta = :idRuta
+            ON DUPLICATE KEY UPDATE
+                conteo = VALUES(conteo),
+                suma = VALUES(suma),
+                estrellas_1 = VALUES(estrellas_1),
+                estrellas_2 = VALUES(estrellas_2),
+                estrellas_3 = VALUES(estrellas_3),
+                estrellas_4 = VALUES(estrellas_4),
+                estrellas_5 = VALUES(estrellas_5),
+                version = version + 1
+            """, nativeQuery = true)
+    int recalcular(@Param("idRuta") Integer idRuta);
+}
@@ -0,0 +1,49 @@
+package cl.condor.calificaciones_api.repository;
+
+import cl.condor.calificaciones_api.model.PromedioPendiente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PromedioPendienteRepository extends JpaRepository<PromedioPendiente, Integer> {
+
+    // Si la ruta ya estaba pendiente se reemplaza el valor y se conserva f_pendiente,
+    // asi una ruta con calificaciones continuas igual se envia una vez por ventana.
+    // Un resumen de version menor a la encolada (la conciliacion leyo antes que una
+    // calificacion nueva) no la pisa. version_resumen va al final: MySQL asigna en orden y
+    // las columnas anteriores tienen que compararse contra el valor previo.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO promedio_pendiente (id_ruta, promedio, conteo, version, version_resumen, f_pendiente)
+            VALUES (:idRuta, :promedio, :conteo, 1, :versionResumen, :ahora)
+            ON DUPLICATE KEY UPDATE
+                promedio = CASE WHEN VALUES(version_resumen) > version_resumen THEN VALUES(promedio) ELSE promedio END,
+                conteo = CASE WHEN VALUES(version_resumen) > version_resumen THEN VALUES(conteo) ELSE conteo END,
+                version = CASE WHEN VALUES(version_resumen) > version_resumen THEN version + 1 ELSE version END,
+                version_resumen = GREATEST(version_resumen, VALUES(version_resumen))
+            """, nativeQuery = true)
+    int encolar(@Param("idRuta") Integer idRuta, @Param("promedio") BigDecimal promedio,
+                @Param("conteo") Long conteo, @Param("versionResumen") Long versionResumen,
+                @Param("ahora") LocalDateTime ahora);
+
+    @Query("SELECT p FROM PromedioPendiente p WHERE p.fPendiente <= :limite ORDER BY p.fPendiente")
+    List<PromedioPendiente> findListos(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    // No borra si entro una calificacion nueva despues de leer la fila: queda para el proximo ciclo.
+    // Se compara version_resumen y no version: version vuelve a 1 cuando la fila se reinserta, y
+    // otro despachador con una lectura vieja borraria la fila nueva. version_resumen solo sube.
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PromedioPendiente p WHERE p.idRuta = :idRuta AND p.versionResumen <= :versionResumen")
+    int borrarSiNoCambio(@Param("idRuta") Integer idRuta, @Param("versionResumen") Long versionResumen);
+}
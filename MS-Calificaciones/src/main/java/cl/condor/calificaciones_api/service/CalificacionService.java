@@ -1,30 +1,76 @@
 package cl.condor.calificaciones_api.service;
 
 import cl.condor.calificaciones_api.model.Calificacion;
+import cl.condor.calificaciones_api.model.CalificacionResumen;
 import cl.condor.calificaciones_api.repository.CalificacionRepository;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
 import cl.condor.calificaciones_api.webclient.RutaClient;
 import cl.condor.calificaciones_api.webclient.UsuarioClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class CalificacionService {
 
+    public static final int LIMITE_RESUMENES = 500;
+
     @Autowired
     private CalificacionRepository calificacionRepository;
     @Autowired
+    private CalificacionResumenRepository calificacionResumenRepository;
+    @Autowired
+    private PromedioPendienteRepository promedioPendienteRepository;
+    @Autowired
     private UsuarioClient usuarioClient;
     @Autowired
     private RutaClient rutaClient;
+    @Autowired
+    private RankingRutas rankingRutas;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManager entityManager;
 
     public List<Calificacion> findAll() {
         return calificacionRepository.findAll();
     }
 
+    // Exportacion NDJSON: cada calificacion se serializa apenas llega del cursor y se
+    // desconecta del EntityManager, asi la memoria usada no depende del total de filas
+    @Transactional(readOnly = true)
+    public long exportar(OutputStream out) throws IOException {
+        long filas = 0;
+        try (Stream<Calificacion> stream = calificacionRepository.streamTodas()) {
+            Iterator<Calificacion> it = stream.iterator();
+            while (it.hasNext()) {
+                Calificacion calificacion = it.next();
+                out.write(objectMapper.writeValueAsBytes(calificacion));
+                out.write('\n');
+                entityManager.detach(calificacion);
+                filas++;
+            }
+        }
+        out.flush();
+        return filas;
+    }
+
     public Calificacion findById(Integer id) {
         return calificacionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Calificación no encontrada"));
@@ -46,8 +92,9 @@ public class CalificacionService {
         } catch (RuntimeException e) {
             throw new RuntimeException("Usuario no encontrado");
         }
+        Map<String, Object> ruta;
         try {
-            rutaClient.getRutaById(calificacion.getIdRuta());
+            ruta = rutaClient.getRutaById(calificacion.getIdRuta());
         } catch (RuntimeException e) {
             throw new RuntimeException("Ruta no encontrada");
         }
@@ -59,20 +106,22 @@ public class CalificacionService {
         }
 
         Calificacion saved = calificacionRepository.save(calificacion);
-
-        // Calcular promedio actualizado y notificar al servicio de Rutas
-        java.util.Map<String, Object> promedioMap = getPromedioPorRuta(saved.getIdRuta());
-        Object promObj = promedioMap.get("promedio");
-        if (promObj != null) {
-            double promDouble = ((Number) promObj).doubleValue();
-            java.math.BigDecimal promDec = java.math.BigDecimal.valueOf(promDouble).setScale(2, java.math.RoundingMode.HALF_UP);
-            try {
-                rutaClient.actualizarPromedioRuta(saved.getIdRuta(), promDec);
-            } catch (RuntimeException e) {
-                // No bloquear el guardado por fallos en la actualización remota; sólo loguear
-                System.err.println("No se pudo actualizar promedio en Rutas: " + e.getMessage());
-            }
+        // El agregado de la ruta se actualiza en esta misma transaccion
+        calificacionResumenRepository.sumar(saved.getIdRuta(), saved.getPuntuacion());
+
+        // El promedio nuevo queda en el outbox (misma transaccion); PromedioDispatcher lo envia
+        // a rutas-api despues, agrupando las calificaciones seguidas de una misma ruta
+        CalificacionResumen resumen = calificacionResumenRepository.findById(saved.getIdRuta())
+                .orElseGet(() -> CalificacionResumen.vacio(saved.getIdRuta()));
+        Double promedio = resumen.promedio();
+        if (promedio != null) {
+            promedioPendienteRepository.encolar(saved.getIdRuta(),
+                    java.math.BigDecimal.valueOf(promedio).setScale(2, java.math.RoundingMode.HALF_UP),
+                    resumen.getConteo(), resumen.getVersion(), java.time.LocalDateTime.now());
         }
+        // El ranking en memoria solo se mueve si la calificacion queda confirmada
+        Integer idRegion = ruta != null && ruta.get("id_region") instanceof Number n ? n.intValue() : null;
+        DespuesDelCommit.ejecutar(() -> rankingRutas.actualizar(resumen, idRegion));
 
         return saved;
     }
@@ -85,19 +134,37 @@ public class CalificacionService {
         return calificacionRepository.findByIdUsuario(idUsuario);
     }
 
+    // Lectura por PK del agregado: no depende de cuantas calificaciones tenga la ruta
     public java.util.Map<String, Object> getPromedioPorRuta(Integer idRuta) {
-        java.util.List<Calificacion> lista = findByRuta(idRuta);
+        CalificacionResumen resumen = calificacionResumenRepository.findById(idRuta)
+                .orElseGet(() -> CalificacionResumen.vacio(idRuta));
         java.util.Map<String, Object> out = new java.util.HashMap<>();
-        if (lista == null || lista.isEmpty()) {
-            out.put("idRuta", idRuta);
-            out.put("promedio", null);
-            out.put("conteo", 0);
-            return out;
-        }
-        double promedio = lista.stream().mapToInt(Calificacion::getPuntuacion).average().orElse(0.0);
         out.put("idRuta", idRuta);
-        out.put("promedio", Math.round(promedio * 100.0) / 100.0); // redondeo a 2 decimales
-        out.put("conteo", lista.size());
+        out.put("promedio", resumen.promedio());
+        out.put("conteo", resumen.getConteo().intValue());
+        out.put("histograma", resumen.histograma());
+        return out;
+    }
+
+    // Resumen de muchas rutas leyendo calificacion_resumen por PK en una sola consulta (IN).
+    // Cada ruta queda como [promedio, conteo]; las que no tienen calificaciones como [null, 0].
+    // El TreeMap deja la respuesta ordenada por id, asi el mismo contenido da siempre el mismo ETag.
+    @Transactional(readOnly = true)
+    public Map<Integer, List<Number>> getResumenes(Collection<Integer> idsRuta) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Integer id : idsRuta) {
+            if (id != null) ids.add(id);
+        }
+        if (ids.size() > LIMITE_RESUMENES) {
+            throw new RuntimeException("Se pueden consultar hasta " + LIMITE_RESUMENES + " rutas por llamada");
+        }
+        Map<Integer, List<Number>> out = new TreeMap<>();
+        for (Integer id : ids) {
+            out.put(id, Arrays.asList(null, 0L));
+        }
+        for (CalificacionResumen resumen : calificacionResumenRepository.findAllById(ids)) {
+            out.put(resumen.getIdRuta(), Arrays.asList(resumen.promedio(), resumen.getConteo()));
+        }
         return out;
     }
 
@@ -0,0 +1,92 @@
+package cl.condor.calificaciones_api.service;
+
+import cl.condor.calificaciones_api.model.CalificacionResumen;
+import cl.condor.calificaciones_api.repository.CalificacionRepository;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Compara calificacion_resumen con lo que dicen las filas de calificacion y rehace las rutas
+// que no calzan (tabla recien creada, cargas manuales, otra instancia con una version antigua).
+// Corre al arrancar y luego periodicamente; cada ruta se corrige en su propia transaccion.
+@Component
+public class ConciliacionResumenJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConciliacionResumenJob.class);
+
+    @Autowired
+    private CalificacionRepository calificacionRepository;
+
+    @Autowired
+    private CalificacionResumenRepository calificacionResumenRepository;
+
+    @Autowired
+    private PromedioPendienteRepository promedioPendienteRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${calificaciones.resumen.conciliacion:PT1H}",
+            initialDelayString = "${calificaciones.resumen.conciliacion:PT1H}")
+    public void conciliarProgramado() {
+        try {
+            conciliar();
+        } catch (RuntimeException e) {
+            logger.error("No se pudo conciliar el resumen de calificaciones", e);
+        }
+    }
+
+    // Retorna cuantas rutas se corrigieron
+    public int conciliar() {
+        Map<Integer, CalificacionResumen> esperados = calificacionRepository.resumirPorRuta().stream()
+                .collect(Collectors.toMap(CalificacionResumen::getIdRuta, Function.identity()));
+        Map<Integer, CalificacionResumen> actuales = calificacionResumenRepository.findAll().stream()
+                .collect(Collectors.toMap(CalificacionResumen::getIdRuta, Function.identity()));
+
+        Set<Integer> rutas = new TreeSet<>(esperados.keySet());
+        rutas.addAll(actuales.keySet());
+
+        int corregidas = 0;
+        for (Integer idRuta : rutas) {
+            CalificacionResumen esperado = esperados.getOrDefault(idRuta, CalificacionResumen.vacio(idRuta));
+            if (!esperado.equals(actuales.get(idRuta))) {
+                // Se recalcula en la base y no con 'esperado', que pudo quedar viejo mientras tanto
+                calificacionResumenRepository.recalcular(idRuta);
+                reenviarPromedio(idRuta);
+                corregidas++;
+            }
+        }
+        if (corregidas > 0) {
+            logger.warn("Resumen de calificaciones corregido en {} de {} rutas", corregidas, rutas.size());
+        } else {
+            logger.debug("Resumen de calificaciones al dia ({} rutas)", rutas.size());
+        }
+        return corregidas;
+    }
+
+    // El promedio que tiene rutas-api tambien estaba desfasado: se encola el corregido. recalcular
+    // subio la version, asi rutas-api lo aplica aunque el conteo corregido sea menor.
+    private void reenviarPromedio(Integer idRuta) {
+        calificacionResumenRepository.findById(idRuta).ifPresent(resumen -> {
+            Double promedio = resumen.promedio();
+            if (promedio != null) {
+                promedioPendienteRepository.encolar(idRuta,
+                        BigDecimal.valueOf(promedio).setScale(2, RoundingMode.HALF_UP),
+                        resumen.getConteo(), resumen.getVersion(), LocalDateTime.now());
+            }
+        });
+    }
+}
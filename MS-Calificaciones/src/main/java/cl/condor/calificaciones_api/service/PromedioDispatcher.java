@@ -0,0 +1,86 @@
+package cl.condor.calificaciones_api.service;
+
+import cl.condor.calificaciones_api.model.PromedioPendiente;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
+import cl.condor.calificaciones_api.webclient.RutaClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Envia a rutas-api los promedios encolados en promedio_pendiente. Una ruta se envia cuando
+// lleva al menos 'ventana' pendiente, con el ultimo valor acumulado en ese lapso; si rutas-api
+// no responde las filas quedan para el siguiente ciclo.
+@Component
+public class PromedioDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromedioDispatcher.class);
+
+    @Autowired
+    private PromedioPendienteRepository promedioPendienteRepository;
+
+    @Autowired
+    private RutaClient rutaClient;
+
+    @Value("${calificaciones.promedio.ventana:PT5S}")
+    private Duration ventana = Duration.ofSeconds(5);
+
+    @Value("${calificaciones.promedio.lote:100}")
+    private int lote = 100;
+
+    @Scheduled(fixedDelayString = "${calificaciones.promedio.intervalo:PT2S}")
+    public void despacharProgramado() {
+        try {
+            despachar();
+        } catch (RuntimeException e) {
+            logger.error("Fallo el envio de promedios a rutas-api", e);
+        }
+    }
+
+    // Retorna cuantas filas salieron de la cola. Todo el lote viaja en una sola llamada; rutas-api
+    // ignora las rutas que ya no existen o cuyo resumen guardado es mas nuevo, asi que tras una
+    // respuesta exitosa todas las filas enviadas se dan por resueltas.
+    public int despachar() {
+        List<PromedioPendiente> listos = promedioPendienteRepository.findListos(
+                LocalDateTime.now().minus(ventana), PageRequest.of(0, lote));
+        if (listos.isEmpty()) {
+            return 0;
+        }
+        List<Map<String, Object>> resumenes = new ArrayList<>(listos.size());
+        for (PromedioPendiente pendiente : listos) {
+            Map<String, Object> resumen = new HashMap<>();
+            resumen.put("idRuta", pendiente.getIdRuta());
+            resumen.put("promedio", pendiente.getPromedio());
+            resumen.put("conteo", pendiente.getConteo());
+            resumen.put("version", pendiente.getVersionResumen());
+            resumenes.add(resumen);
+        }
+        try {
+            int aplicadas = rutaClient.actualizarCalificaciones(resumenes);
+            logger.debug("{} de {} promedios aplicados en rutas-api", aplicadas, listos.size());
+        } catch (WebClientRequestException e) {
+            logger.warn("rutas-api no disponible, {} promedios siguen pendientes", listos.size());
+            return 0;
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo enviar el lote de promedios: {}", e.getMessage());
+            return 0;
+        }
+        // Se borra con la version de resumen enviada: si llego otra calificacion mientras tanto (aunque
+        // la fila se haya borrado y reinsertado) la fila sobrevive. Sirve tambien con dos instancias.
+        for (PromedioPendiente pendiente : listos) {
+            promedioPendienteRepository.borrarSiNoCambio(pendiente.getIdRuta(), pendiente.getVersionResumen());
+        }
+        return listos.size();
+    }
+}
@@ -0,0 +1,212 @@
+package cl.condor.calificaciones_api.service;
+
+import cl.condor.calificaciones_api.model.CalificacionResumen;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.webclient.RutaClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Ranking en memoria de las rutas mejor calificadas, global y por region. El puntaje es un
+// promedio bayesiano: (pesoPrevio * mediaGlobal + suma) / (pesoPrevio + conteo), asi una ruta
+// con una sola calificacion de 5 no le gana a una con cincuenta de 4.8.
+// Se arma al arrancar desde calificacion_resumen, cada calificacion nueva mueve solo su ruta
+// (despues del commit) y se rearma periodicamente para recalcular la media global.
+@Component
+public class RankingRutas {
+
+    private static final Logger logger = LoggerFactory.getLogger(RankingRutas.class);
+
+    public static final int K_MAXIMO = 100;
+
+    // Mayor puntaje primero; a igual puntaje la de mas calificaciones y luego la de menor id
+    private static final Comparator<Entrada> ORDEN = Comparator.comparingDouble(Entrada::puntaje).reversed()
+            .thenComparing(Comparator.comparingLong(Entrada::conteo).reversed())
+            .thenComparingInt(Entrada::idRuta);
+
+    @Autowired
+    private CalificacionResumenRepository calificacionResumenRepository;
+
+    @Autowired
+    private RutaClient rutaClient;
+
+    @Value("${calificaciones.ranking.peso-previo:10}")
+    private double pesoPrevio = 10;
+
+    // Region de cada ruta: no cambia en la practica, se guarda la primera vez que se conoce
+    private final Map<Integer, Integer> regionPorRuta = new ConcurrentHashMap<>();
+
+    // Las lecturas recorren los sets sin bloquear; las escrituras se serializan con 'this'
+    private volatile Map<Integer, Entrada> entradas = new ConcurrentHashMap<>();
+    private volatile NavigableSet<Entrada> global = new ConcurrentSkipListSet<>(ORDEN);
+    private volatile Map<Integer, NavigableSet<Entrada>> porRegion = new ConcurrentHashMap<>();
+    private volatile double mediaGlobal = 0;
+
+    // version: la de calificacion_resumen, para no retroceder con un resumen que llega tarde
+    record Entrada(int idRuta, long suma, long conteo, long version, Integer idRegion, double puntaje) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${calificaciones.ranking.reconstruccion:PT1H}",
+            initialDelayString = "${calificaciones.ranking.reconstruccion:PT1H}")
+    public void reconstruirProgramado() {
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            logger.error("No se pudo reconstruir el ranking de rutas", e);
+        }
+    }
+
+    // Rehace el ranking completo desde calificacion_resumen. Retorna cuantas rutas quedaron.
+    public int reconstruir() {
+        List<CalificacionResumen> resumenes = calificacionResumenRepository.findAll();
+        cargarRegiones(resumenes);
+
+        long sumaTotal = 0;
+        long conteoTotal = 0;
+        for (CalificacionResumen resumen : resumenes) {
+            sumaTotal += resumen.getSuma();
+            conteoTotal += resumen.getConteo();
+        }
+        double media = conteoTotal == 0 ? 0 : (double) sumaTotal / conteoTotal;
+
+        synchronized (this) {
+            Map<Integer, Entrada> nuevas = new ConcurrentHashMap<>();
+            for (CalificacionResumen resumen : resumenes) {
+                if (resumen.getConteo() > 0) {
+                    nuevas.put(resumen.getIdRuta(), entrada(resumen.getIdRuta(), resumen.getSuma(), resumen.getConteo(),
+                            version(resumen), media));
+                }
+            }
+            // Una calificacion aplicada mientras se leia la tabla ya esta en 'entradas' con una
+            // version mayor: se conserva esa, con el puntaje de la media nueva
+            for (Entrada actual : entradas.values()) {
+                Entrada leida = nuevas.get(actual.idRuta());
+                if (leida == null || actual.version() > leida.version()) {
+                    nuevas.put(actual.idRuta(), entrada(actual.idRuta(), actual.suma(), actual.conteo(), actual.version(), media));
+                }
+            }
+
+            NavigableSet<Entrada> nuevoGlobal = new ConcurrentSkipListSet<>(ORDEN);
+            Map<Integer, NavigableSet<Entrada>> nuevoPorRegion = new ConcurrentHashMap<>();
+            for (Entrada e : nuevas.values()) {
+                nuevoGlobal.add(e);
+                if (e.idRegion() != null) {
+                    nuevoPorRegion.computeIfAbsent(e.idRegion(), r -> new ConcurrentSkipListSet<>(ORDEN)).add(e);
+                }
+            }
+            mediaGlobal = media;
+            entradas = nuevas;
+            global = nuevoGlobal;
+            porRegion = nuevoPorRegion;
+            logger.info("Ranking de rutas reconstruido: {} rutas, media global {}", nuevas.size(), media);
+            return nuevas.size();
+        }
+    }
+
+    // Mueve una ruta a su nueva posicion con el resumen recien guardado. idRegion puede venir
+    // null si no se conoce (se usa la del cache, si la hay). Los callbacks despues del commit de
+    // dos calificaciones de la misma ruta pueden llegar en cualquier orden: si ya hay una entrada
+    // con igual o mayor version, el resumen es viejo y se ignora. Se compara la version y no el
+    // conteo porque una correccion de la conciliacion puede bajar el conteo.
+    public synchronized void actualizar(CalificacionResumen resumen, Integer idRegion) {
+        if (idRegion != null) {
+            regionPorRuta.put(resumen.getIdRuta(), idRegion);
+        }
+        Entrada actual = entradas.get(resumen.getIdRuta());
+        if (actual != null && actual.version() >= version(resumen)) {
+            return;
+        }
+        Entrada anterior = entradas.remove(resumen.getIdRuta());
+        if (anterior != null) {
+            global.remove(anterior);
+            if (anterior.idRegion() != null) {
+                NavigableSet<Entrada> region = porRegion.get(anterior.idRegion());
+                if (region != null) region.remove(anterior);
+            }
+        }
+        if (resumen.getConteo() == 0) {
+            return;
+        }
+        Entrada nueva = entrada(resumen.getIdRuta(), resumen.getSuma(), resumen.getConteo(), version(resumen), mediaGlobal);
+        entradas.put(nueva.idRuta(), nueva);
+        global.add(nueva);
+        if (nueva.idRegion() != null) {
+            porRegion.computeIfAbsent(nueva.idRegion(), r -> new ConcurrentSkipListSet<>(ORDEN)).add(nueva);
+        }
+    }
+
+    // Las k rutas con mayor puntaje, de todas las regiones (idRegion null) o de una sola
+    public List<Map<String, Object>> top(int k, Integer idRegion) {
+        NavigableSet<Entrada> set = idRegion == null ? global : porRegion.get(idRegion);
+        List<Map<String, Object>> out = new ArrayList<>();
+        if (set == null) {
+            return out;
+        }
+        for (Entrada e : set) {
+            if (out.size() == k) break;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("idRuta", e.idRuta());
+            item.put("idRegion", e.idRegion());
+            item.put("promedio", Math.round(e.suma() * 100.0 / e.conteo()) / 100.0);
+            item.put("conteo", e.conteo());
+            item.put("puntaje", Math.round(e.puntaje() * 1000.0) / 1000.0);
+            out.add(item);
+        }
+        return out;
+    }
+
+    private Entrada entrada(int idRuta, long suma, long conteo, long version, double media) {
+        double puntaje = (pesoPrevio * media + suma) / (pesoPrevio + conteo);
+        return new Entrada(idRuta, suma, conteo, version, regionPorRuta.get(idRuta), puntaje);
+    }
+
+    private static long version(CalificacionResumen resumen) {
+        return resumen.getVersion() == null ? 0 : resumen.getVersion();
+    }
+
+    // Pide a rutas-api (GET /lote) solo las regiones que aun no estan en el cache. Si rutas-api
+    // no responde, esas rutas quedan solo en el ranking global hasta la proxima reconstruccion.
+    private void cargarRegiones(List<CalificacionResumen> resumenes) {
+        Set<Integer> faltantes = new HashSet<>();
+        for (CalificacionResumen resumen : resumenes) {
+            if (!regionPorRuta.containsKey(resumen.getIdRuta())) {
+                faltantes.add(resumen.getIdRuta());
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return;
+        }
+        Map<Integer, Map<String, Object>> rutas;
+        try {
+            rutas = rutaClient.getRutasByIds(faltantes);
+        } catch (RuntimeException e) {
+            logger.warn("No se pudieron obtener las regiones de {} rutas: {}", faltantes.size(), e.getMessage());
+            return;
+        }
+        Map<Integer, Integer> regiones = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, Object>> ruta : rutas.entrySet()) {
+            if (ruta.getValue().get("id_region") instanceof Number region) {
+                regiones.put(ruta.getKey(), region.intValue());
+            }
+        }
+        regionPorRuta.putAll(regiones);
+    }
+}
@@ -1,18 +1,28 @@
 package cl.condor.calificaciones_api.webclient;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 @Component
 public class RutaClient {
 
+    private static final int TAMANO_LOTE = 100;
+    private static final int MAX_LOTES_EN_PARALELO = 4;
+
     private final WebClient webClient;
 
-    public RutaClient(@Value("${ruta-service.url}") String rutaServiceURL) {
-        this.webClient = WebClient.builder()
+    public RutaClient(WebClient.Builder webClientBuilder, @Value("${ruta-service.url}") String rutaServiceURL) {
+        this.webClient = webClientBuilder
                 .baseUrl(rutaServiceURL)
                 .build();
     }
@@ -35,18 +45,53 @@ public class RutaClient {
                 .block();
     }
 
-        public void actualizarPromedioRuta(Integer id, java.math.BigDecimal promedio) {
-                // Construir un payload mínimo para la actualización PUT
-                java.util.Map<String, Object> payload = new java.util.HashMap<>();
-                payload.put("prom_calificacion", promedio);
-
-                this.webClient.put()
-                                .uri("/{id}", id)
-                                .bodyValue(payload)
-                                .retrieve()
-                                .onStatus(status -> status.is4xxClientError(), resp -> resp.bodyToMono(String.class).map(b -> new RuntimeException("Ruta no encontrada")))
-                                .onStatus(status -> status.is5xxServerError(), resp -> resp.bodyToMono(String.class).map(b -> new RuntimeException("Error en servicio Rutas")))
-                                .bodyToMono(Void.class)
-                                .block();
+    // Trae varias rutas usando GET /lote de rutas-api, en bloques de hasta 100 ids pedidos en paralelo.
+    // Retorna las rutas indexadas por idRuta; las que no existen no aparecen.
+    public Map<Integer, Map<String, Object>> getRutasByIds(Collection<Integer> ids) {
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Integer>> bloques = new ArrayList<>();
+        for (int i = 0; i < distintos.size(); i += TAMANO_LOTE) {
+            bloques.add(distintos.subList(i, Math.min(i + TAMANO_LOTE, distintos.size())));
         }
+        List<Map<String, Object>> rutas = Flux.fromIterable(bloques)
+                .flatMap(bloque -> this.webClient.get()
+                        .uri(uriBuilder -> uriBuilder.path("/lote").queryParam("ids", bloque).build())
+                        .retrieve()
+                        .bodyToFlux(new ParameterizedTypeReference<Map<String, Object>>() {}), MAX_LOTES_EN_PARALELO)
+                .collectList()
+                .block();
+
+        Map<Integer, Map<String, Object>> porId = new HashMap<>();
+        if (rutas != null) {
+            for (Map<String, Object> ruta : rutas) {
+                if (ruta.get("idRuta") instanceof Number id) {
+                    porId.put(id.intValue(), ruta);
+                }
+            }
+        }
+        return porId;
+    }
+
+    // Envia un lote de resumenes {idRuta, promedio, conteo, version} al endpoint dedicado de rutas-api,
+    // que solo toca prom_calificacion/conteo_calificaciones. Retorna cuantas rutas se aplicaron.
+    public int actualizarCalificaciones(List<Map<String, Object>> resumenes) {
+        Map<?, ?> respuesta = this.webClient.patch()
+                .uri("/calificaciones")
+                .bodyValue(resumenes)
+                .retrieve()
+                .onStatus(
+                        status -> status.is4xxClientError(),
+                        response -> response.bodyToMono(String.class)
+                                .map(body -> new RuntimeException("Resumen de calificaciones rechazado: " + body))
+                )
+                .onStatus(
+                        status -> status.is5xxServerError(),
+                        response -> response.bodyToMono(String.class)
+                                .map(body -> new RuntimeException("Error en servicio Rutas"))
+                )
+                .bodyToMono(Map.class)
+                .block();
+        Object aplicadas = respuesta == null ? null : respuesta.get("aplicadas");
+        return aplicadas instanceof Number n ? n.intValue() : 0;
+    }
 }
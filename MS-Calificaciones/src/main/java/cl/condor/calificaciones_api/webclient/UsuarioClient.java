@@ -11,8 +11,8 @@ public class UsuarioClient {
 
     private final WebClient webClient;
 
-    public UsuarioClient(@Value("${usuario-service.url}") String usuarioServiceURL) {
-        this.webClient = WebClient.builder()
+    public UsuarioClient(WebClient.Builder webClientBuilder, @Value("${usuario-service.url}") String usuarioServiceURL) {
+        this.webClient = webClientBuilder
                 .baseUrl(usuarioServiceURL)
                 .build();
     }
@@ -0,0 +1,127 @@
+package cl.condor.calificaciones_api.Controller;
+
+import cl.condor.calificaciones_api.controller.CalificacionController;
+import cl.condor.calificaciones_api.service.CalificacionService;
+import cl.condor.calificaciones_api.service.RankingRutas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Endpoints de consulta agregada (exportar, resumen, top). Van aparte de CalificacionControllerTest
+// para no depender de sus tests de createCalificacion.
+public class CalificacionConsultasControllerTest {
+
+    @InjectMocks
+    private CalificacionController calificacionController;
+
+    @Mock
+    private CalificacionService calificacionService;
+
+    @Mock
+    private RankingRutas rankingRutas;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // ==========================================
+    // Tests para GET /api/v1/calificaciones/exportar
+    // ==========================================
+
+    @Test
+    void exportarCalificaciones_conGzip_entregaNdjsonComprimido() throws Exception {
+        doAnswer(inv -> {
+            inv.getArgument(0, OutputStream.class).write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(calificacionService).exportar(any());
+
+        ResponseEntity<StreamingResponseBody> response = calificacionController.exportarCalificaciones(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("{\"id\":1}\n{\"id\":2}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    // ==========================================
+    // Tests para GET /api/v1/calificaciones/resumen
+    // ==========================================
+
+    @Test
+    void getResumenes_entregaEtagYCacheControl() {
+        Map<Integer, List<Number>> resumenes = new TreeMap<>(Map.of(50, List.of(4.5, 2L)));
+        when(calificacionService.getResumenes(List.of(50))).thenReturn(resumenes);
+
+        ResponseEntity<?> response = calificacionController.getResumenes(List.of(50), null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(resumenes, response.getBody());
+        assertNotNull(response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getCacheControl().contains("max-age=30"));
+    }
+
+    @Test
+    void getResumenes_mismoEtag_responde304SinCuerpo() {
+        when(calificacionService.getResumenes(List.of(50))).thenReturn(new TreeMap<>(Map.of(50, List.of(4.5, 2L))));
+        String etag = calificacionController.getResumenes(List.of(50), null).getHeaders().getETag();
+
+        ResponseEntity<?> response = calificacionController.getResumenes(List.of(50), etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void getResumenes_demasiadosIds_responde400() {
+        when(calificacionService.getResumenes(anyList())).thenThrow(new RuntimeException("Se pueden consultar hasta 500 rutas por llamada"));
+
+        ResponseEntity<?> response = calificacionController.getResumenes(List.of(1, 2), null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    // ==========================================
+    // Tests para GET /api/v1/calificaciones/top
+    // ==========================================
+
+    @Test
+    void getTop_porRegion_consultaElRanking() {
+        List<Map<String, Object>> top = List.of(Map.of("idRuta", 50, "puntaje", 4.2));
+        when(rankingRutas.top(5, 13)).thenReturn(top);
+
+        ResponseEntity<?> response = calificacionController.getTop(5, 13);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(top, response.getBody());
+    }
+
+    @Test
+    void getTop_kFueraDeRango_responde400() {
+        ResponseEntity<?> response = calificacionController.getTop(RankingRutas.K_MAXIMO + 1, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(rankingRutas, never()).top(anyInt(), any());
+    }
+}
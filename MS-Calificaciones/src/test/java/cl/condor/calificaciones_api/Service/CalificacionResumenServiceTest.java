@@ -0,0 +1,183 @@
+package cl.condor.calificaciones_api.Service;
+
+import cl.condor.calificaciones_api.model.Calificacion;
+import cl.condor.calificaciones_api.model.CalificacionResumen;
+import cl.condor.calificaciones_api.repository.CalificacionRepository;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
+import cl.condor.calificaciones_api.service.CalificacionService;
+import cl.condor.calificaciones_api.service.RankingRutas;
+import cl.condor.calificaciones_api.webclient.RutaClient;
+import cl.condor.calificaciones_api.webclient.UsuarioClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import net.minidev.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Resumen por ruta (calificacion_resumen), outbox de promedios, ranking y exportacion.
+// Solo Mockito: a diferencia de CalificacionServiceTest no levanta el contexto ni necesita MySQL.
+public class CalificacionResumenServiceTest {
+
+    @InjectMocks
+    private CalificacionService calificacionService;
+
+    @Mock
+    private CalificacionRepository calificacionRepository;
+
+    @Mock
+    private CalificacionResumenRepository calificacionResumenRepository;
+
+    @Mock
+    private PromedioPendienteRepository promedioPendienteRepository;
+
+    @Mock
+    private UsuarioClient usuarioClient;
+
+    @Mock
+    private RutaClient rutaClient;
+
+    @Mock
+    private RankingRutas rankingRutas;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private Calificacion calificacionValida;
+    private final Integer VALID_ID = 1;
+
+    private Calificacion calificacionValida2;
+    private final Integer VALID_ID2 = 2;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        calificacionValida = new Calificacion();
+        calificacionValida.setId(VALID_ID);
+        calificacionValida.setIdUsuario(10);
+        calificacionValida.setIdRuta(50);
+        calificacionValida.setPuntuacion(4);
+        calificacionValida.setComentario("Excelente ruta!");
+        calificacionValida.setFechaCreacion(LocalDateTime.now());
+
+        calificacionValida2 = new Calificacion();
+        calificacionValida2.setId(VALID_ID2);
+        calificacionValida2.setIdUsuario(1);
+        calificacionValida2.setIdRuta(2);
+        calificacionValida2.setPuntuacion(4);
+        calificacionValida2.setComentario("Excelente ruta!");
+        calificacionValida2.setFechaCreacion(LocalDateTime.now());
+    }
+
+    // --- Tests para save (resumen, outbox y ranking) ---
+
+    @Test
+    void save_actualizaResumenEncolaPromedioYMueveRanking() {
+        when(usuarioClient.getUsuarioById(10)).thenReturn(new JSONObject());
+        when(rutaClient.getRutaById(50)).thenReturn(new JSONObject(Map.of("id_region", 13)));
+        when(calificacionRepository.save(any(Calificacion.class))).thenReturn(calificacionValida);
+        CalificacionResumen resumen = new CalificacionResumen(50, 1L, 4L, 0L, 0L, 0L, 1L, 0L);
+        resumen.setVersion(1L);
+        when(calificacionResumenRepository.findById(50)).thenReturn(Optional.of(resumen));
+
+        calificacionService.save(calificacionValida);
+
+        // El agregado se actualiza y el promedio se lee de el, sin cargar las calificaciones de la ruta
+        verify(calificacionResumenRepository).sumar(50, 4);
+        verify(calificacionRepository, never()).findByIdRuta(any());
+        // El promedio va al outbox: el POST no espera a rutas-api
+        verify(promedioPendienteRepository).encolar(eq(50), eq(new java.math.BigDecimal("4.00")), eq(1L), eq(1L), any());
+        verify(rutaClient, never()).actualizarCalificaciones(any());
+        // Sin transaccion activa el ranking se actualiza de inmediato, con la region de la ruta
+        verify(rankingRutas).actualizar(argThat(r -> r.getIdRuta() == 50 && r.getConteo() == 1L), eq(13));
+    }
+
+    // --- Tests para getPromedioPorRuta ---
+
+    @Test
+    void getPromedioPorRuta_leeElResumenConHistograma() {
+        when(calificacionResumenRepository.findById(50))
+                .thenReturn(Optional.of(new CalificacionResumen(50, 3L, 11L, 0L, 0L, 1L, 1L, 1L)));
+
+        Map<String, Object> resultado = calificacionService.getPromedioPorRuta(50);
+
+        assertEquals(3.67, resultado.get("promedio"));
+        assertEquals(3, resultado.get("conteo"));
+        assertEquals(List.of(0L, 0L, 1L, 1L, 1L), resultado.get("histograma"));
+    }
+
+    @Test
+    void getPromedioPorRuta_sinCalificaciones_promedioNulo() {
+        when(calificacionResumenRepository.findById(77)).thenReturn(Optional.empty());
+
+        Map<String, Object> resultado = calificacionService.getPromedioPorRuta(77);
+
+        assertNull(resultado.get("promedio"));
+        assertEquals(0, resultado.get("conteo"));
+    }
+
+    @Test
+    void getResumenes_unaConsultaYRutasSinCalificacionesEnCero() {
+        when(calificacionResumenRepository.findAllById(any()))
+                .thenReturn(List.of(new CalificacionResumen(50, 2L, 9L, 0L, 0L, 0L, 1L, 1L)));
+
+        Map<Integer, List<Number>> resultado = calificacionService.getResumenes(List.of(77, 50, 50));
+
+        // Ids repetidos se consultan una sola vez y la respuesta sale ordenada por id
+        verify(calificacionResumenRepository, times(1)).findAllById(argThat(ids ->
+                ids instanceof Set<Integer> set && set.equals(Set.of(50, 77))));
+        assertEquals(List.of(50, 77), List.copyOf(resultado.keySet()));
+        assertEquals(List.of(4.5, 2L), resultado.get(50));
+        assertEquals(Arrays.asList(null, 0L), resultado.get(77));
+    }
+
+    @Test
+    void getResumenes_masDelLimite_lanzaExcepcion() {
+        List<Integer> ids = IntStream.rangeClosed(1, CalificacionService.LIMITE_RESUMENES + 1)
+                .boxed().toList();
+
+        assertThrows(RuntimeException.class, () -> calificacionService.getResumenes(ids));
+        verify(calificacionResumenRepository, never()).findAllById(any());
+    }
+
+    // --- Tests para exportar ---
+
+    @Test
+    void exportar_escribeNdjsonYDesconectaCadaCalificacion() throws Exception {
+        when(calificacionRepository.streamTodas()).thenReturn(Stream.of(calificacionValida, calificacionValida2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long filas = calificacionService.exportar(out);
+
+        String[] lineas = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, filas);
+        assertEquals(2, lineas.length);
+        assertEquals(VALID_ID2, objectMapper.readValue(lineas[1], Calificacion.class).getId());
+        verify(entityManager).detach(calificacionValida);
+        verify(entityManager).detach(calificacionValida2);
+        verify(calificacionRepository, never()).findAll();
+    }
+}
@@ -2,7 +2,10 @@ package cl.condor.calificaciones_api.Service;
 
 import cl.condor.calificaciones_api.model.Calificacion;
 import cl.condor.calificaciones_api.repository.CalificacionRepository;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
 import cl.condor.calificaciones_api.service.CalificacionService;
+import cl.condor.calificaciones_api.service.RankingRutas;
 import cl.condor.calificaciones_api.webclient.RutaClient;
 import cl.condor.calificaciones_api.webclient.UsuarioClient;
 import net.minidev.json.JSONObject;
@@ -33,6 +36,12 @@ public class CalificacionServiceTest {
     @Mock
     private CalificacionRepository calificacionRepository;
 
+    @Mock
+    private CalificacionResumenRepository calificacionResumenRepository;
+
+    @Mock
+    private PromedioPendienteRepository promedioPendienteRepository;
+
     // Mocks de dependencias externas (WebClients)
     @Mock
     private UsuarioClient usuarioClient;
@@ -40,6 +49,9 @@ public class CalificacionServiceTest {
     @Mock
     private RutaClient rutaClient;
 
+    @Mock
+    private RankingRutas rankingRutas;
+
     private Calificacion calificacionValida;
     private final Integer VALID_ID = 1;
 
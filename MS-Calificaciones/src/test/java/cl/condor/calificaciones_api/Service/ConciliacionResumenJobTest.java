@@ -0,0 +1,91 @@
+package cl.condor.calificaciones_api.Service;
+
+import cl.condor.calificaciones_api.model.CalificacionResumen;
+import cl.condor.calificaciones_api.repository.CalificacionRepository;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
+import cl.condor.calificaciones_api.service.ConciliacionResumenJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConciliacionResumenJobTest {
+
+    @InjectMocks
+    private ConciliacionResumenJob conciliacionResumenJob;
+
+    @Mock
+    private CalificacionRepository calificacionRepository;
+
+    @Mock
+    private CalificacionResumenRepository calificacionResumenRepository;
+
+    @Mock
+    private PromedioPendienteRepository promedioPendienteRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void conciliar_recalculaSoloLasRutasQueNoCalzan() {
+        when(calificacionRepository.resumirPorRuta()).thenReturn(List.of(
+                new CalificacionResumen(1, 2L, 9L, 0L, 0L, 0L, 1L, 1L),
+                new CalificacionResumen(2, 1L, 3L, 0L, 0L, 1L, 0L, 0L),
+                new CalificacionResumen(3, 1L, 5L, 0L, 0L, 0L, 0L, 1L)));
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of(
+                new CalificacionResumen(1, 2L, 9L, 0L, 0L, 0L, 1L, 1L),   // al dia
+                new CalificacionResumen(2, 2L, 6L, 0L, 0L, 2L, 0L, 0L),   // desfasada
+                new CalificacionResumen(4, 1L, 2L, 0L, 1L, 0L, 0L, 0L))); // sin calificaciones reales
+
+        int corregidas = conciliacionResumenJob.conciliar();
+
+        // La ruta 3 falta en el resumen y la 4 ya no tiene filas: ambas se rehacen
+        assertEquals(3, corregidas);
+        verify(calificacionResumenRepository).recalcular(2);
+        verify(calificacionResumenRepository).recalcular(3);
+        verify(calificacionResumenRepository).recalcular(4);
+        verify(calificacionResumenRepository, never()).recalcular(1);
+    }
+
+    @Test
+    void conciliar_rutaCorregida_encolaElPromedioParaRutasApi() {
+        when(calificacionRepository.resumirPorRuta()).thenReturn(List.of(
+                new CalificacionResumen(2, 3L, 10L, 0L, 0L, 1L, 1L, 1L)));
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of());
+        CalificacionResumen recalculado = new CalificacionResumen(2, 3L, 10L, 0L, 0L, 1L, 1L, 1L);
+        recalculado.setVersion(8L);
+        when(calificacionResumenRepository.findById(2)).thenReturn(Optional.of(recalculado));
+
+        conciliacionResumenJob.conciliar();
+
+        // Va con la version que dejo recalcular, asi rutas-api acepta la correccion
+        verify(promedioPendienteRepository).encolar(eq(2), eq(new BigDecimal("3.33")), eq(3L), eq(8L), any());
+    }
+
+    @Test
+    void conciliar_rutaVaciaEnResumen_noSeRecalcula() {
+        when(calificacionRepository.resumirPorRuta()).thenReturn(List.of());
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of(CalificacionResumen.vacio(8)));
+
+        assertEquals(0, conciliacionResumenJob.conciliar());
+        verify(calificacionResumenRepository, never()).recalcular(anyInt());
+    }
+
+    @Test
+    void conciliarProgramado_errorDeBase_noPropaga() {
+        when(calificacionRepository.resumirPorRuta()).thenThrow(new RuntimeException("sin conexion"));
+
+        assertDoesNotThrow(() -> conciliacionResumenJob.conciliarProgramado());
+    }
+}
@@ -0,0 +1,82 @@
+package cl.condor.calificaciones_api.Service;
+
+import cl.condor.calificaciones_api.model.PromedioPendiente;
+import cl.condor.calificaciones_api.repository.PromedioPendienteRepository;
+import cl.condor.calificaciones_api.service.PromedioDispatcher;
+import cl.condor.calificaciones_api.webclient.RutaClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PromedioDispatcherTest {
+
+    @InjectMocks
+    private PromedioDispatcher promedioDispatcher;
+
+    @Mock
+    private PromedioPendienteRepository promedioPendienteRepository;
+
+    @Mock
+    private RutaClient rutaClient;
+
+    private final PromedioPendiente ruta1 = new PromedioPendiente(1, new BigDecimal("4.50"), 2L, 7L, 12L, LocalDateTime.now().minusMinutes(1));
+    private final PromedioPendiente ruta2 = new PromedioPendiente(2, new BigDecimal("3.00"), 1L, 1L, 3L, LocalDateTime.now().minusMinutes(1));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void despachar_enviaTodoElLoteEnUnaLlamadaYBorraSoloSiNoCambio() {
+        when(promedioPendienteRepository.findListos(any(), any())).thenReturn(List.of(ruta1, ruta2));
+        when(rutaClient.actualizarCalificaciones(anyList())).thenReturn(1);
+
+        int enviados = promedioDispatcher.despachar();
+
+        // Aunque rutas-api aplique solo una (la otra ya no existe), ambas salen de la cola
+        assertEquals(2, enviados);
+        verify(rutaClient, times(1)).actualizarCalificaciones(argThat(lote -> lote.size() == 2
+                && lote.get(0).get("idRuta").equals(1)
+                && lote.get(0).get("promedio").equals(new BigDecimal("4.50"))
+                && lote.get(0).get("conteo").equals(2L)
+                && lote.get(0).get("version").equals(12L)));
+        // Se borra con la version de resumen enviada (no la de la fila, que se reinicia al reinsertar)
+        verify(promedioPendienteRepository).borrarSiNoCambio(1, 12L);
+        verify(promedioPendienteRepository).borrarSiNoCambio(2, 3L);
+    }
+
+    @Test
+    void despachar_rutasApiCaida_noBorraNada() {
+        when(promedioPendienteRepository.findListos(any(), any())).thenReturn(List.of(ruta1, ruta2));
+        when(rutaClient.actualizarCalificaciones(anyList())).thenThrow(new WebClientRequestException(
+                new RuntimeException("Connection refused"), HttpMethod.PATCH,
+                URI.create("http://localhost:8080/api/v1/rutas/calificaciones"), new HttpHeaders()));
+
+        int enviados = promedioDispatcher.despachar();
+
+        assertEquals(0, enviados);
+        verify(promedioPendienteRepository, never()).borrarSiNoCambio(any(), any());
+    }
+
+    @Test
+    void despachar_sinPendientes_noLlamaARutasApi() {
+        when(promedioPendienteRepository.findListos(any(), any())).thenReturn(List.of());
+
+        assertEquals(0, promedioDispatcher.despachar());
+        verify(rutaClient, never()).actualizarCalificaciones(any());
+    }
+}
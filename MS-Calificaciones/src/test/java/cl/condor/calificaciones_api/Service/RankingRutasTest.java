@@ -0,0 +1,131 @@
+package cl.condor.calificaciones_api.Service;
+
+import cl.condor.calificaciones_api.model.CalificacionResumen;
+import cl.condor.calificaciones_api.repository.CalificacionResumenRepository;
+import cl.condor.calificaciones_api.service.RankingRutas;
+import cl.condor.calificaciones_api.webclient.RutaClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RankingRutasTest {
+
+    @InjectMocks
+    private RankingRutas rankingRutas;
+
+    @Mock
+    private CalificacionResumenRepository calificacionResumenRepository;
+
+    @Mock
+    private RutaClient rutaClient;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // Resumen con 'conteo' calificaciones que suman 'suma' (el histograma no influye en el ranking).
+    // Sin correcciones cada calificacion sube la version en uno, asi que version = conteo.
+    private CalificacionResumen resumen(int idRuta, long conteo, long suma) {
+        return resumen(idRuta, conteo, suma, conteo);
+    }
+
+    private CalificacionResumen resumen(int idRuta, long conteo, long suma, long version) {
+        CalificacionResumen resumen = new CalificacionResumen(idRuta, conteo, suma, 0L, 0L, 0L, 0L, 0L);
+        resumen.setVersion(version);
+        return resumen;
+    }
+
+    private List<Object> ids(List<Map<String, Object>> top) {
+        return top.stream().map(item -> item.get("idRuta")).toList();
+    }
+
+    @Test
+    void reconstruir_pocasCalificacionesNoGananAMuchasBuenas() {
+        // Ruta 1: un solo 5; ruta 2: 50 calificaciones con promedio 4.8; ruta 3: 20 con promedio 3
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of(
+                resumen(1, 1, 5), resumen(2, 50, 240), resumen(3, 20, 60)));
+        when(rutaClient.getRutasByIds(any())).thenReturn(Map.of(
+                1, Map.of("idRuta", 1, "id_region", 7),
+                2, Map.of("idRuta", 2, "id_region", 7),
+                3, Map.of("idRuta", 3, "id_region", 8)));
+
+        assertEquals(3, rankingRutas.reconstruir());
+
+        assertEquals(List.of(2, 1, 3), ids(rankingRutas.top(10, null)));
+        assertEquals(List.of(2, 1), ids(rankingRutas.top(10, 7)));
+        assertEquals(List.of(3), ids(rankingRutas.top(10, 8)));
+        assertEquals(List.of(2), ids(rankingRutas.top(1, null)));
+        assertTrue(rankingRutas.top(10, 99).isEmpty());
+    }
+
+    @Test
+    void actualizar_mueveSoloLaRutaCalificadaYGuardaSuRegion() {
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of(resumen(1, 10, 40), resumen(2, 10, 30)));
+        when(rutaClient.getRutasByIds(any())).thenReturn(Map.of());
+        rankingRutas.reconstruir();
+
+        // La ruta 2 recibe muchas calificaciones de 5 y pasa al primer lugar de la region 4
+        rankingRutas.actualizar(resumen(2, 30, 130), 4);
+
+        assertEquals(List.of(2, 1), ids(rankingRutas.top(10, null)));
+        assertEquals(List.of(2), ids(rankingRutas.top(10, 4)));
+        assertEquals(30L, rankingRutas.top(1, null).get(0).get("conteo"));
+    }
+
+    @Test
+    void actualizar_callbacksDesordenados_ignoraElResumenViejo() {
+        // Dos calificaciones seguidas de la ruta 1: el callback de la segunda llega primero
+        rankingRutas.actualizar(resumen(1, 7, 35), 4);
+        rankingRutas.actualizar(resumen(1, 6, 30), 4);
+
+        List<Map<String, Object>> top = rankingRutas.top(10, 4);
+        assertEquals(1, top.size());
+        assertEquals(7L, top.get(0).get("conteo"));
+        assertEquals(5.0, top.get(0).get("promedio"));
+    }
+
+    @Test
+    void actualizar_correccionConMenosConteo_seAplicaPorVersion() {
+        rankingRutas.actualizar(resumen(1, 7, 35), 4);
+
+        // La conciliacion corrigio el agregado a 5 calificaciones (version 8)
+        rankingRutas.actualizar(resumen(1, 5, 20, 8), 4);
+
+        assertEquals(5L, rankingRutas.top(1, null).get(0).get("conteo"));
+    }
+
+    @Test
+    void reconstruir_conservaActualizacionMasNuevaYPideSoloRegionesFaltantes() {
+        rankingRutas.actualizar(resumen(1, 6, 30), 3);
+        // La tabla se leyo antes de la ultima calificacion de la ruta 1
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of(resumen(1, 5, 25), resumen(2, 2, 6)));
+        when(rutaClient.getRutasByIds(any())).thenReturn(Map.of(2, Map.of("idRuta", 2, "id_region", 3)));
+
+        rankingRutas.reconstruir();
+
+        verify(rutaClient).getRutasByIds(Set.of(2));
+        List<Map<String, Object>> top = rankingRutas.top(10, 3);
+        assertEquals(List.of(1, 2), ids(top));
+        assertEquals(6L, top.get(0).get("conteo"));
+    }
+
+    @Test
+    void reconstruir_rutasApiCaida_rankingGlobalIgualSeArma() {
+        when(calificacionResumenRepository.findAll()).thenReturn(List.of(resumen(1, 3, 12)));
+        when(rutaClient.getRutasByIds(any())).thenThrow(new RuntimeException("Connection refused"));
+
+        assertEquals(1, rankingRutas.reconstruir());
+        assertEquals(List.of(1), ids(rankingRutas.top(10, null)));
+        assertNull(rankingRutas.top(10, null).get(0).get("idRegion"));
+    }
+}
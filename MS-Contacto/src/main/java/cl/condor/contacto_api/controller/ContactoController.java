@@ -6,12 +6,17 @@ import cl.condor.contacto_api.service.ContactoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.OutputStream;
 import java.util.Date;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import java.util.List;
 
@@ -48,6 +53,35 @@ public class ContactoController {
         }
     }
 
+    @Operation(
+            summary = "Exportar los formularios de contacto en NDJSON",
+            description = """
+                    Envia todos los formularios, uno por linea, a medida
+                    que se leen de la base de datos. Solo moderador o admin.
+                    Con gzip=true la respuesta va comprimida.
+                    """
+    )
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(defaultValue = "false") boolean gzip,
+                                                          @RequestHeader(value = "X-User-Role", required = false) String roleHeader) {
+        // Los formularios traen nombre y correo: misma restriccion que editar o borrar
+        if (!isModeratorOrAdmin(roleHeader)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        StreamingResponseBody cuerpo = out -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(out, 8192) : out;
+            contactoService.exportar(destino);
+            if (destino instanceof GZIPOutputStream comprimido) {
+                comprimido.finish();
+            }
+        };
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+
     @Operation(
             summary = "Mostrar un formulario por id",
             description = """
@@ -1,9 +1,23 @@
 package cl.condor.contacto_api.repository;
 
 import cl.condor.contacto_api.model.Contacto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
 public interface ContactoRepository extends JpaRepository<Contacto, Integer> {
+
+    // Lectura fila a fila para la exportacion (MySQL transmite solo con fetch size Integer.MIN_VALUE)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Contacto c ORDER BY c.id")
+    Stream<Contacto> streamTodos();
 }
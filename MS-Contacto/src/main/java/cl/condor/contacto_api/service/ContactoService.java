@@ -2,11 +2,17 @@ package cl.condor.contacto_api.service;
 
 import cl.condor.contacto_api.model.Contacto;
 import cl.condor.contacto_api.repository.ContactoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -15,10 +21,35 @@ public class ContactoService {
     @Autowired
     private ContactoRepository contactoRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
     public List<Contacto> findAll() {
         return contactoRepository.findAll();
     }
 
+    // Un formulario por linea (NDJSON); se escribe y se suelta del contexto antes de leer el
+    // siguiente. Transaccion de Spring para poder marcarla de solo lectura mientras dura el cursor
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public long exportar(OutputStream out) throws IOException {
+        long filas = 0;
+        try (Stream<Contacto> stream = contactoRepository.streamTodos()) {
+            Iterator<Contacto> it = stream.iterator();
+            while (it.hasNext()) {
+                Contacto contacto = it.next();
+                out.write(objectMapper.writeValueAsBytes(contacto));
+                out.write('\n');
+                entityManager.detach(contacto);
+                filas++;
+            }
+        }
+        out.flush();
+        return filas;
+    }
+
     public Contacto findById(Integer id) {
         return contactoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Contacto no encontrado"));
@@ -0,0 +1,62 @@
+package cl.condor.contacto_api.Controller;
+
+import cl.condor.contacto_api.controller.ContactoController;
+import cl.condor.contacto_api.service.ContactoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// GET /api/v1/contacto/exportar. Va aparte de ContactoControllerTest, que aun llama delete(id)
+// con la firma anterior al control de rol.
+public class ContactoExportacionControllerTest {
+
+    @InjectMocks
+    private ContactoController contactoController;
+
+    @Mock
+    private ContactoService contactoService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void exportar_sinRolModerador_retorna403() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = contactoController.exportar(false, "3");
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(contactoService, never()).exportar(any());
+    }
+
+    @Test
+    void exportar_moderador_transmiteNdjson() throws Exception {
+        doAnswer(inv -> {
+            inv.getArgument(0, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(contactoService).exportar(any());
+
+        ResponseEntity<StreamingResponseBody> response = contactoController.exportar(false, "2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"id\":1}\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -3,15 +3,21 @@ package cl.condor.contacto_api.Service;
 import cl.condor.contacto_api.model.Contacto;
 import cl.condor.contacto_api.repository.ContactoRepository;
 import cl.condor.contacto_api.service.ContactoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,6 +32,12 @@ public class ContactoServiceTest {
     @Mock
     private ContactoRepository contactoRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     private Contacto contactoEjemplo;
     private final Integer VALID_ID = 1;
 
@@ -143,4 +155,19 @@ public class ContactoServiceTest {
         verify(contactoRepository, times(1)).findById(VALID_ID);
         verify(contactoRepository, never()).deleteById(anyInt());
     }
+
+    @Test
+    void exportar_escribeUnFormularioPorLinea() throws Exception {
+        when(contactoRepository.streamTodos()).thenReturn(Stream.of(contactoEjemplo));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long filas = contactoService.exportar(out);
+
+        String salida = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, filas);
+        assertTrue(salida.endsWith("\n"));
+        assertEquals("claudio@condor.cl", objectMapper.readValue(salida.trim(), Contacto.class).getCorreo());
+        verify(entityManager).detach(contactoEjemplo);
+        verify(contactoRepository, never()).findAll();
+    }
 }
@@ -0,0 +1,147 @@
+package cl.condor.iniciar_rutas_api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+// Descomprime los cuerpos enviados con Content-Encoding: gzip (lotes de puntos GPS desde el
+// movil). El tamano descomprimido se limita para que un cuerpo pequeno no se expanda sin control.
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    @Value("${http-server.gzip.max-descomprimido:16777216}")
+    private long maxDescomprimido;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Descomprimido descomprimido;
+        try {
+            descomprimido = new Descomprimido(request, maxDescomprimido);
+        } catch (IOException e) {
+            // Encabezado gzip invalido: es un error del cliente, no del servidor
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Cuerpo gzip invalido");
+            return;
+        }
+        chain.doFilter(descomprimido, response);
+    }
+
+    private static final class Descomprimido extends HttpServletRequestWrapper {
+
+        private final ServletInputStream entrada;
+
+        Descomprimido(HttpServletRequest request, long max) throws IOException {
+            super(request);
+            InputStream gzip = new GZIPInputStream(request.getInputStream());
+            this.entrada = new ServletInputStream() {
+                private long leidos;
+
+                @Override
+                public int read() throws IOException {
+                    int b = gzip.read();
+                    if (b >= 0) {
+                        contar(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buf, int off, int len) throws IOException {
+                    int n = gzip.read(buf, off, len);
+                    if (n > 0) {
+                        contar(n);
+                    }
+                    return n;
+                }
+
+                private void contar(int n) throws IOException {
+                    leidos += n;
+                    if (leidos > max) {
+                        throw new IOException("Cuerpo gzip excede " + max + " bytes descomprimido");
+                    }
+                }
+
+                @Override
+                public boolean isFinished() {
+                    try {
+                        return gzip.available() == 0;
+                    } catch (IOException e) {
+                        return true;
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Las lecturas bloquean sobre el cuerpo original (isReady siempre es true), asi que
+                // todo el cuerpo esta disponible de inmediato para el listener
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return entrada;
+        }
+
+        // El largo y la codificacion originales ya no describen el cuerpo que se entrega
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package cl.condor.iniciar_rutas_api.controller;
 
+import cl.condor.iniciar_rutas_api.dto.HistorialUsuario;
+import cl.condor.iniciar_rutas_api.dto.LecturaGps;
+import cl.condor.iniciar_rutas_api.dto.ResultadoPuntos;
+import cl.condor.iniciar_rutas_api.dto.ResumenUsuario;
 import cl.condor.iniciar_rutas_api.model.AbrirRuta;
+import cl.condor.iniciar_rutas_api.model.EventoRuta;
 import cl.condor.iniciar_rutas_api.service.AbrirRutaService;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(origins = "http://localhost:5173")
 @RestController
@@ -34,6 +48,30 @@ public class AbrirRutaController {
         return ResponseEntity.ok(lista);
     }
 
+    @Operation(
+            summary = "Exportar todos los recorridos en NDJSON",
+            description = """
+                    Escribe un recorrido por linea directo a la respuesta a medida que
+                    se lee de la base de datos, sin armar la lista completa en memoria.
+                    Con gzip=true la salida va comprimida (Content-Encoding: gzip).
+                    """
+    )
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody cuerpo = out -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(out, 8192) : out;
+            abrirRutaService.exportar(destino);
+            if (destino instanceof GZIPOutputStream comprimido) {
+                comprimido.finish();
+            }
+        };
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+
     @Operation(
             summary = "Funcion que trae una inicializacion de ruta por su id",
             description = """
@@ -69,5 +107,130 @@ public class AbrirRutaController {
         }
     }
 
-    
+    @Operation(
+            summary = "Funcion que entrega el resumen de rutas terminadas de un usuario",
+            description = """
+                    Entrega cuantos recorridos termino el usuario, cuantas rutas
+                    distintas, la ultima finalizacion y las veces por ruta, en
+                    una sola consulta. Un usuario sin recorridos viene en cero.
+                    """
+    )
+    @GetMapping("/usuario/{id}/resumen")
+    public ResponseEntity<ResumenUsuario> getResumenByIdUsuario(@PathVariable Integer id) {
+        return ResponseEntity.ok(abrirRutaService.findResumenByIdUsuario(id));
+    }
+
+    @Operation(
+            summary = "Funcion que pagina el historial de rutas de un usuario",
+            description = """
+                    Entrega los recorridos del usuario del mas nuevo al mas
+                    antiguo, 'limite' por pagina (por defecto 20, tope 100).
+                    Para la pagina siguiente se envia 'antesDe' con el valor
+                    'siguiente' de la respuesta. Con terminadas=true solo
+                    trae los recorridos terminados.
+                    """
+    )
+    @GetMapping("/usuario/{id}/historial")
+    public ResponseEntity<HistorialUsuario> getHistorialByIdUsuario(@PathVariable Integer id,
+                                                                    @RequestParam(required = false) Integer antesDe,
+                                                                    @RequestParam(required = false) Integer limite,
+                                                                    @RequestParam(defaultValue = "false") boolean terminadas) {
+        return ResponseEntity.ok(abrirRutaService.findHistorial(id, antesDe, limite, terminadas));
+    }
+
+    @Operation(
+            summary = "Funcion que inicia una ruta para un usuario",
+            description = """
+                    Registra el inicio de una ruta. Valida en paralelo que el
+                    usuario, la ruta y el estado existan en sus microservicios;
+                    si no responden dentro del plazo devuelve 503, y si responden
+                    con un error distinto de 404 devuelve 502 (503 si no estan disponibles).
+                    """
+    )
+    @PostMapping
+    public ResponseEntity<AbrirRuta> createAbrirRuta(@RequestBody AbrirRuta abrirRuta) {
+        try {
+            AbrirRuta creada = abrirRutaService.save(abrirRuta);
+            return ResponseEntity.status(HttpStatus.CREATED).body(creada);
+        } catch (WebClientRequestException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (WebClientResponseException e) {
+            // El 404 ya se tradujo a 'no existe'; cualquier otro error es del microservicio, no del request
+            HttpStatus estado = e.getStatusCode().value() == 503 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_GATEWAY;
+            return ResponseEntity.status(estado).build();
+        } catch (ResponseStatusException e) {
+            // Las validaciones remotas excedieron el plazo
+            return ResponseEntity.status(e.getStatusCode()).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+            summary = "Funcion que marca el fin de una ruta iniciada",
+            description = """
+                    Registra la fecha final del recorrido (la del ultimo punto GPS
+                    si hubo seguimiento) y su duracion. La primera vez que se
+                    termina publica un evento de ruta terminada para logros-api.
+                    """
+    )
+    @PatchMapping("/marcarFin/{id}")
+    public ResponseEntity<AbrirRuta> marcarFin(@PathVariable Integer id) {
+        try {
+            return ResponseEntity.ok(abrirRutaService.marcarFin(id));
+        } catch (WebClientRequestException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (RuntimeException e) {
+            if ("AbrirRuta no encontrada".equals(e.getMessage())) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Operation(
+            summary = "Funcion que registra un lote de puntos GPS de una ruta en curso",
+            description = """
+                    Recibe un arreglo de puntos {lat, lng, t} (t en milisegundos
+                    epoch), hasta 5000 por lote; el cuerpo puede enviarse con
+                    Content-Encoding: gzip (un gzip invalido responde 400). Suma
+                    la distancia real recorrida y descarta los puntos con t igual
+                    o anterior al ultimo aceptado, asi reenviar un lote es seguro;
+                    la respuesta informa cuantos se aceptaron y cuantos se
+                    descartaron (p. ej. un lote que llego tarde).
+                    """
+    )
+    @PostMapping("/{id}/puntos")
+    public ResponseEntity<ResultadoPuntos> registrarPuntos(@PathVariable Integer id, @RequestBody List<LecturaGps> puntos) {
+        try {
+            return ResponseEntity.ok(abrirRutaService.registrarPuntos(id, puntos));
+        } catch (RuntimeException e) {
+            if ("AbrirRuta no encontrada".equals(e.getMessage())) {
+                return ResponseEntity.notFound().build();
+            }
+            if ("AbrirRuta ya terminada".equals(e.getMessage())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            if ("Lote de puntos invalido".equals(e.getMessage())) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Operation(
+            summary = "Funcion que lista los eventos de rutas terminadas",
+            description = """
+                    Entrega los eventos con id mayor a 'desde', en orden, con
+                    un maximo de 'limite' (por defecto 100, tope 500). Lo usa
+                    logros-api para actualizar sus estadisticas sin recalcular.
+                    No entrega eventos que sigan a un id faltante reciente (una
+                    transaccion que aun no confirma), asi el cursor nunca lo salta.
+                    """
+    )
+    @GetMapping("/eventos")
+    public ResponseEntity<List<EventoRuta>> getEventos(@RequestParam(defaultValue = "0") Long desde,
+                                                       @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(abrirRutaService.findEventos(desde, limite));
+    }
 }
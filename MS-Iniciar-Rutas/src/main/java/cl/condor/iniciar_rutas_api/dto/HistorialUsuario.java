@@ -0,0 +1,18 @@
+package cl.condor.iniciar_rutas_api.dto;
+
+import cl.condor.iniciar_rutas_api.model.AbrirRuta;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Pagina del historial de un usuario, del recorrido mas nuevo al mas antiguo.
+// 'siguiente' se envia como 'antesDe' para pedir la pagina siguiente; null si no hay mas.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialUsuario {
+    private List<AbrirRuta> items;
+    private Integer siguiente;
+}
@@ -0,0 +1,15 @@
+package cl.condor.iniciar_rutas_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Punto GPS tal como lo envia el dispositivo: grados decimales y 't' en milisegundos epoch
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LecturaGps {
+    private Double lat;
+    private Double lng;
+    private Long t;
+}
@@ -0,0 +1,17 @@
+package cl.condor.iniciar_rutas_api.dto;
+
+import cl.condor.iniciar_rutas_api.model.AbrirRuta;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Respuesta de POST /{id}/puntos. 'descartados' son los puntos con 't' igual o anterior al ultimo
+// aceptado: un reenvio (inofensivo) o un lote que llego tarde, que el cliente puede querer notar.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoPuntos {
+    private AbrirRuta abrirRuta;
+    private Integer aceptados;
+    private Integer descartados;
+}
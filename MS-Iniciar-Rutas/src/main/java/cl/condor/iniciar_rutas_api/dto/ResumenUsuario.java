@@ -0,0 +1,22 @@
+package cl.condor.iniciar_rutas_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Agregados de los recorridos terminados de un usuario (lo que necesita logros-api).
+// Un usuario sin recorridos terminados tiene todo en cero y 'rutas' vacia.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenUsuario {
+    private Integer idUsuario;
+    // Recorridos terminados, contando cada vez que repitio una ruta
+    private Long rutasTerminadas;
+    private Integer rutasDistintas;
+    private LocalDateTime ultimaFinalizacion;
+    private List<RutaTerminada> rutas;
+}
@@ -0,0 +1,17 @@
+package cl.condor.iniciar_rutas_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Veces que un usuario termino una ruta y la ultima vez que lo hizo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RutaTerminada {
+    private Integer idRuta;
+    private Long veces;
+    private LocalDateTime ultimaFinalizacion;
+}
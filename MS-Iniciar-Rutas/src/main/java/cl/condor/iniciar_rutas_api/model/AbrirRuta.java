@@ -1,12 +1,18 @@
 package cl.condor.iniciar_rutas_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "abrir_ruta")
+@Table(name = "abrir_ruta", indexes = {
+        // Historial del usuario por keyset (InnoDB agrega la PK al final del indice)
+        @Index(name = "idx_abrir_ruta_usuario", columnList = "id_usuario"),
+        // Resumen de recorridos terminados: cubre el GROUP BY id_ruta sin leer la tabla
+        @Index(name = "idx_abrir_ruta_usuario_final", columnList = "id_usuario, f_final, id_ruta")
+})
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class AbrirRuta {
 
@@ -32,4 +38,28 @@ public class AbrirRuta {
 
     @Column(name = "id_estado")
     private Integer idEstado;
+
+    // Seguimiento en vivo (POST /{id}/puntos): distancia real recorrida, acumulada lote a lote
+    @Column(name = "distancia_metros")
+    private Double distanciaMetros;
+
+    @Column(name = "puntos_gps")
+    private Integer puntosGps;
+
+    // Se calcula al marcar el fin: f_final - f_inicio
+    @Column(name = "duracion_segundos")
+    private Long duracionSegundos;
+
+    // Ultimo punto aceptado; el siguiente lote sigue sumando desde aqui
+    @JsonIgnore
+    @Column(name = "ultima_lat")
+    private Double ultimaLat;
+
+    @JsonIgnore
+    @Column(name = "ultima_lng")
+    private Double ultimaLng;
+
+    @JsonIgnore
+    @Column(name = "ultimo_punto_ms")
+    private Long ultimoPuntoMs;
 }
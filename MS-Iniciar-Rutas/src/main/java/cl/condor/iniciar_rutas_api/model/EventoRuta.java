@@ -0,0 +1,34 @@
+package cl.condor.iniciar_rutas_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Outbox de rutas terminadas: marcarFin escribe el evento en la misma transaccion que
+// la fecha final, y logros-api lo consume por id creciente (GET /eventos?desde=).
+@Entity
+@Table(name = "evento_ruta", uniqueConstraints = {
+        // Cada recorrido se publica una sola vez como terminado
+        @UniqueConstraint(name = "uk_evento_ruta_abrir_ruta", columnNames = {"id_abrir_ruta"})
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class EventoRuta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_evento")
+    private Long idEvento;
+
+    @Column(name = "id_abrir_ruta", nullable = false)
+    private Integer idAbrirRuta;
+
+    @Column(name = "id_usuario", nullable = false)
+    private Integer idUsuario;
+
+    @Column(name = "id_ruta", nullable = false)
+    private Integer idRuta;
+
+    @Column(name = "f_evento", nullable = false)
+    private LocalDateTime fEvento;
+}
@@ -0,0 +1,37 @@
+package cl.condor.iniciar_rutas_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+// Punto GPS de un recorrido. La tabla es de solo insercion y se escribe por lotes con
+// PuntoGpsJdbcRepository; la PK (id_abrir_ruta, t_ms) agrupa los puntos de cada recorrido
+// en disco y hace idempotente el reenvio de un lote.
+@Entity
+@Table(name = "punto_gps")
+@IdClass(PuntoGps.Clave.class)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class PuntoGps {
+
+    @Id
+    @Column(name = "id_abrir_ruta")
+    private Integer idAbrirRuta;
+
+    // Instante del punto en milisegundos epoch (lo entrega el dispositivo)
+    @Id
+    @Column(name = "t_ms")
+    private Long tMs;
+
+    @Column(name = "lat", nullable = false)
+    private Double lat;
+
+    @Column(name = "lng", nullable = false)
+    private Double lng;
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private Integer idAbrirRuta;
+        private Long tMs;
+    }
+}
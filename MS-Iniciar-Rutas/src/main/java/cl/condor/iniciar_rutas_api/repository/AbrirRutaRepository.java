@@ -1,11 +1,48 @@
 package cl.condor.iniciar_rutas_api.repository;
+import cl.condor.iniciar_rutas_api.dto.RutaTerminada;
 import cl.condor.iniciar_rutas_api.model.AbrirRuta;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AbrirRutaRepository extends JpaRepository<AbrirRuta, Integer> {
     List<AbrirRuta> findAbrirRutaByIdUsuario(Integer id);
+
+    // SELECT ... FOR UPDATE: dos lotes del mismo recorrido se aplican uno tras otro
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AbrirRuta a WHERE a.id = :id")
+    Optional<AbrirRuta> findParaActualizar(@Param("id") Integer id);
+
+    // Recorridos terminados agrupados por ruta; se resuelve solo con idx_abrir_ruta_usuario_final
+    @Query("SELECT new cl.condor.iniciar_rutas_api.dto.RutaTerminada(a.idRuta, COUNT(a), MAX(a.fFinal)) "
+            + "FROM AbrirRuta a WHERE a.idUsuario = :idUsuario AND a.fFinal IS NOT NULL "
+            + "GROUP BY a.idRuta ORDER BY a.idRuta")
+    List<RutaTerminada> resumirTerminadasPorRuta(@Param("idUsuario") Integer idUsuario);
+
+    // Keyset sobre idx_abrir_ruta_usuario (id_usuario + PK): cada pagina cuesta lo mismo
+    @Query("SELECT a FROM AbrirRuta a WHERE a.idUsuario = :idUsuario AND a.id < :antesDe "
+            + "AND (:soloTerminadas = false OR a.fFinal IS NOT NULL) ORDER BY a.id DESC")
+    List<AbrirRuta> findHistorial(@Param("idUsuario") Integer idUsuario, @Param("antesDe") Integer antesDe,
+                                  @Param("soloTerminadas") boolean soloTerminadas, Pageable pageable);
+
+    // Exportacion: con Connector/J un fetch size de Integer.MIN_VALUE hace que el driver
+    // entregue las filas de a una en vez de cargar el resultado completo en memoria
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a FROM AbrirRuta a ORDER BY a.id")
+    Stream<AbrirRuta> streamTodos();
 }
@@ -0,0 +1,14 @@
+package cl.condor.iniciar_rutas_api.repository;
+
+import cl.condor.iniciar_rutas_api.model.EventoRuta;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EventoRutaRepository extends JpaRepository<EventoRuta, Long> {
+    // Lectura por cursor: eventos posteriores a 'desde' en orden de publicacion
+    List<EventoRuta> findByIdEventoGreaterThanOrderByIdEventoAsc(Long desde, Pageable pageable);
+}
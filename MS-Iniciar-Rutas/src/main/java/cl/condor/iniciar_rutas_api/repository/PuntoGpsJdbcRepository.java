@@ -0,0 +1,32 @@
+package cl.condor.iniciar_rutas_api.repository;
+
+import cl.condor.iniciar_rutas_api.dto.LecturaGps;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Escritura por lotes de punto_gps con JDBC: un solo batch por lote recibido, sin pasar
+// por el contexto de persistencia. INSERT IGNORE descarta un punto ya guardado (reenvio).
+@Repository
+public class PuntoGpsJdbcRepository {
+
+    private static final String INSERT_IGNORE =
+            "INSERT IGNORE INTO punto_gps (id_abrir_ruta, t_ms, lat, lng) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insertar(Integer idAbrirRuta, List<LecturaGps> puntos) {
+        if (puntos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_IGNORE, puntos, puntos.size(), (ps, punto) -> {
+            ps.setInt(1, idAbrirRuta);
+            ps.setLong(2, punto.getT());
+            ps.setDouble(3, punto.getLat());
+            ps.setDouble(4, punto.getLng());
+        });
+    }
+}
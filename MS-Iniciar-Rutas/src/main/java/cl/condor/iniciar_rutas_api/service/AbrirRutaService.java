@@ -1,23 +1,59 @@
 package cl.condor.iniciar_rutas_api.service;
 
+import cl.condor.iniciar_rutas_api.dto.HistorialUsuario;
+import cl.condor.iniciar_rutas_api.dto.LecturaGps;
+import cl.condor.iniciar_rutas_api.dto.ResultadoPuntos;
+import cl.condor.iniciar_rutas_api.dto.ResumenUsuario;
+import cl.condor.iniciar_rutas_api.dto.RutaTerminada;
 import cl.condor.iniciar_rutas_api.model.AbrirRuta;
+import cl.condor.iniciar_rutas_api.model.EventoRuta;
 import cl.condor.iniciar_rutas_api.repository.AbrirRutaRepository;
+import cl.condor.iniciar_rutas_api.repository.EventoRutaRepository;
+import cl.condor.iniciar_rutas_api.repository.PuntoGpsJdbcRepository;
 import cl.condor.iniciar_rutas_api.webclient.EstadoClient;
 import cl.condor.iniciar_rutas_api.webclient.RutaClient;
 import cl.condor.iniciar_rutas_api.webclient.UsuarioClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple3;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 
 public class AbrirRutaService {
+    private static final int LIMITE_EVENTOS_DEFECTO = 100;
+    private static final int LIMITE_EVENTOS_MAXIMO = 500;
+    private static final int LIMITE_HISTORIAL_DEFECTO = 20;
+    private static final int LIMITE_HISTORIAL_MAXIMO = 100;
+    private static final int LIMITE_PUNTOS_LOTE = 5000;
+    private static final double RADIO_TIERRA_METROS = 6_371_008.8;
+
     @Autowired
     private AbrirRutaRepository abrirRutaRepository;
+    @Autowired
+    private EventoRutaRepository eventoRutaRepository;
+    @Autowired
+    private PuntoGpsJdbcRepository puntoGpsJdbcRepository;
     //para posibilitar los clientes que otorgarán su fk mediante el webclient
     @Autowired
     private EstadoClient estadoClient;
@@ -25,11 +61,40 @@ public class AbrirRutaService {
     private RutaClient rutaClient;
     @Autowired
     private UsuarioClient usuarioClient;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${abrir-ruta.validacion.plazo:PT3S}")
+    private Duration plazoValidacion = Duration.ofSeconds(3);
+
+    @Value("${abrir-ruta.eventos.gracia:PT30S}")
+    private Duration graciaEventos = Duration.ofSeconds(30);
 
     public List<AbrirRuta> findAll() {
         return abrirRutaRepository.findAll();
     }
 
+    // Escribe todos los recorridos como NDJSON (un objeto por linea) mientras se leen del cursor;
+    // cada entidad se suelta del contexto al escribirla para que la memoria no crezca con la tabla
+    @Transactional(readOnly = true)
+    public long exportar(OutputStream out) throws IOException {
+        long filas = 0;
+        try (Stream<AbrirRuta> stream = abrirRutaRepository.streamTodos()) {
+            Iterator<AbrirRuta> it = stream.iterator();
+            while (it.hasNext()) {
+                AbrirRuta abrirRuta = it.next();
+                out.write(objectMapper.writeValueAsBytes(abrirRuta));
+                out.write('\n');
+                entityManager.detach(abrirRuta);
+                filas++;
+            }
+        }
+        out.flush();
+        return filas;
+    }
+
     public AbrirRuta findById(Integer id) {
         return abrirRutaRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("AbrirRuta no encontrada"));
@@ -46,31 +111,175 @@ public class AbrirRutaService {
         return rutas;
     }
 
+    // Agregados de los recorridos terminados en una sola consulta agrupada por ruta
+    @Transactional(readOnly = true)
+    public ResumenUsuario findResumenByIdUsuario(Integer idUsuario) {
+        List<RutaTerminada> rutas = abrirRutaRepository.resumirTerminadasPorRuta(idUsuario);
+        long terminadas = 0;
+        LocalDateTime ultima = null;
+        for (RutaTerminada ruta : rutas) {
+            terminadas += ruta.getVeces();
+            if (ultima == null || ruta.getUltimaFinalizacion().isAfter(ultima)) {
+                ultima = ruta.getUltimaFinalizacion();
+            }
+        }
+        return new ResumenUsuario(idUsuario, terminadas, rutas.size(), ultima, rutas);
+    }
+
+    // Historial del mas nuevo al mas antiguo; 'antesDe' es el 'siguiente' de la pagina anterior
+    @Transactional(readOnly = true)
+    public HistorialUsuario findHistorial(Integer idUsuario, Integer antesDe, Integer limite, boolean soloTerminadas) {
+        int cursor = antesDe == null || antesDe <= 0 ? Integer.MAX_VALUE : antesDe;
+        int tamano = limite == null || limite <= 0 ? LIMITE_HISTORIAL_DEFECTO : Math.min(limite, LIMITE_HISTORIAL_MAXIMO);
+        List<AbrirRuta> items = abrirRutaRepository.findHistorial(idUsuario, cursor, soloTerminadas, PageRequest.of(0, tamano));
+        Integer siguiente = items.size() == tamano ? items.get(items.size() - 1).getId() : null;
+        return new HistorialUsuario(items, siguiente);
+    }
+
     // AbrirRuta depende de muchas tablas para crearla
     // Un total de 3 tablas/clases instanciadas y mapeadas
     public AbrirRuta save(AbrirRuta abrirRuta) {
-        // mapeando los string para traer sus id a partir de web client
-        // dichos campos a rellenar ya se declararon previamente en el model
-
-        Map<String, Object> usuario = usuarioClient.getUsuarioById(abrirRuta.getIdUsuario());
-        Map<String, Object> ruta = rutaClient.getRutaById(abrirRuta.getIdRuta());
-        Map<String, Object> estado = estadoClient.getEstadosById(abrirRuta.getIdEstado());
+        // Las tres validaciones van en paralelo contra los endpoints /existe (no se traen
+        // las entidades): el inicio cuesta la latencia del servicio mas lento, no la suma,
+        // y nunca mas que 'plazoValidacion'
+        Tuple3<Boolean, Boolean, Boolean> existen = Mono.zip(
+                        usuarioClient.existe(abrirRuta.getIdUsuario()),
+                        rutaClient.existe(abrirRuta.getIdRuta()),
+                        estadoClient.existe(abrirRuta.getIdEstado()))
+                .timeout(plazoValidacion, Mono.error(() -> new ResponseStatusException(
+                        HttpStatus.SERVICE_UNAVAILABLE, "Validacion de usuario, ruta y estado excedio el plazo")))
+                .block();
 
-        if (usuario == null || usuario.isEmpty()) throw new RuntimeException("Usuario no encontrado");
-        if (ruta == null ||  ruta.isEmpty()) throw new RuntimeException("Ruta no encontrada");
-        if (estado == null || estado.isEmpty()) throw new RuntimeException("Estado no encontrada");
+        if (!existen.getT1()) throw new RuntimeException("Usuario no encontrado");
+        if (!existen.getT2()) throw new RuntimeException("Ruta no encontrada");
+        if (!existen.getT3()) throw new RuntimeException("Estado no encontrada");
 
         return abrirRutaRepository.save(abrirRuta);
 
     }
 
 
-    // a futuro se tiene que corregir
-    // puesto que es un valor que depende de lo que el usuario ingrese en el aplicativo movil
+    // Agrega un lote de puntos GPS a un recorrido en curso y suma la distancia desde el ultimo
+    // punto aceptado (O(lote), sin releer los puntos anteriores). Los puntos con 't' igual o
+    // anterior al ultimo aceptado se descartan (un lote reenviado no suma dos veces) y se informan.
+    public ResultadoPuntos registrarPuntos(Integer id, List<LecturaGps> puntos) {
+        if (puntos == null || puntos.isEmpty() || puntos.size() > LIMITE_PUNTOS_LOTE) {
+            throw new RuntimeException("Lote de puntos invalido");
+        }
+        for (LecturaGps punto : puntos) {
+            if (punto == null || punto.getT() == null || punto.getLat() == null || punto.getLng() == null
+                    || Math.abs(punto.getLat()) > 90 || Math.abs(punto.getLng()) > 180) {
+                throw new RuntimeException("Lote de puntos invalido");
+            }
+        }
+        AbrirRuta abrirRuta = abrirRutaRepository.findParaActualizar(id)
+                .orElseThrow(() -> new RuntimeException("AbrirRuta no encontrada"));
+        if (abrirRuta.getFFinal() != null) {
+            throw new RuntimeException("AbrirRuta ya terminada");
+        }
+
+        List<LecturaGps> ordenados = new ArrayList<>(puntos);
+        ordenados.sort(Comparator.comparing(LecturaGps::getT));
+
+        double distancia = abrirRuta.getDistanciaMetros() == null ? 0 : abrirRuta.getDistanciaMetros();
+        Long ultimoMs = abrirRuta.getUltimoPuntoMs();
+        Double lat = abrirRuta.getUltimaLat();
+        Double lng = abrirRuta.getUltimaLng();
+        List<LecturaGps> aceptados = new ArrayList<>(ordenados.size());
+        for (LecturaGps punto : ordenados) {
+            if (ultimoMs != null && punto.getT() <= ultimoMs) {
+                continue;
+            }
+            if (lat != null) {
+                distancia += haversineMetros(lat, lng, punto.getLat(), punto.getLng());
+            }
+            lat = punto.getLat();
+            lng = punto.getLng();
+            ultimoMs = punto.getT();
+            aceptados.add(punto);
+        }
+        int descartados = puntos.size() - aceptados.size();
+        if (aceptados.isEmpty()) {
+            return new ResultadoPuntos(abrirRuta, 0, descartados);
+        }
+
+        puntoGpsJdbcRepository.insertar(id, aceptados);
+        abrirRuta.setDistanciaMetros(distancia);
+        abrirRuta.setPuntosGps((abrirRuta.getPuntosGps() == null ? 0 : abrirRuta.getPuntosGps()) + aceptados.size());
+        abrirRuta.setUltimaLat(lat);
+        abrirRuta.setUltimaLng(lng);
+        abrirRuta.setUltimoPuntoMs(ultimoMs);
+        return new ResultadoPuntos(abrirRutaRepository.save(abrirRuta), aceptados.size(), descartados);
+    }
+
+    // Con seguimiento GPS el recorrido termina en su ultimo punto (acotado entre el inicio y
+    // ahora, por si el reloj del dispositivo esta desfasado); sin puntos se usa la hora actual.
     public AbrirRuta marcarFin(Integer id) {
-        AbrirRuta abrirRuta = abrirRutaRepository.findById(id)
+        AbrirRuta abrirRuta = abrirRutaRepository.findParaActualizar(id)
                 .orElseThrow(() -> new RuntimeException("AbrirRuta no encontrada"));
-        abrirRuta.setFFinal(java.time.LocalDateTime.now());
-        return abrirRutaRepository.save(abrirRuta); // UPDATE
+        boolean recienTerminada = abrirRuta.getFFinal() == null;
+        LocalDateTime ahora = LocalDateTime.now();
+        if (recienTerminada) {
+            LocalDateTime fin = ahora;
+            if (abrirRuta.getUltimoPuntoMs() != null) {
+                LocalDateTime ultimoPunto = LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(abrirRuta.getUltimoPuntoMs()), ZoneId.systemDefault());
+                if (ultimoPunto.isBefore(fin)) {
+                    fin = ultimoPunto;
+                }
+                if (abrirRuta.getFInicio() != null && fin.isBefore(abrirRuta.getFInicio())) {
+                    fin = abrirRuta.getFInicio();
+                }
+            }
+            abrirRuta.setFFinal(fin);
+            if (abrirRuta.getFInicio() != null) {
+                abrirRuta.setDuracionSegundos(Duration.between(abrirRuta.getFInicio(), fin).getSeconds());
+            }
+        }
+        AbrirRuta guardada = abrirRutaRepository.save(abrirRuta); // UPDATE
+
+        // Outbox: solo la primera vez que se termina, en la misma transaccion que el UPDATE
+        if (recienTerminada) {
+            eventoRutaRepository.save(EventoRuta.builder()
+                    .idAbrirRuta(guardada.getId())
+                    .idUsuario(guardada.getIdUsuario())
+                    .idRuta(guardada.getIdRuta())
+                    .fEvento(ahora)
+                    .build());
+        }
+        return guardada;
+    }
+
+    // Distancia sobre la esfera entre dos puntos en grados decimales
+    private static double haversineMetros(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * RADIO_TIERRA_METROS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Eventos de ruta terminada con id mayor a 'desde', para el consumo incremental de logros-api.
+    // El id AUTO_INCREMENT se asigna al insertar y no al hacer commit: un hueco en la secuencia puede
+    // ser una transaccion que aun no confirma, y si se entregara lo que viene despues logros-api
+    // moveria su cursor por encima de ella para siempre. Por eso la respuesta se corta antes del
+    // primer hueco mientras el evento siguiente sea mas nuevo que 'graciaEventos'; pasado ese
+    // plazo el hueco se da por un rollback y se salta.
+    @Transactional(readOnly = true)
+    public List<EventoRuta> findEventos(Long desde, Integer limite) {
+        long cursor = desde == null || desde < 0 ? 0 : desde;
+        int tamano = limite == null || limite <= 0 ? LIMITE_EVENTOS_DEFECTO : Math.min(limite, LIMITE_EVENTOS_MAXIMO);
+        List<EventoRuta> eventos = eventoRutaRepository.findByIdEventoGreaterThanOrderByIdEventoAsc(cursor, PageRequest.of(0, tamano));
+
+        LocalDateTime huecoConfirmado = LocalDateTime.now().minus(graciaEventos);
+        long esperado = cursor + 1;
+        for (int i = 0; i < eventos.size(); i++) {
+            EventoRuta evento = eventos.get(i);
+            if (evento.getIdEvento() != esperado && evento.getFEvento().isAfter(huecoConfirmado)) {
+                return eventos.subList(0, i);
+            }
+            esperado = evento.getIdEvento() + 1;
+        }
+        return eventos;
     }
 }
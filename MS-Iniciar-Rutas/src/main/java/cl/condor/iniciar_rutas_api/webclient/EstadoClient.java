@@ -3,30 +3,28 @@ package cl.condor.iniciar_rutas_api.webclient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
-import java.util.Map;
 
 @Component
 public class EstadoClient {
 
     private final WebClient webClient;
 
-    public EstadoClient(@Value("${estado-service.url}") String estadoServiceURL){
-        this.webClient = WebClient.builder()
+    public EstadoClient(WebClient.Builder webClientBuilder, @Value("${estado-service.url}") String estadoServiceURL){
+        this.webClient = webClientBuilder
                 .baseUrl(estadoServiceURL)
                 .build();
     }
 
-    public Map<String, Object> getEstadosById(Integer id){
+    // GET /estados/{id}/existe: 200/204 = existe, 404 = no existe. No trae la entidad.
+    public Mono<Boolean> existe(Integer id) {
         return this.webClient.get()
-                .uri("/{id}",id)
+                .uri("/{id}/existe", id)
                 .retrieve()
-                .onStatus(
-                        status ->status.is4xxClientError(),
-                        response ->response.bodyToMono(String.class)
-                                .map(body -> new RuntimeException("Estado no encontrado"))
-                )
-                .bodyToMono(Map.class)
-                .block();
+                .toBodilessEntity()
+                .map(respuesta -> true)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(false));
     }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package cl.condor.iniciar_rutas_api.Config;
+
+import cl.condor.iniciar_rutas_api.config.GzipRequestFilter;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GzipRequestFilterTest {
+
+    private GzipRequestFilter filtro;
+
+    @BeforeEach
+    void setUp() {
+        filtro = new GzipRequestFilter();
+        ReflectionTestUtils.setField(filtro, "maxDescomprimido", 1024L);
+    }
+
+    private static byte[] gzip(String texto) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(salida)) {
+            gz.write(texto.getBytes(StandardCharsets.UTF_8));
+        }
+        return salida.toByteArray();
+    }
+
+    private HttpServletRequest filtrar(MockHttpServletRequest request) throws Exception {
+        return filtrar(request, new MockHttpServletResponse());
+    }
+
+    private HttpServletRequest filtrar(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        MockFilterChain cadena = new MockFilterChain();
+        filtro.doFilter(request, response, cadena);
+        return (HttpServletRequest) cadena.getRequest();
+    }
+
+    @Test
+    void cuerpoGzip_seEntregaDescomprimido() throws Exception {
+        String json = "[{\"lat\":-33.45,\"lng\":-70.66,\"t\":1}]";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/abrir-ruta/1/puntos");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(gzip(json));
+
+        HttpServletRequest filtrado = filtrar(request);
+
+        assertEquals(json, new String(filtrado.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(filtrado.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    void cuerpoSinGzip_pasaIntacto() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/abrir-ruta/1/puntos");
+        request.setContent("[]".getBytes(StandardCharsets.UTF_8));
+
+        assertSame(request, filtrar(request));
+    }
+
+    @Test
+    void cuerpoGzip_excedeElTope_falla() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/abrir-ruta/1/puntos");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(gzip("x".repeat(4096)));
+
+        HttpServletRequest filtrado = filtrar(request);
+
+        assertThrows(IOException.class, () -> filtrado.getInputStream().readAllBytes());
+    }
+
+    @Test
+    void cuerpoGzipInvalido_responde400SinLlegarAlControlador() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/abrir-ruta/1/puntos");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent("no es gzip".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(filtrar(request, response));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    void readListener_recibeElCuerpoCompleto() throws Exception {
+        String json = "[{\"lat\":-33.45,\"lng\":-70.66,\"t\":1}]";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/abrir-ruta/1/puntos");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(gzip(json));
+        ServletInputStream entrada = filtrar(request).getInputStream();
+        ByteArrayOutputStream leido = new ByteArrayOutputStream();
+        boolean[] fin = {false};
+
+        entrada.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buf = new byte[8];
+                int n;
+                while (entrada.isReady() && (n = entrada.read(buf)) != -1) {
+                    leido.write(buf, 0, n);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                fin[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+        });
+
+        assertTrue(fin[0]);
+        assertEquals(json, leido.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -11,13 +11,22 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -177,6 +186,36 @@ public class AbrirRutaControllerTest {
         verify(abrirRutaService, times(1)).save(rutaEjemplo);
     }
 
+    @Test
+    void createAbrirRuta_validacionExcedePlazo_retornaServiceUnavailable() {
+        when(abrirRutaService.save(any(AbrirRuta.class)))
+                .thenThrow(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "plazo"));
+
+        ResponseEntity<AbrirRuta> response = abrirRutaController.createAbrirRuta(rutaEjemplo);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void createAbrirRuta_microservicioResponde500_retornaBadGateway() {
+        when(abrirRutaService.save(any(AbrirRuta.class)))
+                .thenThrow(WebClientResponseException.create(500, "Internal Server Error", HttpHeaders.EMPTY, new byte[0], null));
+
+        ResponseEntity<AbrirRuta> response = abrirRutaController.createAbrirRuta(rutaEjemplo);
+
+        assertEquals(HttpStatus.BAD_GATEWAY, response.getStatusCode());
+    }
+
+    @Test
+    void createAbrirRuta_microservicioResponde503_retornaServiceUnavailable() {
+        when(abrirRutaService.save(any(AbrirRuta.class)))
+                .thenThrow(WebClientResponseException.create(503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null));
+
+        ResponseEntity<AbrirRuta> response = abrirRutaController.createAbrirRuta(rutaEjemplo);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
     // ==========================================
     // Tests para PATCH /api/v1/abrir-ruta/marcarFin/{id}
     // ==========================================
@@ -240,4 +279,42 @@ public class AbrirRutaControllerTest {
         assertNull(response.getBody());
         verify(abrirRutaService, times(1)).marcarFin(VALID_ID);
     }
+
+    // ==========================================
+    // Tests para GET /api/v1/abrir-ruta/exportar
+    // ==========================================
+
+    @Test
+    void exportar_sinGzip_escribeNdjsonPlano() throws Exception {
+        doAnswer(inv -> {
+            inv.getArgument(0, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(abrirRutaService).exportar(any());
+
+        ResponseEntity<StreamingResponseBody> response = abrirRutaController.exportar(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"id\":1}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportar_conGzip_comprimeLaSalida() throws Exception {
+        doAnswer(inv -> {
+            inv.getArgument(0, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(abrirRutaService).exportar(any());
+
+        ResponseEntity<StreamingResponseBody> response = abrirRutaController.exportar(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("{\"id\":1}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
 }
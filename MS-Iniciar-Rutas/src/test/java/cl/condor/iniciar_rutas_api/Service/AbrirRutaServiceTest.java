@@ -1,22 +1,44 @@
 package cl.condor.iniciar_rutas_api.Service;
 
+import cl.condor.iniciar_rutas_api.dto.HistorialUsuario;
+import cl.condor.iniciar_rutas_api.dto.LecturaGps;
+import cl.condor.iniciar_rutas_api.dto.ResultadoPuntos;
+import cl.condor.iniciar_rutas_api.dto.ResumenUsuario;
+import cl.condor.iniciar_rutas_api.dto.RutaTerminada;
 import cl.condor.iniciar_rutas_api.model.AbrirRuta;
+import cl.condor.iniciar_rutas_api.model.EventoRuta;
 import cl.condor.iniciar_rutas_api.repository.AbrirRutaRepository;
+import cl.condor.iniciar_rutas_api.repository.EventoRutaRepository;
+import cl.condor.iniciar_rutas_api.repository.PuntoGpsJdbcRepository;
 import cl.condor.iniciar_rutas_api.service.AbrirRutaService;
 import cl.condor.iniciar_rutas_api.webclient.EstadoClient;
 import cl.condor.iniciar_rutas_api.webclient.RutaClient;
 import cl.condor.iniciar_rutas_api.webclient.UsuarioClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +51,10 @@ public class AbrirRutaServiceTest {
     // Repositorio
     @Mock
     private AbrirRutaRepository abrirRutaRepository;
+    @Mock
+    private EventoRutaRepository eventoRutaRepository;
+    @Mock
+    private PuntoGpsJdbcRepository puntoGpsJdbcRepository;
 
     // WebClients
     @Mock
@@ -38,17 +64,17 @@ public class AbrirRutaServiceTest {
     @Mock
     private EstadoClient estadoClient;
 
+    @Mock
+    private EntityManager entityManager;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
     private AbrirRuta rutaValida;
     private final Integer VALID_ID = 1;
     private final Integer VALID_USER_ID = 10;
     private final Integer VALID_RUTA_ID = 50;
     private final Integer VALID_ESTADO_ID = 1;
 
-    // Mapa simulado que devuelven los WebClients al encontrar un recurso
-    private final Map<String, Object> VALID_EXTERNAL_RESPONSE = Map.of("id", VALID_ID, "nombre", "Test");
-    private final Map<String, Object> EMPTY_EXTERNAL_RESPONSE = Collections.emptyMap();
-
-
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -136,34 +162,30 @@ public class AbrirRutaServiceTest {
     // Tests para save(abrirRuta) - CON VALIDACIONES REMOTAS
     // ==========================================
 
-    private void simularClientesValidos() {
-        // Simular que los 3 clientes remotos responden exitosamente
-        when(usuarioClient.getUsuarioById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
-        when(rutaClient.getRutaById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
-        when(estadoClient.getEstadosById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
+    private void simularClientes(boolean usuario, boolean ruta, boolean estado) {
+        when(usuarioClient.existe(anyInt())).thenReturn(Mono.just(usuario));
+        when(rutaClient.existe(anyInt())).thenReturn(Mono.just(ruta));
+        when(estadoClient.existe(anyInt())).thenReturn(Mono.just(estado));
     }
 
     @Test
     void save_todoValido_guardaRuta() {
-        simularClientesValidos();
+        simularClientes(true, true, true);
         // Simular que el repositorio guarda y devuelve la entidad
         when(abrirRutaRepository.save(any(AbrirRuta.class))).thenReturn(rutaValida);
 
         AbrirRuta resultado = abrirRutaService.save(rutaValida);
 
         assertNotNull(resultado);
-        verify(usuarioClient, times(1)).getUsuarioById(VALID_USER_ID);
-        verify(rutaClient, times(1)).getRutaById(VALID_RUTA_ID);
-        verify(estadoClient, times(1)).getEstadosById(VALID_ESTADO_ID);
+        verify(usuarioClient, times(1)).existe(VALID_USER_ID);
+        verify(rutaClient, times(1)).existe(VALID_RUTA_ID);
+        verify(estadoClient, times(1)).existe(VALID_ESTADO_ID);
         verify(abrirRutaRepository, times(1)).save(rutaValida);
     }
 
     @Test
     void save_usuarioNoEncontrado_lanzaExcepcion() {
-        // Simular: Usuario no encontrado
-        when(usuarioClient.getUsuarioById(anyInt())).thenReturn(EMPTY_EXTERNAL_RESPONSE);
-        when(rutaClient.getRutaById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
-        when(estadoClient.getEstadosById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
+        simularClientes(false, true, true);
 
         RuntimeException excepcion = assertThrows(RuntimeException.class, () -> {
             abrirRutaService.save(rutaValida);
@@ -171,18 +193,15 @@ public class AbrirRutaServiceTest {
 
         assertEquals("Usuario no encontrado", excepcion.getMessage());
         verify(abrirRutaRepository, never()).save(any());
-        // Ruta y Estado sí fueron llamados antes de la validación del usuario
-        verify(usuarioClient, times(1)).getUsuarioById(VALID_USER_ID);
-        verify(rutaClient, times(1)).getRutaById(VALID_RUTA_ID);
-        verify(estadoClient, times(1)).getEstadosById(VALID_ESTADO_ID);
+        // Las tres validaciones se lanzan juntas, antes de revisar los resultados
+        verify(usuarioClient, times(1)).existe(VALID_USER_ID);
+        verify(rutaClient, times(1)).existe(VALID_RUTA_ID);
+        verify(estadoClient, times(1)).existe(VALID_ESTADO_ID);
     }
 
     @Test
     void save_rutaNoEncontrada_lanzaExcepcion() {
-        // Simular: Ruta no encontrada (nota: el cliente debe devolver Map vacío/nulo si es 404)
-        when(usuarioClient.getUsuarioById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
-        when(rutaClient.getRutaById(anyInt())).thenReturn(EMPTY_EXTERNAL_RESPONSE); // Ruta falla
-        when(estadoClient.getEstadosById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
+        simularClientes(true, false, true);
 
         RuntimeException excepcion = assertThrows(RuntimeException.class, () -> {
             abrirRutaService.save(rutaValida);
@@ -192,6 +211,45 @@ public class AbrirRutaServiceTest {
         verify(abrirRutaRepository, never()).save(any());
     }
 
+    @Test
+    void save_validacionesEnParalelo_lasTresSeSuscribenAntesDeResponder() {
+        // Ninguna validacion responde hasta que las tres estan suscritas: si se lanzaran una
+        // tras otra la primera nunca emitiria y save terminaria por plazo con 503
+        ReflectionTestUtils.setField(abrirRutaService, "plazoValidacion", Duration.ofSeconds(1));
+        Sinks.One<Boolean> liberar = Sinks.one();
+        AtomicInteger suscritas = new AtomicInteger();
+        Mono<Boolean> validacion = Mono.defer(() -> {
+            if (suscritas.incrementAndGet() == 3) {
+                liberar.tryEmitValue(true);
+            }
+            return liberar.asMono();
+        });
+        when(usuarioClient.existe(anyInt())).thenReturn(validacion);
+        when(rutaClient.existe(anyInt())).thenReturn(validacion);
+        when(estadoClient.existe(anyInt())).thenReturn(validacion);
+        when(abrirRutaRepository.save(any(AbrirRuta.class))).thenReturn(rutaValida);
+
+        abrirRutaService.save(rutaValida);
+
+        assertEquals(3, suscritas.get());
+        verify(abrirRutaRepository).save(rutaValida);
+    }
+
+    @Test
+    void save_servicioNoResponde_excedePlazoConServiceUnavailable() {
+        ReflectionTestUtils.setField(abrirRutaService, "plazoValidacion", Duration.ofMillis(100));
+        when(usuarioClient.existe(anyInt())).thenReturn(Mono.just(true));
+        when(rutaClient.existe(anyInt())).thenReturn(Mono.never());
+        when(estadoClient.existe(anyInt())).thenReturn(Mono.just(true));
+
+        ResponseStatusException excepcion = assertThrows(ResponseStatusException.class, () -> {
+            abrirRutaService.save(rutaValida);
+        });
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, excepcion.getStatusCode());
+        verify(abrirRutaRepository, never()).save(any());
+    }
+
     // ==========================================
     // Tests para marcarFin(id)
     // ==========================================
@@ -200,7 +258,7 @@ public class AbrirRutaServiceTest {
     void marcarFin_existe_actualizaFechaYGuarda() {
         // Preparar una ruta sin fecha final
         AbrirRuta rutaSinFin = AbrirRuta.builder().id(VALID_ID).fFinal(null).build();
-        when(abrirRutaRepository.findById(VALID_ID)).thenReturn(Optional.of(rutaSinFin));
+        when(abrirRutaRepository.findParaActualizar(VALID_ID)).thenReturn(Optional.of(rutaSinFin));
 
         // Simular el guardado: el repositorio devuelve el objeto modificado
         when(abrirRutaRepository.save(any(AbrirRuta.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -213,9 +271,71 @@ public class AbrirRutaServiceTest {
         verify(abrirRutaRepository, times(1)).save(resultado);
     }
 
+    @Test
+    void marcarFin_primeraVez_publicaEventoEnOutbox() {
+        when(abrirRutaRepository.findParaActualizar(VALID_ID)).thenReturn(Optional.of(rutaValida));
+        when(abrirRutaRepository.save(any(AbrirRuta.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        abrirRutaService.marcarFin(VALID_ID);
+
+        verify(eventoRutaRepository, times(1)).save(argThat(e ->
+                e.getIdAbrirRuta().equals(VALID_ID)
+                        && e.getIdUsuario().equals(VALID_USER_ID)
+                        && e.getIdRuta().equals(VALID_RUTA_ID)
+                        && e.getFEvento().equals(rutaValida.getFFinal())));
+    }
+
+    @Test
+    void marcarFin_yaTerminada_noPublicaOtroEvento() {
+        rutaValida.setFFinal(LocalDateTime.of(2025, 1, 1, 12, 0));
+        when(abrirRutaRepository.findParaActualizar(VALID_ID)).thenReturn(Optional.of(rutaValida));
+        when(abrirRutaRepository.save(any(AbrirRuta.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        abrirRutaService.marcarFin(VALID_ID);
+
+        verify(eventoRutaRepository, never()).save(any(EventoRuta.class));
+    }
+
+    @Test
+    void findEventos_limiteExcesivo_seAcotaAlMaximo() {
+        when(eventoRutaRepository.findByIdEventoGreaterThanOrderByIdEventoAsc(eq(5L), any())).thenReturn(List.of());
+
+        abrirRutaService.findEventos(5L, 10_000);
+
+        verify(eventoRutaRepository).findByIdEventoGreaterThanOrderByIdEventoAsc(eq(5L),
+                argThat(p -> p.getPageSize() == 500));
+    }
+
+    private EventoRuta evento(long id, LocalDateTime fecha) {
+        return EventoRuta.builder().idEvento(id).idAbrirRuta((int) id).idUsuario(1).idRuta(2).fEvento(fecha).build();
+    }
+
+    @Test
+    void findEventos_huecoReciente_cortaAntesDelHueco() {
+        LocalDateTime ahora = LocalDateTime.now();
+        // El evento 7 puede ser una transaccion sin confirmar: no se entrega nada despues de el
+        when(eventoRutaRepository.findByIdEventoGreaterThanOrderByIdEventoAsc(eq(5L), any())).thenReturn(List.of(
+                evento(6, ahora), evento(8, ahora), evento(9, ahora)));
+
+        List<EventoRuta> eventos = abrirRutaService.findEventos(5L, 100);
+
+        assertEquals(List.of(6L), eventos.stream().map(EventoRuta::getIdEvento).toList());
+    }
+
+    @Test
+    void findEventos_huecoAntiguo_seTomaComoRollbackYSeSalta() {
+        LocalDateTime antes = LocalDateTime.now().minusMinutes(5);
+        when(eventoRutaRepository.findByIdEventoGreaterThanOrderByIdEventoAsc(eq(5L), any())).thenReturn(List.of(
+                evento(6, antes), evento(8, antes), evento(9, LocalDateTime.now())));
+
+        List<EventoRuta> eventos = abrirRutaService.findEventos(5L, 100);
+
+        assertEquals(List.of(6L, 8L, 9L), eventos.stream().map(EventoRuta::getIdEvento).toList());
+    }
+
     @Test
     void marcarFin_noExiste_lanzaExcepcion() {
-        when(abrirRutaRepository.findById(VALID_ID)).thenReturn(Optional.empty());
+        when(abrirRutaRepository.findParaActualizar(VALID_ID)).thenReturn(Optional.empty());
 
         RuntimeException excepcion = assertThrows(RuntimeException.class, () -> {
             abrirRutaService.marcarFin(VALID_ID);
@@ -224,4 +344,180 @@ public class AbrirRutaServiceTest {
         assertEquals("AbrirRuta no encontrada", excepcion.getMessage());
         verify(abrirRutaRepository, never()).save(any());
     }
+
+    @Test
+    void findResumenByIdUsuario_sumaLasRutasAgrupadas() {
+        LocalDateTime antes = LocalDateTime.now().minusDays(3);
+        LocalDateTime despues = LocalDateTime.now();
+        when(abrirRutaRepository.resumirTerminadasPorRuta(VALID_USER_ID)).thenReturn(List.of(
+                new RutaTerminada(50, 2L, despues),
+                new RutaTerminada(51, 1L, antes)));
+
+        ResumenUsuario resumen = abrirRutaService.findResumenByIdUsuario(VALID_USER_ID);
+
+        assertEquals(3L, resumen.getRutasTerminadas());
+        assertEquals(2, resumen.getRutasDistintas());
+        assertEquals(despues, resumen.getUltimaFinalizacion());
+        verify(abrirRutaRepository, never()).findAbrirRutaByIdUsuario(any());
+    }
+
+    @Test
+    void findResumenByIdUsuario_sinRecorridos_retornaCeros() {
+        when(abrirRutaRepository.resumirTerminadasPorRuta(VALID_USER_ID)).thenReturn(List.of());
+
+        ResumenUsuario resumen = abrirRutaService.findResumenByIdUsuario(VALID_USER_ID);
+
+        assertEquals(0L, resumen.getRutasTerminadas());
+        assertEquals(0, resumen.getRutasDistintas());
+        assertNull(resumen.getUltimaFinalizacion());
+    }
+
+    @Test
+    void findHistorial_paginaLlena_entregaCursorSiguiente() {
+        AbrirRuta nueva = AbrirRuta.builder().id(9).idUsuario(VALID_USER_ID).build();
+        AbrirRuta vieja = AbrirRuta.builder().id(4).idUsuario(VALID_USER_ID).build();
+        when(abrirRutaRepository.findHistorial(eq(VALID_USER_ID), eq(Integer.MAX_VALUE), eq(false), any()))
+                .thenReturn(List.of(nueva, vieja));
+
+        HistorialUsuario pagina = abrirRutaService.findHistorial(VALID_USER_ID, null, 2, false);
+
+        assertEquals(2, pagina.getItems().size());
+        assertEquals(4, pagina.getSiguiente());
+    }
+
+    @Test
+    void findHistorial_ultimaPagina_sinCursor() {
+        when(abrirRutaRepository.findHistorial(eq(VALID_USER_ID), eq(4), eq(true), any()))
+                .thenReturn(List.of(AbrirRuta.builder().id(2).build()));
+
+        HistorialUsuario pagina = abrirRutaService.findHistorial(VALID_USER_ID, 4, 1_000, true);
+
+        assertNull(pagina.getSiguiente());
+        verify(abrirRutaRepository).findHistorial(eq(VALID_USER_ID), eq(4), eq(true),
+                argThat(p -> p.getPageSize() == 100));
+    }
+
+    // ==========================================
+    // Tests para registrarPuntos(id, puntos) - seguimiento GPS
+    // ==========================================
+
+    private AbrirRuta enCurso() {
+        AbrirRuta enCurso = AbrirRuta.builder().id(VALID_ID).idUsuario(VALID_USER_ID).idRuta(VALID_RUTA_ID)
+                .fInicio(LocalDateTime.now().minusHours(1)).build();
+        when(abrirRutaRepository.findParaActualizar(VALID_ID)).thenReturn(Optional.of(enCurso));
+        when(abrirRutaRepository.save(any(AbrirRuta.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        return enCurso;
+    }
+
+    @Test
+    void registrarPuntos_sumaDistanciaIncrementalEntreLotes() {
+        enCurso();
+        // 0.01 grados de latitud ~ 1112 m
+        abrirRutaService.registrarPuntos(VALID_ID, List.of(
+                new LecturaGps(-33.45, -70.66, 2_000L),
+                new LecturaGps(-33.46, -70.66, 3_000L)));
+        AbrirRuta resultado = abrirRutaService.registrarPuntos(VALID_ID, List.of(
+                new LecturaGps(-33.47, -70.66, 4_000L))).getAbrirRuta();
+
+        // El segundo lote suma desde el ultimo punto del primero
+        assertEquals(2224, resultado.getDistanciaMetros(), 5);
+        assertEquals(3, resultado.getPuntosGps());
+        assertEquals(4_000L, resultado.getUltimoPuntoMs());
+        verify(puntoGpsJdbcRepository, times(2)).insertar(eq(VALID_ID), anyList());
+    }
+
+    @Test
+    void registrarPuntos_loteDesordenadoYReenviado_noSumaDosVeces() {
+        enCurso();
+        List<LecturaGps> lote = List.of(
+                new LecturaGps(-33.46, -70.66, 3_000L),
+                new LecturaGps(-33.45, -70.66, 2_000L));
+
+        abrirRutaService.registrarPuntos(VALID_ID, lote);
+        ResultadoPuntos reenvio = abrirRutaService.registrarPuntos(VALID_ID, lote);
+        AbrirRuta resultado = reenvio.getAbrirRuta();
+
+        assertEquals(1112, resultado.getDistanciaMetros(), 5);
+        assertEquals(2, resultado.getPuntosGps());
+        assertEquals(0, reenvio.getAceptados());
+        assertEquals(2, reenvio.getDescartados());
+        verify(puntoGpsJdbcRepository, times(1)).insertar(eq(VALID_ID), anyList());
+    }
+
+    @Test
+    void registrarPuntos_loteTardio_informaLosDescartados() {
+        enCurso();
+        abrirRutaService.registrarPuntos(VALID_ID, List.of(new LecturaGps(-33.46, -70.66, 5_000L)));
+
+        // Llega despues un lote con un punto anterior al ultimo aceptado y uno posterior
+        ResultadoPuntos resultado = abrirRutaService.registrarPuntos(VALID_ID, List.of(
+                new LecturaGps(-33.45, -70.66, 4_000L),
+                new LecturaGps(-33.47, -70.66, 6_000L)));
+
+        assertEquals(1, resultado.getAceptados());
+        assertEquals(1, resultado.getDescartados());
+        assertEquals(6_000L, resultado.getAbrirRuta().getUltimoPuntoMs());
+    }
+
+    @Test
+    void registrarPuntos_recorridoTerminado_lanzaExcepcion() {
+        enCurso().setFFinal(LocalDateTime.now());
+
+        RuntimeException excepcion = assertThrows(RuntimeException.class, () ->
+                abrirRutaService.registrarPuntos(VALID_ID, List.of(new LecturaGps(-33.45, -70.66, 1L))));
+
+        assertEquals("AbrirRuta ya terminada", excepcion.getMessage());
+        verify(puntoGpsJdbcRepository, never()).insertar(any(), anyList());
+    }
+
+    @Test
+    void registrarPuntos_coordenadaFueraDeRango_lanzaExcepcion() {
+        RuntimeException excepcion = assertThrows(RuntimeException.class, () ->
+                abrirRutaService.registrarPuntos(VALID_ID, List.of(new LecturaGps(95.0, -70.66, 1L))));
+
+        assertEquals("Lote de puntos invalido", excepcion.getMessage());
+        verify(abrirRutaRepository, never()).findParaActualizar(any());
+    }
+
+    @Test
+    void marcarFin_conSeguimiento_cierraEnElUltimoPuntoConDuracion() {
+        AbrirRuta enCurso = enCurso();
+        LocalDateTime ultimoPunto = enCurso.getFInicio().plusMinutes(40).withNano(0);
+        enCurso.setUltimoPuntoMs(ultimoPunto.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        AbrirRuta resultado = abrirRutaService.marcarFin(VALID_ID);
+
+        assertEquals(ultimoPunto, resultado.getFFinal());
+        assertEquals(Duration.between(enCurso.getFInicio(), ultimoPunto).getSeconds(), resultado.getDuracionSegundos());
+    }
+
+    // ==========================================
+    // Tests para exportar (NDJSON)
+    // ==========================================
+
+    @Test
+    void exportar_escribeUnaLineaPorRecorridoYSueltaCadaEntidad() throws Exception {
+        AbrirRuta otra = AbrirRuta.builder().id(2).idUsuario(VALID_USER_ID).idRuta(51).idEstado(1).build();
+        when(abrirRutaRepository.streamTodos()).thenReturn(Stream.of(rutaValida, otra));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long filas = abrirRutaService.exportar(out);
+
+        String[] lineas = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, filas);
+        assertEquals(2, lineas.length);
+        assertEquals(VALID_ID, objectMapper.readValue(lineas[0], AbrirRuta.class).getId());
+        assertEquals(51, objectMapper.readValue(lineas[1], AbrirRuta.class).getIdRuta());
+        verify(entityManager).detach(rutaValida);
+        verify(entityManager).detach(otra);
+    }
+
+    @Test
+    void exportar_tablaVacia_noEscribeNada() throws Exception {
+        when(abrirRutaRepository.streamTodos()).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, abrirRutaService.exportar(out));
+        assertEquals(0, out.size());
+    }
 }
@@ -0,0 +1,104 @@
+package cl.condor.logros_api.condicion;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+// Registro de tipos de condicion. Compila los logros de cada tipo en dos arreglos paralelos
+// ordenados por umbral, asi "que logros alcanza este valor" es una busqueda binaria.
+@Component
+public class EvaluadorCondiciones {
+
+    private final Map<Integer, TipoCondicionEvaluador> porTipo;
+
+    public EvaluadorCondiciones(List<TipoCondicionEvaluador> evaluadores) {
+        Map<Integer, TipoCondicionEvaluador> mapa = new TreeMap<>();
+        for (TipoCondicionEvaluador e : evaluadores) {
+            if (mapa.put(e.idTipo(), e) != null) {
+                throw new IllegalStateException("Tipo de condicion duplicado: " + e.idTipo());
+            }
+        }
+        this.porTipo = Collections.unmodifiableMap(mapa);
+    }
+
+    public Optional<TipoCondicionEvaluador> evaluador(Integer idTipo) {
+        return idTipo == null ? Optional.empty() : Optional.ofNullable(porTipo.get(idTipo));
+    }
+
+    // Texto de la condicion, o vacio si el tipo no tiene evaluador
+    public Optional<String> plantilla(Integer idTipo, BigDecimal restriccion) {
+        return evaluador(idTipo).map(e -> e.plantilla(restriccion));
+    }
+
+    // Restriccion e id de un logro del tipo, antes de compilar
+    public record Entrada(BigDecimal restriccion, Integer idLogro) {
+    }
+
+    public TipoCompilado compilar(TipoCondicionEvaluador evaluador, List<Entrada> entradas) {
+        List<Entrada> ordenadas = new ArrayList<>(entradas);
+        ordenadas.sort(Comparator.comparing(Entrada::restriccion).thenComparing(Entrada::idLogro));
+        long[] umbrales = new long[ordenadas.size()];
+        int[] ids = new int[ordenadas.size()];
+        for (int i = 0; i < ordenadas.size(); i++) {
+            // Hacia arriba: una restriccion de 40.001 exige llegar a 40.01
+            umbrales[i] = ordenadas.get(i).restriccion().movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+            ids[i] = ordenadas.get(i).idLogro();
+        }
+        return new TipoCompilado(evaluador, umbrales, ids);
+    }
+
+    public Collection<TipoCondicionEvaluador> evaluadores() {
+        return porTipo.values();
+    }
+
+    // Logros de un tipo listos para evaluar: umbrales ascendentes y sus ids en el mismo orden
+    public static final class TipoCompilado {
+
+        private final TipoCondicionEvaluador evaluador;
+        private final long[] umbrales;
+        private final int[] ids;
+
+        private TipoCompilado(TipoCondicionEvaluador evaluador, long[] umbrales, int[] ids) {
+            this.evaluador = evaluador;
+            this.umbrales = umbrales;
+            this.ids = ids;
+        }
+
+        // Cuantos umbrales son <= valor (los primeros 'n' logros estan cumplidos)
+        private int alcanzados(long valor) {
+            int lo = 0;
+            int hi = umbrales.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (umbrales[mid] <= valor) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        public void satisfechos(MetricasUsuario metricas, Collection<Integer> destino) {
+            int n = alcanzados(evaluador.valor(metricas));
+            for (int i = 0; i < n; i++) {
+                destino.add(ids[i]);
+            }
+        }
+
+        // Logros cuyo umbral quedo en (antes, despues]
+        public void cruzados(MetricasUsuario antes, MetricasUsuario despues, Collection<Integer> destino) {
+            int desde = alcanzados(evaluador.valor(antes));
+            int hasta = alcanzados(evaluador.valor(despues));
+            for (int i = desde; i < hasta; i++) {
+                destino.add(ids[i]);
+            }
+        }
+
+        public int[] ids() {
+            return ids.clone();
+        }
+    }
+}
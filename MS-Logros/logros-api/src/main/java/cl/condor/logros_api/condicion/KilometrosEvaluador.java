@@ -0,0 +1,24 @@
+package cl.condor.logros_api.condicion;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Component
+public class KilometrosEvaluador implements TipoCondicionEvaluador {
+
+    @Override
+    public int idTipo() {
+        return 1;
+    }
+
+    @Override
+    public long valor(MetricasUsuario metricas) {
+        return metricas.kmCentesimas();
+    }
+
+    @Override
+    public String plantilla(BigDecimal restriccion) {
+        return "Recorrer " + restriccion + " km";
+    }
+}
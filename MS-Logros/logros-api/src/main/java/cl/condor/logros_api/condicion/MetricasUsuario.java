@@ -0,0 +1,18 @@
+package cl.condor.logros_api.condicion;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Lo que se sabe de un usuario para evaluar condiciones, en tipos primitivos.
+// Los km se guardan en centesimas (la restriccion es DECIMAL(10,2)) para comparar sin BigDecimal.
+public record MetricasUsuario(long kmCentesimas, int regiones, int rutas) {
+
+    public static MetricasUsuario de(BigDecimal km, int regiones, int rutas) {
+        return new MetricasUsuario(centesimas(km), regiones, rutas);
+    }
+
+    // Redondea hacia abajo: 39.999 km todavia no alcanza 40.00
+    public static long centesimas(BigDecimal valor) {
+        return valor.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+}
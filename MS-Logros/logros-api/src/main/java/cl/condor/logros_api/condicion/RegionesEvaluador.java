@@ -0,0 +1,24 @@
+package cl.condor.logros_api.condicion;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Component
+public class RegionesEvaluador implements TipoCondicionEvaluador {
+
+    @Override
+    public int idTipo() {
+        return 2;
+    }
+
+    @Override
+    public long valor(MetricasUsuario metricas) {
+        return metricas.regiones() * 100L;
+    }
+
+    @Override
+    public String plantilla(BigDecimal restriccion) {
+        return "Terminar " + restriccion + " rutas en diferentes regiones";
+    }
+}
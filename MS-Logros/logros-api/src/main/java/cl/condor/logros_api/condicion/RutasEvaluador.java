@@ -0,0 +1,24 @@
+package cl.condor.logros_api.condicion;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Component
+public class RutasEvaluador implements TipoCondicionEvaluador {
+
+    @Override
+    public int idTipo() {
+        return 3;
+    }
+
+    @Override
+    public long valor(MetricasUsuario metricas) {
+        return metricas.rutas() * 100L;
+    }
+
+    @Override
+    public String plantilla(BigDecimal restriccion) {
+        return "Termina " + restriccion + " rutas";
+    }
+}
@@ -0,0 +1,17 @@
+package cl.condor.logros_api.condicion;
+
+import java.math.BigDecimal;
+
+// Semantica de un tipo de condicion (tabla tipo_condicion). Cada implementacion registrada
+// como bean se descubre sola en EvaluadorCondiciones; agregar un tipo no toca los servicios.
+public interface TipoCondicionEvaluador {
+
+    // id_tipo_condicion que resuelve este evaluador
+    int idTipo();
+
+    // Valor del usuario en centesimas de la unidad de la restriccion (40 km -> 4000, 3 rutas -> 300)
+    long valor(MetricasUsuario metricas);
+
+    // Texto de la condicion que se muestra al cliente
+    String plantilla(BigDecimal restriccion);
+}
@@ -1,17 +1,24 @@
 package cl.condor.logros_api.controller;
 
+import cl.condor.logros_api.dto.TrofeoDetalle;
 import cl.condor.logros_api.model.Condicion;
 import cl.condor.logros_api.model.Logro;
+import cl.condor.logros_api.model.ReevaluacionLogros;
 import cl.condor.logros_api.model.Tipo_condicion;
 import cl.condor.logros_api.model.Trofeo;
 import cl.condor.logros_api.service.CondicionService;
-import cl.condor.logros_api.repository.TrofeoRepository;
+import cl.condor.logros_api.service.ConteoTrofeosCache;
+import cl.condor.logros_api.service.IconoService;
 import jakarta.servlet.http.HttpServletRequest;
 import cl.condor.logros_api.service.LogroService;
+import cl.condor.logros_api.service.ReevaluacionLogrosJob;
+import cl.condor.logros_api.service.ReevaluacionLogrosService;
 import io.swagger.v3.oas.annotations.Operation; // Importación necesaria
 import io.swagger.v3.oas.annotations.tags.Tag; // Importación necesaria
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -19,10 +26,10 @@ import org.springframework.web.reactive.function.client.WebClientRequestExceptio
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Tag(
         name = "Logros y Condiciones",
@@ -42,10 +49,16 @@ public class LogroController {
     private CondicionService condicionService;
 
     @Autowired
-    private TrofeoRepository trofeoRepository;
+    private ConteoTrofeosCache conteoTrofeosCache;
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private IconoService iconoService;
+
+    @Autowired
+    private ReevaluacionLogrosService reevaluacionLogrosService;
+
+    @Autowired
+    private ReevaluacionLogrosJob reevaluacionLogrosJob;
 
     // --- ENDPOINTS: LOGROS (CRUD BÁSICO) --------------------------------------
 
@@ -128,9 +141,30 @@ public class LogroController {
         return ResponseEntity.ok(resultado);
     }
 
+    @Operation(
+            summary = "Obtener el icono de un logro",
+            description = "Devuelve los bytes del icono identificado por su hash (SHA-256). Los logros exponen esta URL en 'iconoUrl'; el contenido de un hash nunca cambia, por lo que se puede cachear sin revalidar.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Icono encontrado."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "El icono no cambió (ETag)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Icono no encontrado.")
+            }
+    )
+    @GetMapping("/icono/{hash}")
+    public ResponseEntity<byte[]> getIcono(@PathVariable String hash){
+        return iconoService.buscar(hash)
+                .map(icono -> ResponseEntity.ok()
+                        .eTag(icono.getHash())
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .contentType(MediaType.parseMediaType(icono.getTipoContenido() != null
+                                ? icono.getTipoContenido() : MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                        .body(icono.getDatos()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @Operation(
             summary = "Listar logros con conteo de usuarios",
-            description = "Retorna la lista de logros junto al número de usuarios que ya poseen cada logro."
+            description = "Retorna la lista de logros junto al número de usuarios que ya poseen cada logro. Los conteos se sirven desde memoria."
     )
     @GetMapping("/conConteo")
     public ResponseEntity<List<?>> getLogrosConConteo(){
@@ -140,7 +174,7 @@ public class LogroController {
             // Construir respuesta simple con conteo por logro
             List<java.util.Map<String,Object>> out = new java.util.ArrayList<>();
             for(Logro l: logros){
-                long conteo = trofeoRepository.countByIdLogro(l.getIdLogro());
+                long conteo = conteoTrofeosCache.conteo(l.getIdLogro());
                 java.util.Map<String,Object> m = new java.util.HashMap<>();
                 m.put("idLogro", l.getIdLogro());
                 m.put("nombre", l.getNombre());
@@ -186,6 +220,119 @@ public class LogroController {
         }
     }
 
+    @Operation(
+            summary = "Ganar todos los logros cumplidos (Transaccional)",
+            description = """
+            Evalua en una sola pasada todos los logros que el usuario (idUsuario) aun no tiene y registra
+            de una vez un Trofeo por cada logro cumplido. Retorna solo los trofeos recien ganados; la lista
+            viene vacia si no gano ninguno. Llamadas concurrentes no duplican trofeos.
+            """,
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Trofeos ganados en esta evaluacion (puede ser una lista vacia)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Error al conectar con microservicios externos (Usuarios, Rutas, etc.)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "Error interno del servidor no manejado.")
+            }
+    )
+    @PostMapping("/ganarLogros/{idUsuario}")
+    public ResponseEntity<List<Trofeo>> ganarLogros(@PathVariable int idUsuario){
+        try{
+            return ResponseEntity.ok(logroService.ganarLogros(idUsuario));
+        }catch(WebClientRequestException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }catch(RuntimeException e){
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // --- ENDPOINTS: REEVALUACION MASIVA ---------------------------------------
+
+    @Operation(
+            summary = "Reevaluar logros de todos los usuarios (Moderador/Admin)",
+            description = """
+            Inicia en segundo plano la reevaluacion de los logros (todos, o solo los de 'logros') sobre todos
+            los usuarios con estadisticas, y entrega los trofeos que ya cumplen. Usar tras crear un logro o
+            cambiar una restriccion. Con simulacion=true solo cuenta los trofeos que se entregarian.
+            El progreso se consulta en GET /reevaluaciones/{id}.
+            """,
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "202", description = "Reevaluacion iniciada."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Solo moderadores o administradores."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Alguno de los logros indicados no existe."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "Ya hay una reevaluacion en curso.")
+            }
+    )
+    @PostMapping("/reevaluaciones")
+    public ResponseEntity<ReevaluacionLogros> iniciarReevaluacion(@RequestParam(defaultValue = "false") boolean simulacion,
+                                                                  @RequestParam(required = false) List<Integer> logros,
+                                                                  HttpServletRequest request){
+        if(!isModeratorOrAdmin(request)){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try{
+            ReevaluacionLogros reevaluacion = reevaluacionLogrosService.iniciar(simulacion, logros);
+            reevaluacionLogrosJob.lanzar(reevaluacion.getIdReevaluacion());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reevaluacion);
+        }catch(RuntimeException e){
+            if("Logro no encontrado".equals(e.getMessage())){
+                return ResponseEntity.notFound().build();
+            }
+            if("Ya hay una reevaluacion en curso".equals(e.getMessage())){
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Operation(
+            summary = "Progreso de una reevaluacion",
+            description = "Estado, ultimo usuario procesado (checkpoint), usuarios procesados del total y trofeos entregados."
+    )
+    @GetMapping("/reevaluaciones/{id}")
+    public ResponseEntity<ReevaluacionLogros> getReevaluacion(@PathVariable Long id){
+        try{
+            return ResponseEntity.ok(reevaluacionLogrosService.findById(id));
+        }catch(RuntimeException e){
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Reanudar una reevaluacion (Moderador/Admin)",
+            description = "Retoma una reevaluacion cancelada, fallida o interrumpida desde su ultimo checkpoint."
+    )
+    @PostMapping("/reevaluaciones/{id}/reanudar")
+    public ResponseEntity<ReevaluacionLogros> reanudarReevaluacion(@PathVariable Long id, HttpServletRequest request){
+        if(!isModeratorOrAdmin(request)){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try{
+            ReevaluacionLogros reevaluacion = reevaluacionLogrosService.reanudar(id);
+            reevaluacionLogrosJob.lanzar(id);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reevaluacion);
+        }catch(RuntimeException e){
+            if("Reevaluacion no encontrada".equals(e.getMessage())){
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @Operation(
+            summary = "Cancelar una reevaluacion (Moderador/Admin)",
+            description = "Detiene la reevaluacion al terminar el lote actual; los trofeos ya entregados se conservan."
+    )
+    @PostMapping("/reevaluaciones/{id}/cancelar")
+    public ResponseEntity<ReevaluacionLogros> cancelarReevaluacion(@PathVariable Long id, HttpServletRequest request){
+        if(!isModeratorOrAdmin(request)){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try{
+            return ResponseEntity.ok(reevaluacionLogrosService.cancelar(id));
+        }catch(RuntimeException e){
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     // --- ENDPOINTS: CONDICIONES (CONSULTA Y CREACIÓN) --------------------------
 
     @Operation(
@@ -345,7 +492,7 @@ public class LogroController {
 
     @Operation(
             summary = "Actualizar icono del logro",
-            description = "Actualiza el campo binario 'icono' (byte[]) de un logro."
+            description = "Reemplaza el icono (byte[]) de un logro. El logro queda con una nueva 'iconoUrl'."
     )
     @PatchMapping("/{id}/icono")
     public ResponseEntity<Logro> updateIcono(@PathVariable int id, @RequestBody byte[] icono){
@@ -382,73 +529,12 @@ public class LogroController {
             description = "Retorna la lista de logros (trofeos) que ha ganado un usuario, incluyendo la condición y la restricción para mostrar texto en el cliente."
     )
     @GetMapping("/trofeos/usuario/{idUsuario}")
-    public ResponseEntity<java.util.List<java.util.Map<String,Object>>> getTrofeosByUsuario(@PathVariable Integer idUsuario){
+    public ResponseEntity<List<TrofeoDetalle>> getTrofeosByUsuario(@PathVariable Integer idUsuario){
         try{
-            java.util.List<Trofeo> trofeos = null;
-            try {
-                trofeos = trofeoRepository.findByIdUsuario(idUsuario);
-            } catch (Exception repoEx) {
-                // Repository call failed — log and attempt JDBC fallback below
-                logger.error("Error querying trofeos via repository for usuario {}: {}", idUsuario, repoEx.toString());
-                logger.debug("Repository exception:", repoEx);
-                trofeos = null;
-            }
-
-            // If repository returned null/failed, try a direct JDBC query as a fallback
-            if (trofeos == null) {
-                String sql = "SELECT t.id_trofeo, t.f_obtencion, t.id_usuario, t.id_logro, l.nombre as logro_nombre, l.descripcion as logro_descripcion, l.id_condicion as logro_id_condicion, c.id_condicion as condicion_id, c.condicion as condicion_template, c.restriccion as restriccion "
-                        + "FROM trofeo t LEFT JOIN logro l ON t.id_logro = l.id_logro LEFT JOIN condicion c ON l.id_condicion = c.id_condicion WHERE t.id_usuario = ?";
-                java.util.List<java.util.Map<String,Object>> rows = jdbcTemplate.queryForList(sql, idUsuario);
-                if (rows == null || rows.isEmpty()) return ResponseEntity.noContent().build();
-                java.util.List<java.util.Map<String,Object>> out = new java.util.ArrayList<>();
-                for (java.util.Map<String,Object> r : rows) {
-                    java.util.Map<String,Object> m = new java.util.HashMap<>();
-                    m.put("idTrofeo", r.get("id_trofeo"));
-                    m.put("idLogro", r.get("id_logro"));
-                    m.put("nombre", r.get("logro_nombre"));
-                    m.put("descripcion", r.get("logro_descripcion"));
-                    m.put("id_condicion", r.get("condicion_id"));
-                    m.put("condicion_template", r.get("condicion_template"));
-                    m.put("restriccion", r.get("restriccion"));
-                    out.add(m);
-                }
-                return ResponseEntity.ok(out);
-            }
-
-            // Normal flow when repository returned results
-            if(trofeos == null || trofeos.isEmpty()) return ResponseEntity.noContent().build();
-            java.util.List<java.util.Map<String,Object>> out = new java.util.ArrayList<>();
-            for(Trofeo t: trofeos){
-                try {
-                    Logro l = logroService.findById(t.getIdLogro());
-                    if (l == null) continue; // skip if logro not found
-                    Condicion c = null;
-                    try { c = condicionService.findById(l.getId_condicion()); } catch(Exception ex) { c = null; }
-                    java.util.Map<String,Object> m = new java.util.HashMap<>();
-                    m.put("idTrofeo", t.getId_trofeo());
-                    m.put("idLogro", l.getIdLogro());
-                    m.put("nombre", l.getNombre());
-                    m.put("descripcion", l.getDescripcion());
-                    if (c != null) {
-                        m.put("id_condicion", c.getId_condicion());
-                        m.put("condicion_template", c.getCondicion());
-                        m.put("restriccion", c.getRestriccion());
-                    } else {
-                        m.put("id_condicion", null);
-                        m.put("condicion_template", null);
-                        m.put("restriccion", null);
-                    }
-                    out.add(m);
-                } catch (Exception ex) {
-                    // Skip this trofeo but continue with others; log warning with stacktrace
-                    logger.warn("Skipping trofeo {} due to error: {}", t == null ? "<null>" : t.getId_trofeo(), ex.toString());
-                    logger.debug("Stacktrace:", ex);
-                }
-            }
-            if (out.isEmpty()) return ResponseEntity.noContent().build();
-            return ResponseEntity.ok(out);
+            List<TrofeoDetalle> trofeos = logroService.findTrofeosByUsuario(idUsuario);
+            if(trofeos.isEmpty()) return ResponseEntity.noContent().build();
+            return ResponseEntity.ok(trofeos);
         }catch(RuntimeException e){
-            // Unexpected failure
             logger.error("Error fetching trofeos for usuario {}", idUsuario, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
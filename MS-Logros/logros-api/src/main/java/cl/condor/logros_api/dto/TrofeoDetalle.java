@@ -0,0 +1,22 @@
+package cl.condor.logros_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Trofeo de un usuario con los datos de su logro y condicion, sin el icono del logro.
+// Los nombres de campo mantienen el JSON que ya consume el cliente.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrofeoDetalle {
+    private Integer idTrofeo;
+    private Integer idLogro;
+    private String nombre;
+    private String descripcion;
+    private Integer id_condicion;
+    private String condicion_template;
+    private BigDecimal restriccion;
+}
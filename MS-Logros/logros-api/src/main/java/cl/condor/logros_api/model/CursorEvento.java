@@ -0,0 +1,27 @@
+package cl.condor.logros_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ultimo evento consumido de cada outbox remoto. Se actualiza en la misma transaccion
+// que las estadisticas; @Version evita que dos instancias apliquen el mismo lote.
+@Entity
+@Table(name = "cursor_evento")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorEvento {
+
+    @Id
+    @Column(name = "nombre", length = 50)
+    private String nombre;
+
+    @Column(name = "ultimo_id", nullable = false)
+    private Long ultimoId;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+}
@@ -0,0 +1,49 @@
+package cl.condor.logros_api.model;
+
+import cl.condor.logros_api.condicion.MetricasUsuario;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Acumulados por usuario que mantiene el motor de logros a partir de los eventos
+// de rutas terminadas; evita recalcular km, rutas y regiones contra otros servicios.
+@Entity
+@Table(name = "estadistica_usuario")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaUsuario {
+
+    @Id
+    @Column(name = "id_usuario")
+    private Integer idUsuario;
+
+    @Column(name = "km_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal kmTotal;
+
+    @Column(name = "rutas_terminadas", nullable = false)
+    private Integer rutasTerminadas;
+
+    // Bit (id_region - 1) encendido por cada region donde termino una ruta
+    @Column(name = "regiones_bits", nullable = false)
+    private Integer regionesBits;
+
+    @Column(name = "f_actualizacion")
+    private LocalDateTime fActualizacion;
+
+    public static EstadisticaUsuario vacia(Integer idUsuario) {
+        return new EstadisticaUsuario(idUsuario, BigDecimal.ZERO, 0, 0, null);
+    }
+
+    public int regionesDistintas() {
+        return Integer.bitCount(regionesBits);
+    }
+
+    public MetricasUsuario metricas() {
+        return MetricasUsuario.de(kmTotal, regionesDistintas(), rutasTerminadas);
+    }
+}
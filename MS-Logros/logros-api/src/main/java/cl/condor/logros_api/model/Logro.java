@@ -1,5 +1,7 @@
 package cl.condor.logros_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -20,8 +22,10 @@ public class Logro {
     @Column(name = "nombre", nullable = false, length = 150)
     private String nombre;
 
-    @Lob
-    @Column(name = "icono", columnDefinition = "LONGBLOB")
+    // Los bytes del icono ya no viven en la fila: solo se reciben al crear/actualizar el logro
+    // y se guardan en logro_icono por su SHA-256. Se descargan por GET /api/v1/logros/icono/{hash}
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] icono;
 
     @Column(name = "f_creacion", updatable = false, insertable = false)
@@ -35,4 +39,24 @@ public class Logro {
 
     @Column(name = "id_condicion")
     private Integer id_condicion;
+
+    @JsonIgnore
+    @Column(name = "icono_hash", length = 64)
+    private String iconoHash;
+
+    public Logro(Integer idLogro, String nombre, byte[] icono, java.time.LocalDateTime f_creacion,
+                 String descripcion, Integer id_estado, Integer id_condicion) {
+        this.idLogro = idLogro;
+        this.nombre = nombre;
+        this.icono = icono;
+        this.f_creacion = f_creacion;
+        this.descripcion = descripcion;
+        this.id_estado = id_estado;
+        this.id_condicion = id_condicion;
+    }
+
+    // La URL lleva el hash: si el icono cambia, cambia la URL y el cliente no ve una copia vieja
+    public String getIconoUrl() {
+        return iconoHash == null ? null : "/api/v1/logros/icono/" + iconoHash;
+    }
 }
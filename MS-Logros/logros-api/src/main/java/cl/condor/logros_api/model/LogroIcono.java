@@ -0,0 +1,35 @@
+package cl.condor.logros_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Icono de logro direccionado por contenido: la clave es el SHA-256 de los bytes,
+// asi que logros con el mismo icono comparten una sola fila y sus bytes nunca cambian.
+@Entity
+@Table(name = "logro_icono")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogroIcono {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Lob
+    @Column(name = "datos", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] datos;
+
+    @Column(name = "tipo_contenido", length = 100)
+    private String tipoContenido;
+
+    @Column(name = "tamano")
+    private Integer tamano;
+
+    // Ultima vez que se guardo (o se volvio a subir) este contenido. Un icono sin logros solo se
+    // borra pasado un plazo desde aqui, asi no se borra el de un logro que aun no hace commit.
+    @Column(name = "f_renovado")
+    private java.time.LocalDateTime f_renovado;
+}
@@ -0,0 +1,96 @@
+package cl.condor.logros_api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Reevaluacion masiva de logros sobre todos los usuarios con estadisticas.
+// Es el checkpoint del job: tras cada lote se guarda el ultimo id_usuario procesado en la
+// misma transaccion que los trofeos, asi se puede reanudar sin repetir ni saltar usuarios.
+@Entity
+@Table(name = "reevaluacion_logros")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReevaluacionLogros {
+
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String CANCELADA = "CANCELADA";
+    public static final String FALLIDA = "FALLIDA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_reevaluacion")
+    private Long idReevaluacion;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    // Simulacion (dry-run): cuenta los trofeos que se entregarian sin insertarlos
+    @Column(name = "simulacion", nullable = false)
+    private Boolean simulacion;
+
+    // Ids de logro separados por coma; null = todos los logros del catalogo
+    @Column(name = "logros", length = 500)
+    private String logros;
+
+    @Column(name = "ultimo_id_usuario", nullable = false)
+    private Integer ultimoIdUsuario;
+
+    @Column(name = "usuarios_total", nullable = false)
+    private Long usuariosTotal;
+
+    @Column(name = "usuarios_procesados", nullable = false)
+    private Long usuariosProcesados;
+
+    @Column(name = "trofeos_entregados", nullable = false)
+    private Long trofeosEntregados;
+
+    @Column(name = "f_inicio", nullable = false)
+    private LocalDateTime fInicio;
+
+    @Column(name = "f_actualizacion")
+    private LocalDateTime fActualizacion;
+
+    @Column(name = "f_fin")
+    private LocalDateTime fFin;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    // Evita que dos instancias avancen el mismo checkpoint
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    // TRUE mientras estado = EN_CURSO, NULL en otro caso. Con el indice unico solo una fila puede
+    // estar en curso aunque dos requests pasen la validacion a la vez (MySQL admite varios NULL).
+    @JsonIgnore
+    @Column(name = "en_curso", unique = true)
+    private Boolean enCurso;
+
+    @PrePersist
+    @PreUpdate
+    void sincronizarEnCurso() {
+        enCurso = EN_CURSO.equals(estado) ? Boolean.TRUE : null;
+    }
+
+    // null = sin filtro
+    public Set<Integer> idsLogro() {
+        if (logros == null || logros.isBlank()) {
+            return null;
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String id : logros.split(",")) {
+            ids.add(Integer.valueOf(id.trim()));
+        }
+        return ids;
+    }
+}
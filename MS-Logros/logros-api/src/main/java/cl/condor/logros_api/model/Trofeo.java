@@ -8,7 +8,14 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trofeo")
+@Table(name = "trofeo", uniqueConstraints = {
+        // Un usuario gana cada logro una sola vez (base del INSERT IGNORE de TrofeoJdbcRepository);
+        // tambien sirve de indice para listar los trofeos de un usuario
+        @UniqueConstraint(name = "uk_trofeo_usuario_logro", columnNames = {"id_usuario", "id_logro"})
+}, indexes = {
+        // Conteo de usuarios por logro (GROUP BY id_logro)
+        @Index(name = "idx_trofeo_logro", columnList = "id_logro")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,9 @@
+package cl.condor.logros_api.repository;
+
+import cl.condor.logros_api.model.CursorEvento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CursorEventoRepository extends JpaRepository<CursorEvento, String> {
+}
@@ -0,0 +1,14 @@
+package cl.condor.logros_api.repository;
+
+import cl.condor.logros_api.model.EstadisticaUsuario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EstadisticaUsuarioRepository extends JpaRepository<EstadisticaUsuario, Integer> {
+    // Paginacion por keyset sobre la PK: cada lote cuesta lo mismo sin importar cuanto se avanzo
+    List<EstadisticaUsuario> findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(Integer idUsuario, Pageable pageable);
+}
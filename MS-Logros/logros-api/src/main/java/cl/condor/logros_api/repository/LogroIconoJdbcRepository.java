@@ -0,0 +1,50 @@
+package cl.condor.logros_api.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Escrituras de logro_icono que deben ser seguras entre requests concurrentes: guardar el mismo
+// contenido dos veces nunca choca con la clave primaria, y el borrado de un icono huerfano es una
+// sola sentencia que respeta el plazo de gracia desde f_renovado.
+@Repository
+public class LogroIconoJdbcRepository {
+
+    private static final String RENOVAR =
+            "UPDATE logro_icono SET f_renovado = ? WHERE hash = ?";
+
+    private static final String INSERTAR =
+            "INSERT INTO logro_icono (hash, datos, tipo_contenido, tamano, f_renovado) VALUES (?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE f_renovado = VALUES(f_renovado)";
+
+    private static final String BORRAR_HUERFANO =
+            "DELETE FROM logro_icono WHERE hash = ? AND (f_renovado IS NULL OR f_renovado < ?) "
+                    + "AND NOT EXISTS (SELECT 1 FROM logro l WHERE l.icono_hash = ?)";
+
+    private static final String BORRAR_HUERFANOS =
+            "DELETE FROM logro_icono WHERE (f_renovado IS NULL OR f_renovado < ?) "
+                    + "AND NOT EXISTS (SELECT 1 FROM logro l WHERE l.icono_hash = logro_icono.hash)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Si el icono ya existe solo se renueva (sin volver a mandar los bytes); si no, se inserta
+    public void guardar(String hash, byte[] datos, String tipoContenido, LocalDateTime ahora) {
+        Timestamp ts = Timestamp.valueOf(ahora);
+        if (jdbcTemplate.update(RENOVAR, ts, hash) == 0) {
+            jdbcTemplate.update(INSERTAR, hash, datos, tipoContenido, datos.length, ts);
+        }
+    }
+
+    // Retorna si se borro
+    public boolean borrarSiHuerfano(String hash, LocalDateTime limite) {
+        return jdbcTemplate.update(BORRAR_HUERFANO, hash, Timestamp.valueOf(limite), hash) > 0;
+    }
+
+    public int borrarHuerfanos(LocalDateTime limite) {
+        return jdbcTemplate.update(BORRAR_HUERFANOS, Timestamp.valueOf(limite));
+    }
+}
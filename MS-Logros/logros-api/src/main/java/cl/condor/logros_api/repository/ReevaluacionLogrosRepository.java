@@ -0,0 +1,14 @@
+package cl.condor.logros_api.repository;
+
+import cl.condor.logros_api.model.ReevaluacionLogros;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReevaluacionLogrosRepository extends JpaRepository<ReevaluacionLogros, Long> {
+    boolean existsByEstado(String estado);
+
+    List<ReevaluacionLogros> findByEstado(String estado);
+}
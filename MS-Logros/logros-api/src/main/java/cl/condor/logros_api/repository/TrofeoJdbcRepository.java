@@ -0,0 +1,86 @@
+package cl.condor.logros_api.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Inserciones masivas de trofeos con JDBC. Se apoya en la restriccion unica
+// (id_usuario, id_logro): INSERT IGNORE descarta en silencio el trofeo que ya existe,
+// asi dos evaluaciones concurrentes del mismo usuario nunca duplican un logro.
+@Repository
+public class TrofeoJdbcRepository {
+
+    private static final String INSERT_IGNORE =
+            "INSERT IGNORE INTO trofeo (f_obtencion, id_usuario, id_logro) VALUES (?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Inserta en un solo batch y retorna los ids de logro que realmente se insertaron
+    public List<Integer> insertarIgnorandoExistentes(Integer idUsuario, List<Integer> idsLogro, LocalDateTime fecha) {
+        if (idsLogro.isEmpty()) {
+            return List.of();
+        }
+        Timestamp ts = Timestamp.valueOf(fecha);
+        int[] filas = jdbcTemplate.batchUpdate(INSERT_IGNORE, idsLogro, idsLogro.size(), (ps, idLogro) -> {
+            ps.setTimestamp(1, ts);
+            ps.setInt(2, idUsuario);
+            ps.setInt(3, idLogro);
+        })[0];
+
+        List<Integer> insertados = new ArrayList<>();
+        for (int i = 0; i < idsLogro.size(); i++) {
+            // 0 = ya existia (ignorado)
+            if (insertada(filas[i])) {
+                insertados.add(idsLogro.get(i));
+            }
+        }
+        return insertados;
+    }
+
+    // Varios usuarios en un solo batch. Retorna un id de logro por cada trofeo insertado
+    // (se repite si lo ganaron varios usuarios), en el formato de ConteoTrofeosCache.registrar
+    public List<Integer> insertarIgnorandoExistentes(Map<Integer, List<Integer>> logrosPorUsuario, LocalDateTime fecha) {
+        List<int[]> pares = new ArrayList<>();
+        logrosPorUsuario.forEach((idUsuario, idsLogro) -> {
+            for (Integer idLogro : idsLogro) {
+                pares.add(new int[]{idUsuario, idLogro});
+            }
+        });
+        if (pares.isEmpty()) {
+            return List.of();
+        }
+        Timestamp ts = Timestamp.valueOf(fecha);
+        int[] filas = jdbcTemplate.batchUpdate(INSERT_IGNORE, pares, pares.size(), (ps, par) -> {
+            ps.setTimestamp(1, ts);
+            ps.setInt(2, par[0]);
+            ps.setInt(3, par[1]);
+        })[0];
+
+        List<Integer> insertados = new ArrayList<>();
+        for (int i = 0; i < pares.size(); i++) {
+            if (insertada(filas[i])) {
+                insertados.add(pares.get(i)[1]);
+            }
+        }
+        return insertados;
+    }
+
+    // Con rewriteBatchedStatements el driver responde SUCCESS_NO_INFO por fila y no se puede
+    // distinguir un trofeo nuevo de uno ignorado. Contarlo como insertado inflaria los conteos
+    // y los eventos de logro, asi que se falla en vez de adivinar.
+    private static boolean insertada(int filas) {
+        if (filas == Statement.SUCCESS_NO_INFO) {
+            throw new IllegalStateException(
+                    "El driver no informa filas por sentencia del batch; desactivar rewriteBatchedStatements");
+        }
+        return filas > 0;
+    }
+}
@@ -1,14 +1,42 @@
 package cl.condor.logros_api.repository;
 
+import cl.condor.logros_api.dto.TrofeoDetalle;
 import cl.condor.logros_api.model.Trofeo;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Set;
+
 @Repository
 public interface TrofeoRepository extends CrudRepository<Trofeo, Integer> {
     boolean existsByIdUsuarioAndIdLogro(Integer idUsuario, Integer idLogro);
     long countByIdLogro(Integer idLogro);
 
+    // [idLogro, cantidad] de todos los logros en una sola agregacion (usa idx_trofeo_logro)
+    @Query("SELECT t.idLogro, COUNT(t) FROM Trofeo t GROUP BY t.idLogro")
+    java.util.List<Object[]> contarPorLogro();
+
+    // Ids de los logros que ya gano el usuario, en una sola consulta
+    @Query("SELECT t.idLogro FROM Trofeo t WHERE t.idUsuario = :idUsuario")
+    Set<Integer> findIdLogroByIdUsuario(@Param("idUsuario") Integer idUsuario);
+
+    // [idUsuario, idLogro] de los trofeos de un lote de usuarios (usa uk_trofeo_usuario_logro)
+    @Query("SELECT t.idUsuario, t.idLogro FROM Trofeo t WHERE t.idUsuario IN :idsUsuario")
+    java.util.List<Object[]> findParesByIdUsuarioIn(@Param("idsUsuario") java.util.Collection<Integer> idsUsuario);
+
+    java.util.List<Trofeo> findByIdUsuarioAndIdLogroIn(Integer idUsuario, java.util.Collection<Integer> idsLogro);
+
+    // Trofeos del usuario con su logro y condicion en una sola consulta (sin leer logro.icono).
+    // Usa uk_trofeo_usuario_logro, cuya primera columna es id_usuario
+    @Query("SELECT new cl.condor.logros_api.dto.TrofeoDetalle(t.id_trofeo, l.idLogro, l.nombre, l.descripcion, "
+            + "c.id_condicion, c.condicion, c.restriccion) "
+            + "FROM Trofeo t JOIN Logro l ON l.idLogro = t.idLogro "
+            + "LEFT JOIN Condicion c ON c.id_condicion = l.id_condicion "
+            + "WHERE t.idUsuario = :idUsuario ORDER BY t.id_trofeo")
+    java.util.List<TrofeoDetalle> findDetalleByIdUsuario(@Param("idUsuario") Integer idUsuario);
+
     // Permite listar todos los trofeos ganados por un usuario
     java.util.List<Trofeo> findByIdUsuario(Integer idUsuario);
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.MetricasUsuario;
+import cl.condor.logros_api.condicion.TipoCondicionEvaluador;
+import cl.condor.logros_api.model.Condicion;
+import cl.condor.logros_api.model.Logro;
+import cl.condor.logros_api.model.Tipo_condicion;
+
+import java.util.*;
+
+// Foto inmutable del catalogo de logros, condiciones y tipos de condicion.
+// Al compilarla cada tipo con evaluador queda como umbrales ordenados (ver EvaluadorCondiciones),
+// asi evaluar a un usuario es una busqueda binaria por tipo. Los tipos sin evaluador no se evaluan.
+// Guarda copias de las entidades: no quedan atadas a ningun contexto de persistencia.
+public final class CatalogoLogros {
+
+    private final List<Logro> logros;
+    private final List<Condicion> condiciones;
+    private final List<Tipo_condicion> tipos;
+    // En orden de id de tipo
+    private final List<EvaluadorCondiciones.TipoCompilado> compilados;
+
+    private CatalogoLogros(List<Logro> logros, List<Condicion> condiciones, List<Tipo_condicion> tipos,
+                           List<EvaluadorCondiciones.TipoCompilado> compilados) {
+        this.logros = logros;
+        this.condiciones = condiciones;
+        this.tipos = tipos;
+        this.compilados = compilados;
+    }
+
+    public static CatalogoLogros compilar(EvaluadorCondiciones evaluador, List<Logro> logros,
+                                          List<Condicion> condiciones, List<Tipo_condicion> tipos) {
+        List<Logro> copiaLogros = new ArrayList<>();
+        for (Logro l : logros) {
+            copiaLogros.add(new Logro(l.getIdLogro(), l.getNombre(), null, l.getF_creacion(), l.getDescripcion(),
+                    l.getId_estado(), l.getId_condicion(), l.getIconoHash()));
+        }
+        Map<Integer, Condicion> porId = new HashMap<>();
+        List<Condicion> copiaCondiciones = new ArrayList<>();
+        for (Condicion c : condiciones) {
+            Condicion copia = new Condicion(c.getId_condicion(), c.getCondicion(), c.getRestriccion(), c.getId_tipo_condicion());
+            copiaCondiciones.add(copia);
+            porId.put(copia.getId_condicion(), copia);
+        }
+        List<Tipo_condicion> copiaTipos = new ArrayList<>();
+        for (Tipo_condicion t : tipos) {
+            copiaTipos.add(new Tipo_condicion(t.getId_tip_cond(), t.getNombre()));
+        }
+
+        Map<Integer, List<EvaluadorCondiciones.Entrada>> entradas = new HashMap<>();
+        for (Logro l : copiaLogros) {
+            Condicion c = porId.get(l.getId_condicion());
+            if (c != null && c.getId_tipo_condicion() != null && c.getRestriccion() != null) {
+                entradas.computeIfAbsent(c.getId_tipo_condicion(), t -> new ArrayList<>())
+                        .add(new EvaluadorCondiciones.Entrada(c.getRestriccion(), l.getIdLogro()));
+            }
+        }
+        List<EvaluadorCondiciones.TipoCompilado> compilados = new ArrayList<>();
+        for (TipoCondicionEvaluador e : evaluador.evaluadores()) {
+            List<EvaluadorCondiciones.Entrada> delTipo = entradas.get(e.idTipo());
+            if (delTipo != null) {
+                compilados.add(evaluador.compilar(e, delTipo));
+            }
+        }
+
+        return new CatalogoLogros(List.copyOf(copiaLogros), List.copyOf(copiaCondiciones),
+                List.copyOf(copiaTipos), List.copyOf(compilados));
+    }
+
+    public List<Logro> logros() {
+        return logros;
+    }
+
+    public List<Condicion> condiciones() {
+        return condiciones;
+    }
+
+    public List<Tipo_condicion> tipos() {
+        return tipos;
+    }
+
+    // Logros que el usuario ya cumple, por tipo de condicion y de menor a mayor restriccion
+    public List<Integer> satisfechos(MetricasUsuario metricas) {
+        List<Integer> ids = new ArrayList<>();
+        for (EvaluadorCondiciones.TipoCompilado tipo : compilados) {
+            tipo.satisfechos(metricas, ids);
+        }
+        return ids;
+    }
+
+    // Logros cuyo umbral se cruzo al pasar de 'antes' a 'despues'
+    public void cruzados(MetricasUsuario antes, MetricasUsuario despues, Collection<Integer> destino) {
+        for (EvaluadorCondiciones.TipoCompilado tipo : compilados) {
+            tipo.cruzados(antes, despues, destino);
+        }
+    }
+}
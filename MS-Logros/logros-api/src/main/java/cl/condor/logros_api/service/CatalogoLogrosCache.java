@@ -0,0 +1,78 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.repository.CondicionRepository;
+import cl.condor.logros_api.repository.LogroRepository;
+import cl.condor.logros_api.repository.TipoCondicionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache de lectura del catalogo de logros (cambia muy de vez en cuando).
+// LogroService y CondicionService la invalidan despues del commit de cada cambio;
+// el TTL solo cubre cambios hechos por otra instancia. Metricas en
+// logros.catalogo.cache{resultado=hit|miss}.
+@Component
+public class CatalogoLogrosCache {
+
+    private record Entrada(CatalogoLogros catalogo, long cargadoEnNanos) {
+    }
+
+    private final LogroRepository logroRepository;
+    private final CondicionRepository condicionRepository;
+    private final TipoCondicionRepository tipoCondicionRepository;
+    private final EvaluadorCondiciones evaluadorCondiciones;
+    private final long ttlNanos;
+    private final Counter aciertos;
+    private final Counter fallos;
+
+    // Cada invalidacion sube la version; una carga que empezo antes no se publica
+    private final AtomicLong version = new AtomicLong();
+    private volatile Entrada entrada;
+
+    @Autowired
+    public CatalogoLogrosCache(LogroRepository logroRepository, CondicionRepository condicionRepository,
+                               TipoCondicionRepository tipoCondicionRepository, EvaluadorCondiciones evaluadorCondiciones,
+                               MeterRegistry meterRegistry, @Value("${logros.catalogo.ttl:PT10M}") Duration ttl) {
+        this.logroRepository = logroRepository;
+        this.condicionRepository = condicionRepository;
+        this.tipoCondicionRepository = tipoCondicionRepository;
+        this.evaluadorCondiciones = evaluadorCondiciones;
+        this.ttlNanos = ttl.toNanos();
+        this.aciertos = Counter.builder("logros.catalogo.cache").tag("resultado", "hit").register(meterRegistry);
+        this.fallos = Counter.builder("logros.catalogo.cache").tag("resultado", "miss").register(meterRegistry);
+    }
+
+    public CatalogoLogros snapshot() {
+        Entrada actual = entrada;
+        if (actual != null && System.nanoTime() - actual.cargadoEnNanos() < ttlNanos) {
+            aciertos.increment();
+            return actual.catalogo();
+        }
+        fallos.increment();
+        long versionInicial = version.get();
+        CatalogoLogros catalogo = CatalogoLogros.compilar(evaluadorCondiciones,
+                logroRepository.findAll(), condicionRepository.findAll(), tipoCondicionRepository.findAll());
+        synchronized (this) {
+            if (version.get() == versionInicial) {
+                entrada = new Entrada(catalogo, System.nanoTime());
+            }
+        }
+        return catalogo;
+    }
+
+    // Se aplica al hacer commit: un rollback deja el catalogo como estaba
+    public void invalidar() {
+        DespuesDelCommit.ejecutar(() -> {
+            synchronized (this) {
+                version.incrementAndGet();
+                entrada = null;
+            }
+        });
+    }
+}
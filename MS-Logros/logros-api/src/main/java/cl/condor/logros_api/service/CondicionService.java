@@ -1,5 +1,6 @@
 package cl.condor.logros_api.service;
 
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
 import cl.condor.logros_api.model.Condicion;
 import cl.condor.logros_api.model.Tipo_condicion;
 import cl.condor.logros_api.repository.CondicionRepository;
@@ -21,15 +22,21 @@ public class CondicionService {
     @Autowired
     private TipoCondicionRepository tipo_condicionRepository;
 
+    @Autowired
+    private CatalogoLogrosCache catalogoLogrosCache;
+
+    @Autowired
+    private EvaluadorCondiciones evaluadorCondiciones;
+
     //Nos entrega una lsita de los Json de todas las condiciones
-    public List<Condicion> findAll(){ return condicionRepository.findAll();}
+    public List<Condicion> findAll(){ return catalogoLogrosCache.snapshot().condiciones();}
 
     //Buscar una condicion especifica
     public Condicion findById(int id){
         return condicionRepository.findById(id).orElseThrow(() -> new RuntimeException("Ruta no encontrada"));
     }
 
-    public List<Tipo_condicion> findAllTipoCondicion(){ return tipo_condicionRepository.findAll();}
+    public List<Tipo_condicion> findAllTipoCondicion(){ return catalogoLogrosCache.snapshot().tipos();}
 
     public Tipo_condicion findTipoCondicionById(int id){
         return tipo_condicionRepository.findById(id).orElseThrow(() -> new RuntimeException("Tipo condicion no encontrado"));
@@ -37,19 +44,15 @@ public class CondicionService {
 
     //Aqui haremos los Post, desde las entidades fuertes hasta las que dependen de estas
     public Tipo_condicion save(Tipo_condicion tipo_condicion){
+        catalogoLogrosCache.invalidar();
         return tipo_condicionRepository.save(tipo_condicion);
     }
 
     //Entidad debil
     @Transactional
     public Condicion save(Condicion condicion){
-        if (condicion.getId_tipo_condicion() == 1){
-            condicion.setCondicion("Recorrer "+condicion.getRestriccion()+" km");
-        }else if (condicion.getId_tipo_condicion() == 2){
-            condicion.setCondicion("Terminar "+condicion.getRestriccion()+" rutas en diferentes regiones");
-        }else if (condicion.getId_tipo_condicion() == 3){
-            condicion.setCondicion("Termina "+condicion.getRestriccion()+" rutas");
-        }
+        actualizarTexto(condicion);
+        catalogoLogrosCache.invalidar();
         return condicionRepository.save(condicion);
     }
 
@@ -58,13 +61,8 @@ public class CondicionService {
         Condicion condicion = condicionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Condicion no encontrada"));
         condicion.setRestriccion(restriccion);
-        if (condicion.getId_tipo_condicion() == 1){
-            condicion.setCondicion("Recorrer "+condicion.getRestriccion()+" km");
-        }else if (condicion.getId_tipo_condicion() == 2){
-            condicion.setCondicion("Terminar "+condicion.getRestriccion()+" rutas en diferentes regiones");
-        }else if (condicion.getId_tipo_condicion() == 3){
-            condicion.setCondicion("Termina "+condicion.getRestriccion()+" rutas");
-        }
+        actualizarTexto(condicion);
+        catalogoLogrosCache.invalidar();
         return condicionRepository.save(condicion);
     }
 
@@ -73,14 +71,15 @@ public class CondicionService {
         Condicion condicion = condicionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Condicion no encontrada"));
         condicion.setId_tipo_condicion(idTipoCondicion);
-        if (idTipoCondicion == 1){
-            condicion.setCondicion("Recorrer "+condicion.getRestriccion()+" km");
-        }else if (idTipoCondicion == 2){
-            condicion.setCondicion("Terminar "+condicion.getRestriccion()+" rutas en diferentes regiones");
-        }else if (idTipoCondicion == 3){
-            condicion.setCondicion("Termina "+condicion.getRestriccion()+" rutas");
-        }
+        actualizarTexto(condicion);
+        catalogoLogrosCache.invalidar();
         return condicionRepository.save(condicion);
     }
 
+    // El texto lo arma el evaluador del tipo; un tipo sin evaluador conserva su texto
+    private void actualizarTexto(Condicion condicion) {
+        evaluadorCondiciones.plantilla(condicion.getId_tipo_condicion(), condicion.getRestriccion())
+                .ifPresent(condicion::setCondicion);
+    }
+
 }
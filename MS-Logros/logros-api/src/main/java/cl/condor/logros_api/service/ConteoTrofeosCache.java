@@ -0,0 +1,103 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.repository.TrofeoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cantidad de usuarios que tiene cada logro, en memoria para el salon de la fama.
+// Se carga con un solo GROUP BY al arrancar (y cada cierto tiempo, por si hay otras
+// instancias escribiendo) y se incrementa despues del commit de cada trofeo nuevo.
+@Component
+public class ConteoTrofeosCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConteoTrofeosCache.class);
+
+    @Autowired
+    private TrofeoRepository trofeoRepository;
+
+    private volatile ConcurrentHashMap<Integer, LongAdder> conteos;
+
+    // Incrementos registrados mientras corre el GROUP BY de recargar(); null fuera de una recarga
+    private final Object registro = new Object();
+    private Map<Integer, Long> duranteRecarga;
+
+    // Se empieza a anotar antes de lanzar la consulta: un trofeo confirmado despues de la foto del
+    // GROUP BY no viene en el resultado y se suma desde lo anotado. Uno confirmado justo antes de la
+    // consulta cuyo incremento llega despues puede contarse dos veces hasta la proxima recarga.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${logros.conteo.resincronizar:PT10M}", initialDelayString = "${logros.conteo.resincronizar:PT10M}")
+    public synchronized void recargar() {
+        synchronized (registro) {
+            duranteRecarga = new HashMap<>();
+        }
+        ConcurrentHashMap<Integer, LongAdder> nuevos = new ConcurrentHashMap<>();
+        try {
+            for (Object[] fila : trofeoRepository.contarPorLogro()) {
+                LongAdder adder = new LongAdder();
+                adder.add(((Number) fila[1]).longValue());
+                nuevos.put((Integer) fila[0], adder);
+            }
+            synchronized (registro) {
+                duranteRecarga.forEach((idLogro, n) -> nuevos.computeIfAbsent(idLogro, id -> new LongAdder()).add(n));
+                conteos = nuevos;
+            }
+        } finally {
+            synchronized (registro) {
+                duranteRecarga = null;
+            }
+        }
+        logger.debug("Conteo de trofeos recargado: {} logros", nuevos.size());
+    }
+
+    public long conteo(Integer idLogro) {
+        LongAdder adder = cargados().get(idLogro);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public Map<Integer, Long> todos() {
+        Map<Integer, Long> copia = new HashMap<>();
+        cargados().forEach((id, adder) -> copia.put(id, adder.sum()));
+        return copia;
+    }
+
+    // Se aplica solo si la transaccion que inserto los trofeos hace commit
+    public void registrar(Iterable<Integer> idsLogro) {
+        DespuesDelCommit.ejecutar(() -> {
+            // La carga inicial va fuera del candado para no cruzarse con el de recargar()
+            cargados();
+            synchronized (registro) {
+                ConcurrentHashMap<Integer, LongAdder> actuales = conteos;
+                for (Integer idLogro : idsLogro) {
+                    actuales.computeIfAbsent(idLogro, id -> new LongAdder()).increment();
+                    if (duranteRecarga != null) {
+                        duranteRecarga.merge(idLogro, 1L, Long::sum);
+                    }
+                }
+            }
+        });
+    }
+
+    // Si llega una consulta antes de ApplicationReadyEvent se carga en ese momento
+    private ConcurrentHashMap<Integer, LongAdder> cargados() {
+        ConcurrentHashMap<Integer, LongAdder> actuales = conteos;
+        if (actuales == null) {
+            synchronized (this) {
+                if (conteos == null) {
+                    recargar();
+                }
+                actuales = conteos;
+            }
+        }
+        return actuales;
+    }
+}
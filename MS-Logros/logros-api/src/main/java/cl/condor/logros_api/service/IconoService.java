@@ -0,0 +1,133 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.model.LogroIcono;
+import cl.condor.logros_api.repository.LogroIconoJdbcRepository;
+import cl.condor.logros_api.repository.LogroIconoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Guarda y sirve los iconos de logros. Los mas pedidos quedan en una cache LRU acotada
+// por bytes, asi un icono caliente se sirve sin ir a MySQL.
+@Service
+public class IconoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IconoService.class);
+
+    @Autowired
+    private LogroIconoRepository logroIconoRepository;
+
+    @Autowired
+    private LogroIconoJdbcRepository logroIconoJdbcRepository;
+
+    // Un icono sin logros no se borra si se guardo hace menos que esto: puede ser el de un logro
+    // cuya transaccion aun no hace commit
+    @Value("${logros.iconos.gracia-borrado:PT1H}")
+    private Duration graciaBorrado = Duration.ofHours(1);
+
+    @Value("${logros.iconos.cache-max-bytes:8388608}")
+    private long maxBytesCache;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<String, LogroIcono> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesEnCache;
+
+    // Retorna el hash con el que queda guardado el icono; si ya existia solo se renueva su fecha
+    public String guardar(byte[] datos) {
+        String hash = sha256(datos);
+        logroIconoJdbcRepository.guardar(hash, datos, tipoContenido(datos), LocalDateTime.now());
+        return hash;
+    }
+
+    public Optional<LogroIcono> buscar(String hash) {
+        synchronized (cache) {
+            LogroIcono enCache = cache.get(hash);
+            if (enCache != null) {
+                return Optional.of(enCache);
+            }
+        }
+        Optional<LogroIcono> icono = logroIconoRepository.findById(hash);
+        icono.ifPresent(this::cachear);
+        return icono;
+    }
+
+    // Borra el icono si ya ningun logro lo usa (se llama despues del commit al reemplazar el
+    // icono de un logro). Si es reciente se deja; lo borra limpiarHuerfanos mas adelante.
+    public void liberarSiHuerfano(String hash) {
+        if (hash != null && logroIconoJdbcRepository.borrarSiHuerfano(hash, LocalDateTime.now().minus(graciaBorrado))) {
+            synchronized (cache) {
+                LogroIcono quitado = cache.remove(hash);
+                if (quitado != null) {
+                    bytesEnCache -= quitado.getDatos().length;
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${logros.iconos.limpieza:PT6H}", initialDelayString = "${logros.iconos.limpieza:PT6H}")
+    public void limpiarHuerfanos() {
+        try {
+            int borrados = logroIconoJdbcRepository.borrarHuerfanos(LocalDateTime.now().minus(graciaBorrado));
+            if (borrados > 0) {
+                synchronized (cache) {
+                    cache.clear();
+                    bytesEnCache = 0;
+                }
+                logger.info("Iconos huerfanos borrados: {}", borrados);
+            }
+        } catch (RuntimeException e) {
+            logger.error("No se pudo completar la limpieza de iconos", e);
+        }
+    }
+
+    private void cachear(LogroIcono icono) {
+        int tamano = icono.getDatos().length;
+        if (tamano > maxBytesCache) {
+            return;
+        }
+        synchronized (cache) {
+            if (cache.put(icono.getHash(), icono) == null) {
+                bytesEnCache += tamano;
+            }
+            Iterator<Map.Entry<String, LogroIcono>> it = cache.entrySet().iterator();
+            while (bytesEnCache > maxBytesCache && it.hasNext()) {
+                bytesEnCache -= it.next().getValue().getDatos().length;
+                it.remove();
+            }
+        }
+    }
+
+    static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static String tipoContenido(byte[] datos) {
+        try {
+            String tipo = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(datos));
+            return tipo != null ? tipo : "application/octet-stream";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package cl.condor.logros_api.service;
 
-import cl.condor.logros_api.model.Condicion;
+import cl.condor.logros_api.condicion.MetricasUsuario;
+import cl.condor.logros_api.dto.TrofeoDetalle;
 import cl.condor.logros_api.model.Logro;
-import cl.condor.logros_api.model.Tipo_condicion;
 import cl.condor.logros_api.model.Trofeo;
 import cl.condor.logros_api.repository.CondicionRepository;
 import cl.condor.logros_api.repository.LogroRepository;
 import cl.condor.logros_api.repository.TipoCondicionRepository;
+import cl.condor.logros_api.repository.TrofeoJdbcRepository;
 import cl.condor.logros_api.repository.TrofeoRepository;
 import cl.condor.logros_api.webclient.EstadoClient;
 import cl.condor.logros_api.webclient.IniciarRutaClient;
@@ -36,6 +37,9 @@ public class LogroService {
     @Autowired
     private TrofeoRepository trofeoRepository;
 
+    @Autowired
+    private TrofeoJdbcRepository trofeoJdbcRepository;
+
     @Autowired
     private EstadoClient estadoClient;
 
@@ -51,115 +55,128 @@ public class LogroService {
     @Autowired
     private RutaClient rutaClient;
 
-    public List<Logro> findAll(){return logroRepository.findAll();}
+    @Autowired
+    private ConteoTrofeosCache conteoTrofeosCache;
+
+    @Autowired
+    private IconoService iconoService;
+
+    @Autowired
+    private CatalogoLogrosCache catalogoLogrosCache;
+
+    public List<Logro> findAll(){return catalogoLogrosCache.snapshot().logros();}
 
     public Logro findById(Integer id){
         return logroRepository.findById(id).orElseThrow(() -> new RuntimeException("Logro no encontrado"));
     }
 
+    public List<TrofeoDetalle> findTrofeosByUsuario(Integer idUsuario){
+        return trofeoRepository.findDetalleByIdUsuario(idUsuario);
+    }
+
     @Transactional
     public Logro save(Logro logro){
         Map<String, Object> estado = estadoClient.getEstadosById(logro.getId_estado());
         condicionRepository.findById(logro.getId_condicion())
                 .orElseThrow(() -> new RuntimeException("Condicion no encontrado"));
 
+        if (logro.getIcono() != null) {
+            logro.setIconoHash(iconoService.guardar(logro.getIcono()));
+            logro.setIcono(null);
+        }
+        catalogoLogrosCache.invalidar();
         return logroRepository.save(logro);
     }
 
+    // Entrega el primer logro cumplido que el usuario aun no tiene (por tipo de condicion
+    // y luego de menor a mayor restriccion), o 403 si no cumple ninguno nuevo
     @Transactional
     public Trofeo ganarLogro(Integer IdUser){
-        List<Logro> logros = logroRepository.findAll();
-        Map<String, Object> usuario = usuarioClient.getUsuariosById(IdUser);
-
-        BigDecimal km_recorridos = new BigDecimal(usuario.get("kmRecorridos").toString());
-
-        //Traemos los iniciar rutas para ver cuantas rutas a realizado el usuario
-        List<Map<String, Object>> iniciarRutas = iniciarRutaClient.getRutasByUsuario(IdUser);
+        CatalogoLogros catalogo = catalogoLogrosCache.snapshot();
+        MetricasUsuario metricas = calcularMetricas(IdUser);
+
+        // Trofeos del usuario se cargan una sola vez, no por cada logro
+        Set<Integer> logrosGanados = trofeoRepository.findIdLogroByIdUsuario(IdUser);
+
+        for (Integer idLogro : catalogo.satisfechos(metricas)) {
+            if (!logrosGanados.contains(idLogro)) {
+                Trofeo trofeo = new Trofeo(
+                        null,
+                        LocalDateTime.now(),
+                        IdUser,
+                        idLogro
+                );
+                Trofeo guardado = trofeoRepository.save(trofeo);
+                conteoTrofeosCache.registrar(List.of(idLogro));
+                return guardado;
+            }
+        }
 
-        // Lista donde guardaremos todas las rutas con los datos completos
-        List<Map<String, Object>> rutas = new ArrayList<>();
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No se ha ganado el logro");
 
-        // Recorremos cada entrada de iniciarRutas
-        for (Map<String, Object> iniciarRutaItem : iniciarRutas) {
-            // Obtenemos el idRuta de cada elemento
-            Integer idRuta = (Integer) iniciarRutaItem.get("idRuta");
+    }
 
-            if (iniciarRutaItem.get("ffinal") != null) {
-                // Llamamos al cliente para traer los datos completos de la ruta
-                Map<String, Object> rutaCompleta = rutaClient.getRutaById(idRuta);
+    // Evalua todos los logros de una vez: calcula las estadisticas del usuario una sola vez e
+    // inserta todos los trofeos nuevos en un solo batch. Retorna solo los trofeos recien ganados
+    // (lista vacia si no gano ninguno); llamadas concurrentes no duplican trofeos.
+    @Transactional
+    public List<Trofeo> ganarLogros(Integer IdUser){
+        CatalogoLogros catalogo = catalogoLogrosCache.snapshot();
+        MetricasUsuario metricas = calcularMetricas(IdUser);
 
+        Set<Integer> logrosGanados = trofeoRepository.findIdLogroByIdUsuario(IdUser);
 
-                // Agregamos la ruta completa a nuestra lista
-                rutas.add(rutaCompleta);
+        List<Integer> nuevos = new ArrayList<>();
+        for (Integer idLogro : catalogo.satisfechos(metricas)) {
+            if (!logrosGanados.contains(idLogro)) {
+                nuevos.add(idLogro);
             }
         }
 
-        Set<String> regionesUnicas = new HashSet<>();
-
-        for (Map<String, Object> ruta : rutas) {
-            String region = ruta.get("id_region").toString();
-            if (region != null) {
-                regionesUnicas.add(region); // HashSet elimina duplicados automáticamente
-            }
+        List<Integer> insertados = trofeoJdbcRepository.insertarIgnorandoExistentes(IdUser, nuevos, LocalDateTime.now());
+        if (insertados.isEmpty()) {
+            return List.of();
         }
+        conteoTrofeosCache.registrar(insertados);
+        return trofeoRepository.findByIdUsuarioAndIdLogroIn(IdUser, insertados);
+    }
 
-        // Cantidad de regiones distintas
-        BigDecimal cantidadRegiones = BigDecimal.valueOf(regionesUnicas.size());
-
-
-        //Cantidad de rutas recorridas por el usuario (contamos si completo una mas de una vez)
-        BigDecimal cantidadRutas = BigDecimal.valueOf(rutas.size());
-
+    // Kilometros, regiones distintas y recorridos terminados del usuario
+    private MetricasUsuario calcularMetricas(Integer IdUser) {
+        Map<String, Object> usuario = usuarioClient.getUsuariosById(IdUser);
 
-        for (Logro log : logros) {
-            Condicion condicion = condicionRepository.getReferenceById(log.getId_condicion());boolean ifExist = trofeoRepository.existsByIdUsuarioAndIdLogro(IdUser,log.getIdLogro());
+        BigDecimal km_recorridos = new BigDecimal(usuario.get("kmRecorridos").toString());
 
-            if (ifExist) {
-                continue;
+        // Resumen ya agregado por iniciar-rutas: veces que termino cada ruta (no la lista de recorridos)
+        Map<String, Object> resumen = iniciarRutaClient.getResumenByUsuario(IdUser);
+        Map<Integer, Integer> vecesPorRuta = new HashMap<>();
+        Object rutas = resumen == null ? null : resumen.get("rutas");
+        if (rutas instanceof List<?> lista) {
+            for (Object item : lista) {
+                Map<?, ?> ruta = (Map<?, ?>) item;
+                vecesPorRuta.put(((Number) ruta.get("idRuta")).intValue(), ((Number) ruta.get("veces")).intValue());
             }
+        }
 
+        // Cada ruta distinta se pide una sola vez, en lotes paralelos a rutas-api
+        Map<Integer, Map<String, Object>> rutasPorId = rutaClient.getRutasByIds(vecesPorRuta.keySet());
 
-            if (Objects.equals(condicion.getId_tipo_condicion(), 1)) {
-                if (km_recorridos.compareTo(condicion.getRestriccion()) >= 0) {
-                    Trofeo trofeo = new Trofeo(
-                            null,
-                            LocalDateTime.now(),
-                            IdUser,
-                            log.getIdLogro()
-                            );
-                    return trofeoRepository.save(trofeo);
-                }
-
-            }
-
-            if (Objects.equals(condicion.getId_tipo_condicion(), 2)) {
-                if (cantidadRegiones.compareTo(condicion.getRestriccion()) >= 0) {
-                    Trofeo trofeo = new Trofeo(
-                            null,
-                            LocalDateTime.now(),
-                            IdUser,
-                            log.getIdLogro()
-                    );
-                    return trofeoRepository.save(trofeo);
-                }
+        Set<String> regionesUnicas = new HashSet<>();
+        int recorridos = 0;
+        for (Map.Entry<Integer, Integer> entry : vecesPorRuta.entrySet()) {
+            Map<String, Object> ruta = rutasPorId.get(entry.getKey());
+            if (ruta == null) {
+                continue;
             }
-
-            if (Objects.equals(condicion.getId_tipo_condicion(), 3)) {
-                if (cantidadRutas.compareTo(condicion.getRestriccion()) >= 0){
-                    Trofeo trofeo = new Trofeo(
-                            null,
-                            LocalDateTime.now(),
-                            IdUser,
-                            log.getIdLogro()
-                    );
-                    return trofeoRepository.save(trofeo);
-                }
+            recorridos += entry.getValue();
+            Object region = ruta.get("id_region");
+            if (region != null) {
+                regionesUnicas.add(region.toString()); // HashSet elimina duplicados automáticamente
             }
-
         }
 
-        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No se ha ganado el logro");
-
+        // Cantidad de regiones distintas y de rutas recorridas (contamos si completo una mas de una vez)
+        return MetricasUsuario.de(km_recorridos, regionesUnicas.size(), recorridos);
     }
 
     @Transactional
@@ -167,6 +184,7 @@ public class LogroService {
         Logro logro = logroRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Logro no encontrado"));
         logro.setNombre(nombre);
+        catalogoLogrosCache.invalidar();
         return logroRepository.save(logro);
     }
 
@@ -175,6 +193,7 @@ public class LogroService {
         Logro logro = logroRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Logro no encontrado"));
         logro.setDescripcion(descripcion);
+        catalogoLogrosCache.invalidar();
         return logroRepository.save(logro);
     }
 
@@ -183,6 +202,7 @@ public class LogroService {
         Logro logro = logroRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Logro no encontrado"));
         logro.setId_estado(estado);
+        catalogoLogrosCache.invalidar();
         return logroRepository.save(logro);
     }
 
@@ -190,8 +210,15 @@ public class LogroService {
     public Logro updateIcono(Integer id, byte[] icono){
         Logro logro = logroRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Logro no encontrado"));
-        logro.setIcono(icono);
-        return logroRepository.save(logro);
+        String anterior = logro.getIconoHash();
+        logro.setIconoHash(iconoService.guardar(icono));
+        Logro guardado = logroRepository.save(logro);
+        catalogoLogrosCache.invalidar();
+        if (anterior != null && !anterior.equals(guardado.getIconoHash())) {
+            // Fuera de la transaccion: el conteo de logros que usan el icono ya incluye este cambio
+            DespuesDelCommit.ejecutar(() -> iconoService.liberarSiHuerfano(anterior));
+        }
+        return guardado;
     }
 
 }
@@ -0,0 +1,55 @@
+package cl.condor.logros_api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Migracion de una sola vez: mueve los iconos que quedaron en la antigua columna
+// logro.icono (LONGBLOB) a logro_icono y vacia la columna. Se activa con
+// logros.iconos.migrar-longblob=true; es idempotente, solo toma filas sin icono_hash.
+@Component
+@ConditionalOnProperty(name = "logros.iconos.migrar-longblob", havingValue = "true")
+public class MigracionIconosRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionIconosRunner.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IconoService iconoService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Integer> pendientes;
+        try {
+            pendientes = jdbcTemplate.queryForList(
+                    "SELECT id_logro FROM logro WHERE icono IS NOT NULL AND icono_hash IS NULL", Integer.class);
+        } catch (DataAccessException e) {
+            logger.info("Sin columna logro.icono que migrar");
+            return;
+        }
+
+        int migrados = 0;
+        for (Integer idLogro : pendientes) {
+            try {
+                byte[] datos = jdbcTemplate.queryForObject(
+                        "SELECT icono FROM logro WHERE id_logro = ?", byte[].class, idLogro);
+                String hash = iconoService.guardar(datos);
+                jdbcTemplate.update("UPDATE logro SET icono_hash = ?, icono = NULL WHERE id_logro = ?", hash, idLogro);
+                migrados++;
+            } catch (RuntimeException e) {
+                logger.warn("No se pudo migrar el icono del logro {}", idLogro, e);
+            }
+        }
+        logger.info("Iconos migrados a logro_icono: {} de {}", migrados, pendientes.size());
+    }
+}
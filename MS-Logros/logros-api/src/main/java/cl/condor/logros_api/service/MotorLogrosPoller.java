@@ -0,0 +1,72 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.webclient.IniciarRutaClient;
+import cl.condor.logros_api.webclient.RutaClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Consume el outbox de iniciar-rutas (GET /eventos?desde=) y entrega cada lote al motor.
+// Las llamadas HTTP quedan fuera de la transaccion; solo aplicar() escribe en la BD.
+@Component
+@ConditionalOnProperty(name = "logros.motor.habilitado", havingValue = "true", matchIfMissing = true)
+public class MotorLogrosPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(MotorLogrosPoller.class);
+
+    @Autowired
+    private MotorLogrosService motorLogrosService;
+
+    @Autowired
+    private IniciarRutaClient iniciarRutaClient;
+
+    @Autowired
+    private RutaClient rutaClient;
+
+    @Value("${logros.motor.lote:100}")
+    private int lote;
+
+    @Scheduled(fixedDelayString = "${logros.motor.intervalo:PT15S}", initialDelayString = "${logros.motor.retraso-inicial:PT30S}")
+    public void procesarEventos() {
+        try {
+            // Un lote completo indica que puede haber mas eventos esperando
+            int procesados;
+            do {
+                procesados = procesarLote();
+            } while (procesados == lote);
+        } catch (WebClientException e) {
+            logger.warn("Motor de logros: servicio remoto no disponible, se reintenta en el proximo ciclo: {}", e.getMessage());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            logger.info("Motor de logros: otra instancia avanzo el cursor, se reintenta en el proximo ciclo");
+        } catch (DataIntegrityViolationException e) {
+            // Sin la fila sembrada, dos instancias pueden insertar el cursor a la vez; la que pierde reintenta
+            logger.info("Motor de logros: otra instancia creo el cursor, se reintenta en el proximo ciclo");
+        }
+    }
+
+    int procesarLote() {
+        long desde = motorLogrosService.ultimoEventoProcesado();
+        List<Map<String, Object>> eventos = iniciarRutaClient.getEventos(desde, lote);
+        if (eventos == null || eventos.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> idsRuta = new HashSet<>();
+        for (Map<String, Object> evento : eventos) {
+            idsRuta.add((Integer) evento.get("idRuta"));
+        }
+        motorLogrosService.aplicar(eventos, rutaClient.getRutasByIds(idsRuta));
+        return eventos.size();
+    }
+}
@@ -0,0 +1,129 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.condicion.MetricasUsuario;
+import cl.condor.logros_api.model.CursorEvento;
+import cl.condor.logros_api.model.EstadisticaUsuario;
+import cl.condor.logros_api.repository.CursorEventoRepository;
+import cl.condor.logros_api.repository.EstadisticaUsuarioRepository;
+import cl.condor.logros_api.repository.TrofeoJdbcRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Motor incremental de logros: aplica eventos de rutas terminadas sobre los acumulados
+// de cada usuario y entrega un trofeo en el momento en que se cruza un umbral.
+// Cada evento cuesta O(1) respecto del historial del usuario (no se recalcula nada).
+@Service
+public class MotorLogrosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MotorLogrosService.class);
+
+    public static final String CURSOR_ABRIR_RUTA = "abrir-ruta";
+
+    @Autowired
+    private EstadisticaUsuarioRepository estadisticaUsuarioRepository;
+
+    @Autowired
+    private CursorEventoRepository cursorEventoRepository;
+
+    @Autowired
+    private CatalogoLogrosCache catalogoLogrosCache;
+
+    @Autowired
+    private TrofeoJdbcRepository trofeoJdbcRepository;
+
+    @Autowired
+    private ConteoTrofeosCache conteoTrofeosCache;
+
+    public long ultimoEventoProcesado() {
+        return cursorEventoRepository.findById(CURSOR_ABRIR_RUTA)
+                .map(CursorEvento::getUltimoId)
+                .orElse(0L);
+    }
+
+    // Aplica un lote de eventos (ordenados por idEvento) y avanza el cursor en la misma
+    // transaccion: si algo falla no se pierde ni se duplica ningun evento. Avanzar hasta el
+    // ultimo id recibido es seguro porque iniciar-rutas corta el lote antes de cualquier id
+    // que todavia pueda aparecer (transaccion sin confirmar).
+    // 'rutasPorId' trae distancia e id_region de cada ruta; si una ruta ya no existe su
+    // evento se salta igual que en ganarLogro. Retorna la cantidad de trofeos entregados.
+    @Transactional
+    public int aplicar(List<Map<String, Object>> eventos, Map<Integer, Map<String, Object>> rutasPorId) {
+        CursorEvento cursor = cursorEventoRepository.findById(CURSOR_ABRIR_RUTA)
+                .orElseGet(() -> new CursorEvento(CURSOR_ABRIR_RUTA, 0L, null));
+        long ultimo = cursor.getUltimoId();
+
+        List<Map<String, Object>> pendientes = new ArrayList<>();
+        Set<Integer> idsUsuario = new HashSet<>();
+        for (Map<String, Object> evento : eventos) {
+            if (((Number) evento.get("idEvento")).longValue() > ultimo) {
+                pendientes.add(evento);
+                idsUsuario.add((Integer) evento.get("idUsuario"));
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+
+        CatalogoLogros catalogo = catalogoLogrosCache.snapshot();
+        Map<Integer, EstadisticaUsuario> estadisticas = new HashMap<>();
+        for (EstadisticaUsuario e : estadisticaUsuarioRepository.findAllById(idsUsuario)) {
+            estadisticas.put(e.getIdUsuario(), e);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        Map<Integer, Set<Integer>> ganados = new LinkedHashMap<>();
+        for (Map<String, Object> evento : pendientes) {
+            ultimo = ((Number) evento.get("idEvento")).longValue();
+            Map<String, Object> ruta = rutasPorId.get((Integer) evento.get("idRuta"));
+            if (ruta == null) {
+                continue;
+            }
+            Integer idUsuario = (Integer) evento.get("idUsuario");
+            EstadisticaUsuario stats = estadisticas.computeIfAbsent(idUsuario, EstadisticaUsuario::vacia);
+
+            MetricasUsuario antes = stats.metricas();
+
+            Object distancia = ruta.get("distancia");
+            if (distancia != null) {
+                stats.setKmTotal(stats.getKmTotal().add(new BigDecimal(distancia.toString())));
+            }
+            stats.setRutasTerminadas(stats.getRutasTerminadas() + 1);
+            Object region = ruta.get("id_region");
+            if (region != null) {
+                int idRegion = Integer.parseInt(region.toString());
+                if (idRegion >= 1 && idRegion < Integer.SIZE) {
+                    stats.setRegionesBits(stats.getRegionesBits() | (1 << (idRegion - 1)));
+                }
+            }
+            stats.setFActualizacion(ahora);
+
+            Set<Integer> logrosUsuario = ganados.computeIfAbsent(idUsuario, id -> new LinkedHashSet<>());
+            catalogo.cruzados(antes, stats.metricas(), logrosUsuario);
+        }
+
+        // INSERT IGNORE: un trofeo que ya se gano por ganarLogro/ganarLogros no se duplica
+        int entregados = 0;
+        for (Map.Entry<Integer, Set<Integer>> entry : ganados.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                List<Integer> insertados = trofeoJdbcRepository
+                        .insertarIgnorandoExistentes(entry.getKey(), new ArrayList<>(entry.getValue()), ahora);
+                conteoTrofeosCache.registrar(insertados);
+                entregados += insertados.size();
+            }
+        }
+
+        estadisticaUsuarioRepository.saveAll(estadisticas.values());
+        cursor.setUltimoId(ultimo);
+        cursorEventoRepository.save(cursor);
+
+        logger.debug("Motor de logros: {} eventos aplicados hasta {}, {} trofeos", pendientes.size(), ultimo, entregados);
+        return entregados;
+    }
+}
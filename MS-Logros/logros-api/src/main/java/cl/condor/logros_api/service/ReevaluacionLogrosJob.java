@@ -0,0 +1,114 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.model.ReevaluacionLogros;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+// Recorre una reevaluacion lote a lote en un hilo propio. Entre lotes espera 'pausa' para no
+// acaparar la BD; la evaluacion de cada lote usa un ForkJoinPool de 'paralelismo' hilos.
+// Si la instancia se detiene la reevaluacion queda EN_CURSO y se retoma desde su checkpoint.
+@Component
+public class ReevaluacionLogrosJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReevaluacionLogrosJob.class);
+
+    @Autowired
+    private ReevaluacionLogrosService reevaluacionLogrosService;
+
+    @Value("${logros.reevaluacion.lote:1000}")
+    private int lote;
+
+    @Value("${logros.reevaluacion.pausa:PT0.1S}")
+    private Duration pausa;
+
+    @Value("${logros.reevaluacion.reanudar-al-iniciar:true}")
+    private boolean reanudarAlIniciar;
+
+    private final ForkJoinPool pool;
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "reevaluacion-logros");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    // Reevaluaciones que esta instancia esta recorriendo, y las que se pidieron lanzar mientras su
+    // hilo anterior aun no salia (p. ej. reanudar justo despues de cancelar). Ambas bajo 'activas'.
+    private final Set<Long> activas = new HashSet<>();
+    private final Set<Long> relanzar = new HashSet<>();
+
+    public ReevaluacionLogrosJob(@Value("${logros.reevaluacion.paralelismo:0}") int paralelismo) {
+        this.pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+    }
+
+    public void lanzar(Long id) {
+        synchronized (activas) {
+            if (!activas.add(id)) {
+                // El hilo actual puede estar saliendo (vio la cancelacion o perdio el checkpoint):
+                // al terminar lo vuelve a lanzar, y si sigue EN_CURSO el nuevo hilo continua
+                relanzar.add(id);
+                return;
+            }
+        }
+        ejecutor.submit(() -> recorrer(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarPendientes() {
+        if (!reanudarAlIniciar) {
+            return;
+        }
+        for (ReevaluacionLogros pendiente : reevaluacionLogrosService.findEnCurso()) {
+            logger.info("Reevaluacion {}: se retoma desde el usuario {}", pendiente.getIdReevaluacion(), pendiente.getUltimoIdUsuario());
+            lanzar(pendiente.getIdReevaluacion());
+        }
+    }
+
+    void recorrer(Long id) {
+        try {
+            while (reevaluacionLogrosService.procesarLote(id, lote, pool)) {
+                if (!pausa.isZero()) {
+                    Thread.sleep(pausa.toMillis());
+                }
+            }
+            ReevaluacionLogros fin = reevaluacionLogrosService.findById(id);
+            logger.info("Reevaluacion {} {}: {} usuarios, {} trofeos{}", id, fin.getEstado(), fin.getUsuariosProcesados(),
+                    fin.getTrofeosEntregados(), fin.getSimulacion() ? " (simulacion)" : "");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Se cancelo durante el lote u otra instancia la esta recorriendo; el lote se deshizo
+            logger.info("Reevaluacion {}: checkpoint modificado por otro proceso, se detiene", id);
+        } catch (RuntimeException e) {
+            logger.error("Reevaluacion {} fallida", id, e);
+            reevaluacionLogrosService.marcarFallida(id, e.getMessage());
+        } finally {
+            boolean otraVez;
+            synchronized (activas) {
+                activas.remove(id);
+                otraVez = relanzar.remove(id);
+            }
+            if (otraVez) {
+                lanzar(id);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdownNow();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,192 @@
+package cl.condor.logros_api.service;
+
+import cl.condor.logros_api.model.EstadisticaUsuario;
+import cl.condor.logros_api.model.Logro;
+import cl.condor.logros_api.model.ReevaluacionLogros;
+import cl.condor.logros_api.repository.EstadisticaUsuarioRepository;
+import cl.condor.logros_api.repository.ReevaluacionLogrosRepository;
+import cl.condor.logros_api.repository.TrofeoJdbcRepository;
+import cl.condor.logros_api.repository.TrofeoRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+// Reevalua los logros de todos los usuarios con estadisticas (estadistica_usuario, que mantiene
+// el motor). Sirve para entregar un logro nuevo o una restriccion rebajada a quienes ya la cumplen:
+// el motor solo entrega logros cuando un evento cruza el umbral, y ganarLogro depende del usuario.
+// Cada lote es una transaccion: trofeos + checkpoint, o nada. El recorrido lo maneja ReevaluacionLogrosJob.
+@Service
+public class ReevaluacionLogrosService {
+
+    @Autowired
+    private ReevaluacionLogrosRepository reevaluacionLogrosRepository;
+
+    @Autowired
+    private EstadisticaUsuarioRepository estadisticaUsuarioRepository;
+
+    @Autowired
+    private TrofeoRepository trofeoRepository;
+
+    @Autowired
+    private TrofeoJdbcRepository trofeoJdbcRepository;
+
+    @Autowired
+    private CatalogoLogrosCache catalogoLogrosCache;
+
+    @Autowired
+    private ConteoTrofeosCache conteoTrofeosCache;
+
+    // idsLogro null o vacio = todos los logros del catalogo
+    @Transactional
+    public ReevaluacionLogros iniciar(boolean simulacion, Collection<Integer> idsLogro) {
+        if (reevaluacionLogrosRepository.existsByEstado(ReevaluacionLogros.EN_CURSO)) {
+            throw new RuntimeException("Ya hay una reevaluacion en curso");
+        }
+        String logros = null;
+        if (idsLogro != null && !idsLogro.isEmpty()) {
+            Set<Integer> existentes = new HashSet<>();
+            for (Logro l : catalogoLogrosCache.snapshot().logros()) {
+                existentes.add(l.getIdLogro());
+            }
+            if (!existentes.containsAll(idsLogro)) {
+                throw new RuntimeException("Logro no encontrado");
+            }
+            logros = new TreeSet<>(idsLogro).stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+        ReevaluacionLogros reevaluacion = new ReevaluacionLogros(null, ReevaluacionLogros.EN_CURSO, simulacion, logros,
+                0, estadisticaUsuarioRepository.count(), 0L, 0L, LocalDateTime.now(), null, null, null, null, null);
+        // La validacion de arriba no basta con dos requests a la vez: el indice unico de en_curso
+        // rechaza la segunda (con IDENTITY el INSERT sale aqui mismo)
+        try {
+            return reevaluacionLogrosRepository.save(reevaluacion);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Ya hay una reevaluacion en curso");
+        }
+    }
+
+    public ReevaluacionLogros findById(Long id) {
+        return reevaluacionLogrosRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reevaluacion no encontrada"));
+    }
+
+    public List<ReevaluacionLogros> findEnCurso() {
+        return reevaluacionLogrosRepository.findByEstado(ReevaluacionLogros.EN_CURSO);
+    }
+
+    // Una reevaluacion cancelada o fallida sigue desde su checkpoint
+    @Transactional
+    public ReevaluacionLogros reanudar(Long id) {
+        ReevaluacionLogros reevaluacion = findById(id);
+        if (ReevaluacionLogros.COMPLETADA.equals(reevaluacion.getEstado())) {
+            throw new RuntimeException("La reevaluacion ya termino");
+        }
+        if (!ReevaluacionLogros.EN_CURSO.equals(reevaluacion.getEstado())
+                && reevaluacionLogrosRepository.existsByEstado(ReevaluacionLogros.EN_CURSO)) {
+            throw new RuntimeException("Ya hay una reevaluacion en curso");
+        }
+        reevaluacion.setEstado(ReevaluacionLogros.EN_CURSO);
+        reevaluacion.setError(null);
+        reevaluacion.setFFin(null);
+        try {
+            return reevaluacionLogrosRepository.saveAndFlush(reevaluacion);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Ya hay una reevaluacion en curso");
+        }
+    }
+
+    // El job lo nota al empezar el siguiente lote
+    @Transactional
+    public ReevaluacionLogros cancelar(Long id) {
+        ReevaluacionLogros reevaluacion = findById(id);
+        if (ReevaluacionLogros.EN_CURSO.equals(reevaluacion.getEstado())) {
+            reevaluacion.setEstado(ReevaluacionLogros.CANCELADA);
+            reevaluacion.setFFin(LocalDateTime.now());
+            reevaluacion = reevaluacionLogrosRepository.save(reevaluacion);
+        }
+        return reevaluacion;
+    }
+
+    @Transactional
+    public void marcarFallida(Long id, String error) {
+        ReevaluacionLogros reevaluacion = findById(id);
+        reevaluacion.setEstado(ReevaluacionLogros.FALLIDA);
+        reevaluacion.setError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+        reevaluacion.setFFin(LocalDateTime.now());
+        reevaluacionLogrosRepository.save(reevaluacion);
+    }
+
+    // Procesa los siguientes 'tamano' usuarios despues del checkpoint. La evaluacion se reparte
+    // en 'pool'; solo el lote actual queda en memoria. Retorna false si no queda nada por hacer
+    // (completada, cancelada o fallida).
+    @Transactional
+    public boolean procesarLote(Long id, int tamano, ForkJoinPool pool) {
+        ReevaluacionLogros reevaluacion = findById(id);
+        if (!ReevaluacionLogros.EN_CURSO.equals(reevaluacion.getEstado())) {
+            return false;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<EstadisticaUsuario> lote = estadisticaUsuarioRepository.findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(
+                reevaluacion.getUltimoIdUsuario(), PageRequest.of(0, tamano));
+        if (lote.isEmpty()) {
+            reevaluacion.setEstado(ReevaluacionLogros.COMPLETADA);
+            reevaluacion.setFActualizacion(ahora);
+            reevaluacion.setFFin(ahora);
+            reevaluacionLogrosRepository.save(reevaluacion);
+            return false;
+        }
+
+        List<Integer> idsUsuario = new ArrayList<>(lote.size());
+        for (EstadisticaUsuario e : lote) {
+            idsUsuario.add(e.getIdUsuario());
+        }
+        Map<Integer, Set<Integer>> ganados = new HashMap<>();
+        for (Object[] par : trofeoRepository.findParesByIdUsuarioIn(idsUsuario)) {
+            ganados.computeIfAbsent((Integer) par[0], u -> new HashSet<>()).add((Integer) par[1]);
+        }
+
+        CatalogoLogros catalogo = catalogoLogrosCache.snapshot();
+        Set<Integer> filtro = reevaluacion.idsLogro();
+        // Solo lecturas sobre el catalogo inmutable y 'ganados': seguro de evaluar en paralelo
+        Map<Integer, List<Integer>> nuevos = pool.submit(() -> lote.parallelStream()
+                .map(stats -> Map.entry(stats.getIdUsuario(),
+                        pendientes(catalogo, stats, ganados.getOrDefault(stats.getIdUsuario(), Set.of()), filtro)))
+                .filter(entry -> !entry.getValue().isEmpty())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, TreeMap::new)))
+                .join();
+
+        long entregados;
+        if (reevaluacion.getSimulacion()) {
+            entregados = nuevos.values().stream().mapToLong(List::size).sum();
+        } else {
+            List<Integer> insertados = trofeoJdbcRepository.insertarIgnorandoExistentes(nuevos, ahora);
+            conteoTrofeosCache.registrar(insertados);
+            entregados = insertados.size();
+        }
+
+        reevaluacion.setUltimoIdUsuario(lote.get(lote.size() - 1).getIdUsuario());
+        reevaluacion.setUsuariosProcesados(reevaluacion.getUsuariosProcesados() + lote.size());
+        reevaluacion.setTrofeosEntregados(reevaluacion.getTrofeosEntregados() + entregados);
+        reevaluacion.setFActualizacion(ahora);
+        reevaluacionLogrosRepository.save(reevaluacion);
+        return true;
+    }
+
+    private static List<Integer> pendientes(CatalogoLogros catalogo, EstadisticaUsuario stats,
+                                            Set<Integer> ganados, Set<Integer> filtro) {
+        List<Integer> ids = new ArrayList<>();
+        for (Integer idLogro : catalogo.satisfechos(stats.metricas())) {
+            if (!ganados.contains(idLogro) && (filtro == null || filtro.contains(idLogro))) {
+                ids.add(idLogro);
+            }
+        }
+        return ids;
+    }
+}
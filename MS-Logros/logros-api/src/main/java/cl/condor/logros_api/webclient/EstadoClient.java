@@ -11,8 +11,8 @@ public class EstadoClient {
 
     private final WebClient webClient;
 
-    public EstadoClient(@Value("${estado-service.url}") String estadoServiceURL){
-        this.webClient = WebClient.builder()
+    public EstadoClient(WebClient.Builder webClientBuilder, @Value("${estado-service.url}") String estadoServiceURL){
+        this.webClient = webClientBuilder
                 .baseUrl(estadoServiceURL)
                 .build();
     }
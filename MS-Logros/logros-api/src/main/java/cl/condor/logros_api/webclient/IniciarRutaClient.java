@@ -12,21 +12,29 @@ import java.util.Map;
 public class IniciarRutaClient {
     private final WebClient webClient;
 
-    public IniciarRutaClient(@Value("${iniciarRuta-service.url}") String iniciarRutaServiceURL){
-        this.webClient = WebClient.builder()
+    public IniciarRutaClient(WebClient.Builder webClientBuilder, @Value("${iniciarRuta-service.url}") String iniciarRutaServiceURL){
+        this.webClient = webClientBuilder
                 .baseUrl(iniciarRutaServiceURL)
                 .build();
     }
 
-    public List<Map<String, Object>> getRutasByUsuario(Integer idUsuario) {
+    // Agregados de los recorridos terminados del usuario (rutasTerminadas, rutas[{idRuta, veces}], ...)
+    public Map<String, Object> getResumenByUsuario(Integer idUsuario) {
         return this.webClient.get()
-                .uri("/usuario/{id}", idUsuario) // <--- apunta al endpoint que hiciste
+                .uri("/usuario/{id}/resumen", idUsuario)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .block();
+    }
+
+    // Eventos de rutas terminadas posteriores a 'desde' (outbox de iniciar-rutas)
+    public List<Map<String, Object>> getEventos(Long desde, Integer limite) {
+        return this.webClient.get()
+                .uri(uri -> uri.path("/eventos")
+                        .queryParam("desde", desde)
+                        .queryParam("limite", limite)
+                        .build())
                 .retrieve()
-                .onStatus(
-                        status -> status.is4xxClientError(),
-                        response -> response.bodyToMono(String.class)
-                                .map(body -> new RuntimeException("No se encontraron rutas para el usuario con id " + idUsuario))
-                )
                 .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
                 .block();
     }
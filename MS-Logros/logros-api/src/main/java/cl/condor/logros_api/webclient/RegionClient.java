@@ -11,8 +11,8 @@ public class RegionClient {
 
     private final WebClient webClient;
 
-    public RegionClient(@Value("${region-service.url}") String regionServiceURL){
-        this.webClient = WebClient.builder()
+    public RegionClient(WebClient.Builder webClientBuilder, @Value("${region-service.url}") String regionServiceURL){
+        this.webClient = webClientBuilder
                 .baseUrl(regionServiceURL)
                 .build();
     }
@@ -1,17 +1,27 @@
 package cl.condor.logros_api.webclient;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 @Component
 public class RutaClient {
+    private static final int TAMANO_LOTE = 100;
+    private static final int MAX_LOTES_EN_PARALELO = 4;
+
     private final WebClient webClient;
 
-    public RutaClient(@Value("${ruta-service.url}") String rutaServiceUrl) {
-        this.webClient = WebClient.builder()
+    public RutaClient(WebClient.Builder webClientBuilder, @Value("${ruta-service.url}") String rutaServiceUrl) {
+        this.webClient = webClientBuilder
                 .baseUrl(rutaServiceUrl)
                 .build();
     }
@@ -28,4 +38,31 @@ public class RutaClient {
                 .bodyToMono(Map.class)
                 .block();
     }
+
+    // Trae varias rutas usando GET /lote de rutas-api, en bloques de hasta 100 ids pedidos en paralelo.
+    // Retorna las rutas indexadas por idRuta; las que no existen no aparecen.
+    public Map<Integer, Map<String, Object>> getRutasByIds(Collection<Integer> ids){
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Integer>> bloques = new ArrayList<>();
+        for (int i = 0; i < distintos.size(); i += TAMANO_LOTE) {
+            bloques.add(distintos.subList(i, Math.min(i + TAMANO_LOTE, distintos.size())));
+        }
+        List<Map<String, Object>> rutas = Flux.fromIterable(bloques)
+                .flatMap(bloque -> this.webClient.get()
+                        .uri(uriBuilder -> uriBuilder.path("/lote").queryParam("ids", bloque).build())
+                        .retrieve()
+                        .bodyToFlux(new ParameterizedTypeReference<Map<String, Object>>() {}), MAX_LOTES_EN_PARALELO)
+                .collectList()
+                .block();
+
+        Map<Integer, Map<String, Object>> porId = new HashMap<>();
+        if (rutas != null) {
+            for (Map<String, Object> ruta : rutas) {
+                if (ruta.get("idRuta") instanceof Number id) {
+                    porId.put(id.intValue(), ruta);
+                }
+            }
+        }
+        return porId;
+    }
 }
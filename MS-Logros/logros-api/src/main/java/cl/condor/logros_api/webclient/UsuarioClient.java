@@ -10,8 +10,8 @@ import java.util.Map;
 public class UsuarioClient {
     private final WebClient webClient;
 
-    public UsuarioClient(@Value("${usuario-service.url}") String usuarioServiceURL){
-        this.webClient = WebClient.builder()
+    public UsuarioClient(WebClient.Builder webClientBuilder, @Value("${usuario-service.url}") String usuarioServiceURL){
+        this.webClient = webClientBuilder
                 .baseUrl(usuarioServiceURL)
                 .build();
     }
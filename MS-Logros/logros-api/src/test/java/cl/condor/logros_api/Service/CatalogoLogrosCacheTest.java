@@ -0,0 +1,115 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.KilometrosEvaluador;
+import cl.condor.logros_api.condicion.MetricasUsuario;
+import cl.condor.logros_api.condicion.RegionesEvaluador;
+import cl.condor.logros_api.condicion.RutasEvaluador;
+import cl.condor.logros_api.model.Condicion;
+import cl.condor.logros_api.model.Logro;
+import cl.condor.logros_api.repository.CondicionRepository;
+import cl.condor.logros_api.repository.LogroRepository;
+import cl.condor.logros_api.repository.TipoCondicionRepository;
+import cl.condor.logros_api.service.CatalogoLogros;
+import cl.condor.logros_api.service.CatalogoLogrosCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CatalogoLogrosCacheTest {
+
+    @Mock private LogroRepository logroRepository;
+    @Mock private CondicionRepository condicionRepository;
+    @Mock private TipoCondicionRepository tipoCondicionRepository;
+
+    private final EvaluadorCondiciones evaluador = new EvaluadorCondiciones(
+            List.of(new KilometrosEvaluador(), new RegionesEvaluador(), new RutasEvaluador()));
+
+    private SimpleMeterRegistry registry;
+    private CatalogoLogrosCache cache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registry = new SimpleMeterRegistry();
+        cache = new CatalogoLogrosCache(logroRepository, condicionRepository, tipoCondicionRepository, evaluador,
+                registry, Duration.ofMinutes(10));
+
+        when(logroRepository.findAll()).thenReturn(List.of(
+                new Logro(1, "Maratonero", null, null, "", 1, 10),
+                new Logro(2, "Distanciero", null, null, "", 1, 11),
+                new Logro(3, "Sin condicion", null, null, "", 1, 99),
+                new Logro(4, "Explorador", null, null, "", 1, 12)));
+        when(condicionRepository.findAll()).thenReturn(List.of(
+                new Condicion(10, "km", new BigDecimal("200"), 1),
+                new Condicion(11, "km", new BigDecimal("40"), 1),
+                new Condicion(12, "regiones", new BigDecimal("3"), 2)));
+        when(tipoCondicionRepository.findAll()).thenReturn(List.of());
+    }
+
+    private double contador(String resultado) {
+        return registry.get("logros.catalogo.cache").tag("resultado", resultado).counter().count();
+    }
+
+    @Test
+    void snapshot_segundaLectura_esAciertoSinIrALaBd() {
+        cache.snapshot();
+        cache.snapshot();
+
+        verify(logroRepository, times(1)).findAll();
+        assertEquals(1.0, contador("miss"));
+        assertEquals(1.0, contador("hit"));
+    }
+
+    @Test
+    void invalidar_sinTransaccion_recargaEnLaSiguienteLectura() {
+        cache.snapshot();
+        cache.invalidar();
+        cache.snapshot();
+
+        verify(logroRepository, times(2)).findAll();
+    }
+
+    @Test
+    void ttlVencido_recarga() {
+        cache = new CatalogoLogrosCache(logroRepository, condicionRepository, tipoCondicionRepository, evaluador,
+                registry, Duration.ZERO);
+
+        cache.snapshot();
+        cache.snapshot();
+
+        verify(logroRepository, times(2)).findAll();
+    }
+
+    @Test
+    void compilar_ordenaUmbralesPorTipoYRestriccion() {
+        CatalogoLogros catalogo = cache.snapshot();
+
+        // Tipo 1 ordenado por restriccion: 40 km (logro 2) antes que 200 km (logro 1), luego tipo 2
+        assertEquals(List.of(2, 1, 4), catalogo.satisfechos(MetricasUsuario.de(new BigDecimal("250"), 3, 0)));
+        assertEquals(List.of(2), catalogo.satisfechos(MetricasUsuario.de(new BigDecimal("150"), 0, 0)));
+        // El logro con condicion inexistente no se evalua pero sigue en el catalogo
+        assertEquals(4, catalogo.logros().size());
+
+        List<Integer> cruzados = new ArrayList<>();
+        catalogo.cruzados(MetricasUsuario.de(new BigDecimal("39"), 2, 0),
+                MetricasUsuario.de(new BigDecimal("250"), 2, 0), cruzados);
+        assertEquals(List.of(2, 1), cruzados);
+    }
+
+    @Test
+    void snapshot_esInmutable() {
+        CatalogoLogros catalogo = cache.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> catalogo.logros().clear());
+    }
+}
@@ -1,15 +1,22 @@
 package cl.condor.logros_api.Service;
 
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.KilometrosEvaluador;
+import cl.condor.logros_api.condicion.RegionesEvaluador;
+import cl.condor.logros_api.condicion.RutasEvaluador;
 import cl.condor.logros_api.model.Condicion;
 import cl.condor.logros_api.model.Tipo_condicion;
 import cl.condor.logros_api.repository.CondicionRepository;
 import cl.condor.logros_api.repository.TipoCondicionRepository;
+import cl.condor.logros_api.service.CatalogoLogros;
+import cl.condor.logros_api.service.CatalogoLogrosCache;
 import cl.condor.logros_api.service.CondicionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -31,6 +38,14 @@ public class CondicionServiceTest {
     @Mock
     private TipoCondicionRepository tipo_condicionRepository;
 
+    @Mock
+    private CatalogoLogrosCache catalogoLogrosCache;
+
+    // Registro real: los textos de las condiciones salen de los evaluadores
+    @Spy
+    private EvaluadorCondiciones evaluador = new EvaluadorCondiciones(
+            List.of(new KilometrosEvaluador(), new RegionesEvaluador(), new RutasEvaluador()));
+
     private Condicion condicionKm;
     private Condicion condicionRegion;
     private Tipo_condicion tipoCondicionKm;
@@ -62,11 +77,12 @@ public class CondicionServiceTest {
 
     @Test
     void findAll_retornaListaCondiciones() {
-        when(condicionRepository.findAll()).thenReturn(List.of(condicionKm, condicionRegion));
+        CatalogoLogros catalogo = CatalogoLogros.compilar(evaluador, List.of(), List.of(condicionKm, condicionRegion), List.of());
+        when(catalogoLogrosCache.snapshot()).thenReturn(catalogo);
         List<Condicion> resultado = condicionService.findAll();
         assertFalse(resultado.isEmpty());
         assertEquals(2, resultado.size());
-        verify(condicionRepository, times(1)).findAll();
+        verify(condicionRepository, never()).findAll();
     }
 
     @Test
@@ -95,10 +111,11 @@ public class CondicionServiceTest {
 
     @Test
     void findAllTipoCondicion_retornaLista() {
-        when(tipo_condicionRepository.findAll()).thenReturn(List.of(tipoCondicionKm));
+        CatalogoLogros catalogo = CatalogoLogros.compilar(evaluador, List.of(), List.of(), List.of(tipoCondicionKm));
+        when(catalogoLogrosCache.snapshot()).thenReturn(catalogo);
         List<Tipo_condicion> resultado = condicionService.findAllTipoCondicion();
         assertFalse(resultado.isEmpty());
-        verify(tipo_condicionRepository, times(1)).findAll();
+        verify(tipo_condicionRepository, never()).findAll();
     }
 
     @Test
@@ -128,6 +145,13 @@ public class CondicionServiceTest {
         verify(tipo_condicionRepository, times(1)).save(tipoCondicionKm);
     }
 
+    @Test
+    void saveCondicion_invalidaElCatalogo() {
+        when(condicionRepository.save(any(Condicion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        condicionService.save(new Condicion(null, null, new BigDecimal("5"), 3));
+        verify(catalogoLogrosCache, times(1)).invalidar();
+    }
+
     // ==========================================
     // Tests para save(Condicion) - Lógica de Autogeneración
     // ==========================================
@@ -0,0 +1,78 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.repository.TrofeoRepository;
+import cl.condor.logros_api.service.ConteoTrofeosCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConteoTrofeosCacheTest {
+
+    @InjectMocks
+    private ConteoTrofeosCache conteoTrofeosCache;
+
+    @Mock
+    private TrofeoRepository trofeoRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(trofeoRepository.contarPorLogro()).thenReturn(List.of(
+                new Object[]{1, 5L},
+                new Object[]{2, 1L}));
+    }
+
+    @Test
+    void conteo_cargaConUnSoloGroupBy() {
+        assertEquals(5, conteoTrofeosCache.conteo(1));
+        assertEquals(1, conteoTrofeosCache.conteo(2));
+        assertEquals(0, conteoTrofeosCache.conteo(99));
+
+        verify(trofeoRepository, times(1)).contarPorLogro();
+        verify(trofeoRepository, never()).countByIdLogro(anyInt());
+    }
+
+    @Test
+    void registrar_sinTransaccion_incrementaDeInmediato() {
+        conteoTrofeosCache.recargar();
+
+        conteoTrofeosCache.registrar(List.of(1, 3));
+
+        assertEquals(6, conteoTrofeosCache.conteo(1));
+        assertEquals(1, conteoTrofeosCache.conteo(3));
+    }
+
+    @Test
+    void recargar_reemplazaLosConteosDesdeLaBd() {
+        conteoTrofeosCache.registrar(List.of(1, 1));
+        assertEquals(7, conteoTrofeosCache.conteo(1));
+
+        conteoTrofeosCache.recargar();
+
+        assertEquals(5, conteoTrofeosCache.conteo(1));
+        assertEquals(2, conteoTrofeosCache.todos().size());
+    }
+
+    @Test
+    void recargar_trofeoRegistradoDuranteLaConsulta_noSePierde() {
+        conteoTrofeosCache.recargar();
+        // El trofeo se confirma mientras corre el GROUP BY y no viene en su resultado
+        when(trofeoRepository.contarPorLogro()).thenAnswer(inv -> {
+            conteoTrofeosCache.registrar(List.of(1, 3));
+            return List.of(new Object[]{1, 5L}, new Object[]{2, 1L});
+        });
+
+        conteoTrofeosCache.recargar();
+
+        assertEquals(6, conteoTrofeosCache.conteo(1));
+        assertEquals(1, conteoTrofeosCache.conteo(3));
+        assertEquals(1, conteoTrofeosCache.conteo(2));
+    }
+}
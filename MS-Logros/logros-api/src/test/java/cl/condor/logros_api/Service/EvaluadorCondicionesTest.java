@@ -0,0 +1,89 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.KilometrosEvaluador;
+import cl.condor.logros_api.condicion.MetricasUsuario;
+import cl.condor.logros_api.condicion.RegionesEvaluador;
+import cl.condor.logros_api.condicion.RutasEvaluador;
+import cl.condor.logros_api.condicion.TipoCondicionEvaluador;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluadorCondicionesTest {
+
+    private final EvaluadorCondiciones evaluador = new EvaluadorCondiciones(
+            List.of(new KilometrosEvaluador(), new RegionesEvaluador(), new RutasEvaluador()));
+
+    private EvaluadorCondiciones.TipoCompilado km(String... restricciones) {
+        List<EvaluadorCondiciones.Entrada> entradas = new ArrayList<>();
+        for (int i = 0; i < restricciones.length; i++) {
+            entradas.add(new EvaluadorCondiciones.Entrada(new BigDecimal(restricciones[i]), i + 1));
+        }
+        return evaluador.compilar(evaluador.evaluador(1).orElseThrow(), entradas);
+    }
+
+    private List<Integer> satisfechos(EvaluadorCondiciones.TipoCompilado tipo, String km) {
+        List<Integer> ids = new ArrayList<>();
+        tipo.satisfechos(MetricasUsuario.de(new BigDecimal(km), 0, 0), ids);
+        return ids;
+    }
+
+    @Test
+    void satisfechos_busquedaBinariaRespetaLosBordes() {
+        // Logro 1: 200 km, logro 2: 40 km, logro 3: 40 km, logro 4: 100 km
+        EvaluadorCondiciones.TipoCompilado tipo = km("200", "40", "40", "100");
+
+        assertEquals(List.of(), satisfechos(tipo, "39.99"));
+        assertEquals(List.of(2, 3), satisfechos(tipo, "40.00"));
+        assertEquals(List.of(2, 3, 4), satisfechos(tipo, "199.99"));
+        assertEquals(List.of(2, 3, 4, 1), satisfechos(tipo, "5000"));
+    }
+
+    @Test
+    void satisfechos_restriccionConMasDecimales_noSeRedondeaAFavor() {
+        EvaluadorCondiciones.TipoCompilado tipo = km("40.001");
+
+        assertEquals(List.of(), satisfechos(tipo, "40.00"));
+        assertEquals(List.of(1), satisfechos(tipo, "40.01"));
+    }
+
+    @Test
+    void cruzados_soloLosDelIntervalo() {
+        EvaluadorCondiciones.TipoCompilado tipo = km("10", "20", "30");
+        List<Integer> ids = new ArrayList<>();
+
+        tipo.cruzados(MetricasUsuario.de(new BigDecimal("10"), 0, 0), MetricasUsuario.de(new BigDecimal("25"), 0, 0), ids);
+
+        assertEquals(List.of(2), ids);
+    }
+
+    @Test
+    void plantilla_tipoSinEvaluador_vacia() {
+        assertEquals("Recorrer 40 km", evaluador.plantilla(1, new BigDecimal("40")).orElseThrow());
+        assertTrue(evaluador.plantilla(4, new BigDecimal("1500")).isEmpty());
+        assertTrue(evaluador.plantilla(null, BigDecimal.ONE).isEmpty());
+    }
+
+    @Test
+    void registro_nuevoTipoSeEnchufaSinTocarServicios() {
+        TipoCondicionEvaluador altitud = new TipoCondicionEvaluador() {
+            public int idTipo() { return 4; }
+            public long valor(MetricasUsuario m) { return 0; }
+            public String plantilla(BigDecimal r) { return "Acumular " + r + " metros de desnivel"; }
+        };
+        EvaluadorCondiciones conAltitud = new EvaluadorCondiciones(List.of(new KilometrosEvaluador(), altitud));
+
+        assertEquals("Acumular 1500 metros de desnivel", conAltitud.plantilla(4, new BigDecimal("1500")).orElseThrow());
+    }
+
+    @Test
+    void registro_tipoDuplicado_falla() {
+        assertThrows(IllegalStateException.class,
+                () -> new EvaluadorCondiciones(List.of(new KilometrosEvaluador(), new KilometrosEvaluador())));
+    }
+}
@@ -0,0 +1,102 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.model.LogroIcono;
+import cl.condor.logros_api.repository.LogroIconoJdbcRepository;
+import cl.condor.logros_api.repository.LogroIconoRepository;
+import cl.condor.logros_api.service.IconoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IconoServiceTest {
+
+    @InjectMocks
+    private IconoService iconoService;
+
+    @Mock private LogroIconoRepository logroIconoRepository;
+    @Mock private LogroIconoJdbcRepository logroIconoJdbcRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(iconoService, "maxBytesCache", 10L);
+    }
+
+    private LogroIcono icono(String hash, int tamano) {
+        return new LogroIcono(hash, new byte[tamano], "image/png", tamano, LocalDateTime.now());
+    }
+
+    @Test
+    void guardar_mismoContenido_mismoHash() {
+        byte[] datos = {1, 2, 3};
+
+        String h1 = iconoService.guardar(datos);
+        String h2 = iconoService.guardar(datos.clone());
+
+        assertEquals(h1, h2);
+        assertEquals(64, h1.length());
+        // El upsert resuelve la fila existente; nunca se usa save (existsById + insert choca en concurrencia)
+        verify(logroIconoJdbcRepository, times(2)).guardar(eq(h1), any(), any(), any());
+        verify(logroIconoRepository, never()).save(any());
+    }
+
+    @Test
+    void buscar_segundaVez_seSirveDesdeCache() {
+        when(logroIconoRepository.findById("a")).thenReturn(Optional.of(icono("a", 4)));
+
+        iconoService.buscar("a");
+        Optional<LogroIcono> resultado = iconoService.buscar("a");
+
+        assertTrue(resultado.isPresent());
+        verify(logroIconoRepository, times(1)).findById("a");
+    }
+
+    @Test
+    void buscar_superaTope_expulsaElMenosUsado() {
+        when(logroIconoRepository.findById("a")).thenReturn(Optional.of(icono("a", 4)));
+        when(logroIconoRepository.findById("b")).thenReturn(Optional.of(icono("b", 4)));
+        when(logroIconoRepository.findById("c")).thenReturn(Optional.of(icono("c", 4)));
+
+        iconoService.buscar("a");
+        iconoService.buscar("b");
+        iconoService.buscar("a");   // 'b' queda como el menos usado
+        iconoService.buscar("c");   // 12 bytes > 10: sale 'b'
+        iconoService.buscar("a");
+        iconoService.buscar("b");
+
+        verify(logroIconoRepository, times(1)).findById("a");
+        verify(logroIconoRepository, times(2)).findById("b");
+    }
+
+    @Test
+    void liberarSiHuerfano_usaPlazoDeGracia() {
+        LocalDateTime antes = LocalDateTime.now();
+
+        iconoService.liberarSiHuerfano("a");
+
+        verify(logroIconoJdbcRepository).borrarSiHuerfano(eq("a"),
+                argThat(limite -> !limite.isAfter(antes.minusMinutes(59)) && limite.isAfter(antes.minusMinutes(61))));
+        verify(logroIconoRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void liberarSiHuerfano_borrado_saleDeCache() {
+        when(logroIconoRepository.findById("a")).thenReturn(Optional.of(icono("a", 4)));
+        when(logroIconoJdbcRepository.borrarSiHuerfano(eq("a"), any())).thenReturn(true);
+        iconoService.buscar("a");
+
+        iconoService.liberarSiHuerfano("a");
+        iconoService.buscar("a");
+
+        verify(logroIconoRepository, times(2)).findById("a");
+    }
+}
@@ -1,11 +1,21 @@
 package cl.condor.logros_api.Service;
 
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.KilometrosEvaluador;
+import cl.condor.logros_api.condicion.RegionesEvaluador;
+import cl.condor.logros_api.condicion.RutasEvaluador;
+import cl.condor.logros_api.dto.TrofeoDetalle;
 import cl.condor.logros_api.model.Condicion;
 import cl.condor.logros_api.model.Logro;
 import cl.condor.logros_api.model.Trofeo;
 import cl.condor.logros_api.repository.CondicionRepository;
 import cl.condor.logros_api.repository.LogroRepository;
+import cl.condor.logros_api.repository.TrofeoJdbcRepository;
 import cl.condor.logros_api.repository.TrofeoRepository;
+import cl.condor.logros_api.service.CatalogoLogros;
+import cl.condor.logros_api.service.CatalogoLogrosCache;
+import cl.condor.logros_api.service.ConteoTrofeosCache;
+import cl.condor.logros_api.service.IconoService;
 import cl.condor.logros_api.service.LogroService;
 import cl.condor.logros_api.webclient.EstadoClient;
 import cl.condor.logros_api.webclient.IniciarRutaClient;
@@ -16,6 +26,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
@@ -30,10 +42,17 @@ public class LogroServiceTest {
     @InjectMocks
     private LogroService logroService;
 
+    private final EvaluadorCondiciones evaluador = new EvaluadorCondiciones(
+            List.of(new KilometrosEvaluador(), new RegionesEvaluador(), new RutasEvaluador()));
+
     // Repositorios
     @Mock private LogroRepository logroRepository;
     @Mock private TrofeoRepository trofeoRepository;
     @Mock private CondicionRepository condicionRepository;
+    @Mock private TrofeoJdbcRepository trofeoJdbcRepository;
+    @Mock private ConteoTrofeosCache conteoTrofeosCache;
+    @Mock private IconoService iconoService;
+    @Mock private CatalogoLogrosCache catalogoLogrosCache;
 
     // WebClients (Servicios Externos)
     @Mock private EstadoClient estadoClient;
@@ -78,10 +97,11 @@ public class LogroServiceTest {
 
     @Test
     void findAll_retornaListaLogros() {
-        when(logroRepository.findAll()).thenReturn(List.of(logroKm));
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador, List.of(logroKm), List.of(), List.of()));
         List<Logro> resultado = logroService.findAll();
         assertFalse(resultado.isEmpty());
-        verify(logroRepository, times(1)).findAll();
+        // Se sirve desde el catalogo en memoria, sin consultar la BD
+        verify(logroRepository, never()).findAll();
     }
 
     @Test
@@ -126,6 +146,20 @@ public class LogroServiceTest {
         verify(logroRepository, times(1)).save(logroKm);
     }
 
+    @Test
+    void save_conIcono_guardaSoloElHash() {
+        simularValidacionesSaveValidas();
+        byte[] icono = {1, 2, 3};
+        logroKm.setIcono(icono);
+        when(iconoService.guardar(icono)).thenReturn("abc123");
+
+        logroService.save(logroKm);
+
+        assertEquals("abc123", logroKm.getIconoHash());
+        assertNull(logroKm.getIcono());
+        assertEquals("/api/v1/logros/icono/abc123", logroKm.getIconoUrl());
+    }
+
     @Test
     void save_condicionNoExiste_lanzaExcepcion() {
         // Simular: Estado OK, pero Condicion falla
@@ -155,45 +189,38 @@ public class LogroServiceTest {
         when(usuarioClient.getUsuariosById(VALID_USER_ID))
                 .thenReturn(Map.of("kmRecorridos", new BigDecimal("60.00")));
 
-        // 2. Rutas Iniciadas: 7 rutas completadas
-        List<Map<String, Object>> iniciarRutasList = List.of(
-                Map.of("idRuta", 10, "ffinal", LocalDateTime.now()), // Ruta 1, región A
-                Map.of("idRuta", 11, "ffinal", LocalDateTime.now()), // Ruta 2, región B
-                Map.of("idRuta", 10, "ffinal", LocalDateTime.now()), // Ruta 3, región A (Duplicada, cuenta como 1 región)
-                Map.of("idRuta", 12, "ffinal", LocalDateTime.now()), // Ruta 4, región C
-                Map.of("idRuta", 13, "ffinal", LocalDateTime.now()), // Ruta 5, región D
-                Map.of("idRuta", 14, "ffinal", LocalDateTime.now()), // Ruta 6, región D
-                Map.of("idRuta", 15, "ffinal", LocalDateTime.now())  // Ruta 7, región D
-        );
-        when(iniciarRutaClient.getRutasByUsuario(VALID_USER_ID)).thenReturn(iniciarRutasList);
-
-        // 3. Rutas Completas: Simular las regiones
-        // Rutas 1, 3 (ID 10) -> Región 1
-        when(rutaClient.getRutaById(10)).thenReturn(Map.of("id_region", 1));
-        // Ruta 2 (ID 11) -> Región 2
-        when(rutaClient.getRutaById(11)).thenReturn(Map.of("id_region", 2));
-        // Ruta 4 (ID 12) -> Región 3
-        when(rutaClient.getRutaById(12)).thenReturn(Map.of("id_region", 3));
-        // Rutas 5, 6, 7 (ID 13, 14, 15) -> Región 4
-        when(rutaClient.getRutaById(13)).thenReturn(Map.of("id_region", 4));
-        when(rutaClient.getRutaById(14)).thenReturn(Map.of("id_region", 4));
-        when(rutaClient.getRutaById(15)).thenReturn(Map.of("id_region", 4));
+        // 2. Resumen de iniciar-rutas: 7 recorridos terminados en 6 rutas distintas
+        when(iniciarRutaClient.getResumenByUsuario(VALID_USER_ID)).thenReturn(Map.of(
+                "rutasTerminadas", 7,
+                "rutas", List.of(
+                        Map.of("idRuta", 10, "veces", 2), // Rutas 1 y 3, región A (cuenta como 1 región)
+                        Map.of("idRuta", 11, "veces", 1), // Ruta 2, región B
+                        Map.of("idRuta", 12, "veces", 1), // Ruta 4, región C
+                        Map.of("idRuta", 13, "veces", 1), // Ruta 5, región D
+                        Map.of("idRuta", 14, "veces", 1), // Ruta 6, región D
+                        Map.of("idRuta", 15, "veces", 1)))); // Ruta 7, región D
+
+        // 3. Rutas Completas: Simular las regiones (una sola llamada por lote con los ids distintos)
+        when(rutaClient.getRutasByIds(Set.of(10, 11, 12, 13, 14, 15))).thenReturn(Map.of(
+                10, Map.of("id_region", 1),  // Rutas 1, 3 (ID 10) -> Región 1
+                11, Map.of("id_region", 2),  // Ruta 2 (ID 11) -> Región 2
+                12, Map.of("id_region", 3),  // Ruta 4 (ID 12) -> Región 3
+                13, Map.of("id_region", 4),  // Rutas 5, 6, 7 (ID 13, 14, 15) -> Región 4
+                14, Map.of("id_region", 4),
+                15, Map.of("id_region", 4)));
     }
 
 
     @Test
     void ganarLogro_cumplePrimerLogroKm_guardaTrofeoYRetorna() {
         simularDatosDeUsuarioCumplidor();
-        // 1. Logros: Simular la lista de logros a revisar (KM, luego Region, luego Rutas)
-        when(logroRepository.findAll()).thenReturn(List.of(logroKm, logroRegion, logroRutas));
+        // 1. Catalogo: logros y condiciones precompilados (KM, luego Region, luego Rutas)
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm, logroRegion, logroRutas),
+                List.of(condicionKm, condicionRegion, condicionRutas), List.of()));
 
-        // 2. Condiciones: Mapear cada Logro a su Condicion
-        when(condicionRepository.getReferenceById(1)).thenReturn(condicionKm); // Km > 50
-        when(condicionRepository.getReferenceById(2)).thenReturn(condicionRegion);
-        when(condicionRepository.getReferenceById(3)).thenReturn(condicionRutas);
-
-        // 3. Trofeo: Simular que aún no existe
-        when(trofeoRepository.existsByIdUsuarioAndIdLogro(anyInt(), anyInt())).thenReturn(false);
+        // 2. Trofeo: Simular que el usuario aún no tiene trofeos
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of());
         // Simular que el trofeo se guarda
         when(trofeoRepository.save(any(Trofeo.class))).thenReturn(trofeoEjemplo);
 
@@ -205,6 +232,10 @@ public class LogroServiceTest {
 
         // Verificar interacciones: Solo debe guardar el primer logro que encuentra
         verify(trofeoRepository, times(1)).save(any(Trofeo.class));
+        // Las rutas se piden una vez en lote, nunca una por recorrido
+        verify(rutaClient, times(1)).getRutasByIds(anyCollection());
+        verify(rutaClient, never()).getRutaById(anyInt());
+        verify(condicionRepository, never()).getReferenceById(anyInt());
     }
 
     @Test
@@ -212,16 +243,15 @@ public class LogroServiceTest {
         // Simular: Usuario con 1 KM (no cumple 50), 1 Región (no cumple 3), 1 Ruta (no cumple 5)
         when(usuarioClient.getUsuariosById(VALID_USER_ID))
                 .thenReturn(Map.of("kmRecorridos", new BigDecimal("1.00")));
-        when(iniciarRutaClient.getRutasByUsuario(VALID_USER_ID))
-                .thenReturn(List.of(Map.of("idRuta", 10, "ffinal", LocalDateTime.now())));
-        when(rutaClient.getRutaById(10)).thenReturn(Map.of("id_region", 1));
+        when(iniciarRutaClient.getResumenByUsuario(VALID_USER_ID))
+                .thenReturn(Map.of("rutasTerminadas", 1, "rutas", List.of(Map.of("idRuta", 10, "veces", 1))));
+        when(rutaClient.getRutasByIds(Set.of(10))).thenReturn(Map.of(10, Map.of("id_region", 1)));
 
         // Simular Logros y Condiciones
-        when(logroRepository.findAll()).thenReturn(List.of(logroKm, logroRegion, logroRutas));
-        when(condicionRepository.getReferenceById(1)).thenReturn(condicionKm);
-        when(condicionRepository.getReferenceById(2)).thenReturn(condicionRegion);
-        when(condicionRepository.getReferenceById(3)).thenReturn(condicionRutas);
-        when(trofeoRepository.existsByIdUsuarioAndIdLogro(anyInt(), anyInt())).thenReturn(false);
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm, logroRegion, logroRutas),
+                List.of(condicionKm, condicionRegion, condicionRutas), List.of()));
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of());
 
         // Verificar que lanza la excepción 403 (FORBIDDEN)
         assertThrows(ResponseStatusException.class, () -> logroService.ganarLogro(VALID_USER_ID));
@@ -230,17 +260,32 @@ public class LogroServiceTest {
         verify(trofeoRepository, never()).save(any());
     }
 
+    @Test
+    void ganarLogro_rutaEliminada_noSumaSusRecorridos() {
+        // 6 recorridos, pero 5 son de una ruta que ya no existe en rutas-api
+        when(usuarioClient.getUsuariosById(VALID_USER_ID))
+                .thenReturn(Map.of("kmRecorridos", new BigDecimal("1.00")));
+        when(iniciarRutaClient.getResumenByUsuario(VALID_USER_ID)).thenReturn(Map.of("rutasTerminadas", 6,
+                "rutas", List.of(Map.of("idRuta", 10, "veces", 5), Map.of("idRuta", 11, "veces", 1))));
+        when(rutaClient.getRutasByIds(Set.of(10, 11))).thenReturn(Map.of(11, Map.of("id_region", 1)));
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm, logroRegion, logroRutas),
+                List.of(condicionKm, condicionRegion, condicionRutas), List.of()));
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of());
+
+        assertThrows(ResponseStatusException.class, () -> logroService.ganarLogro(VALID_USER_ID));
+        verify(trofeoRepository, never()).save(any());
+    }
+
     @Test
     void ganarLogro_logroYaExiste_pasaAlSiguiente() {
         simularDatosDeUsuarioCumplidor();
-        when(logroRepository.findAll()).thenReturn(List.of(logroKm, logroRegion));
-        when(condicionRepository.getReferenceById(1)).thenReturn(condicionKm); // KM (cumple)
-        when(condicionRepository.getReferenceById(2)).thenReturn(condicionRegion); // Region (cumple)
-
-        // Simular: Logro KM (ID 1) YA EXISTE
-        when(trofeoRepository.existsByIdUsuarioAndIdLogro(VALID_USER_ID, 1)).thenReturn(true);
-        // Simular: Logro Region (ID 2) NO EXISTE
-        when(trofeoRepository.existsByIdUsuarioAndIdLogro(VALID_USER_ID, 2)).thenReturn(false);
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm, logroRegion),
+                List.of(condicionKm, condicionRegion), List.of())); // KM y Region (cumplen)
+
+        // Simular: Logro KM (ID 1) YA EXISTE, Logro Region (ID 2) NO EXISTE
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of(1));
         // Simular guardado del segundo logro
         when(trofeoRepository.save(any(Trofeo.class))).thenReturn(new Trofeo(2, LocalDateTime.now(), VALID_USER_ID, 2));
 
@@ -250,13 +295,95 @@ public class LogroServiceTest {
         // Verificar que se saltó el logro 1 y guardó el logro 2
         assertEquals(2, resultado.getIdLogro());
 
-        // Verificar que el exist se llamó para ambos logros
-        verify(trofeoRepository, times(1)).existsByIdUsuarioAndIdLogro(VALID_USER_ID, 1);
-        verify(trofeoRepository, times(1)).existsByIdUsuarioAndIdLogro(VALID_USER_ID, 2);
+        // Verificar que los trofeos del usuario se cargaron una sola vez
+        verify(trofeoRepository, times(1)).findIdLogroByIdUsuario(VALID_USER_ID);
+        verify(trofeoRepository, never()).existsByIdUsuarioAndIdLogro(anyInt(), anyInt());
         // Solo un guardado
         verify(trofeoRepository, times(1)).save(any(Trofeo.class));
     }
 
+    // ==========================================
+    // Tests para findTrofeosByUsuario(idUsuario)
+    // ==========================================
+
+    @Test
+    void findTrofeosByUsuario_usaUnaSolaConsultaConJoin() {
+        TrofeoDetalle detalle = new TrofeoDetalle(7, 1, "Distanciero", "Desc Km", 1, "Recorrer 50.00 km", new BigDecimal("50.00"));
+        when(trofeoRepository.findDetalleByIdUsuario(VALID_USER_ID)).thenReturn(List.of(detalle));
+
+        List<TrofeoDetalle> resultado = logroService.findTrofeosByUsuario(VALID_USER_ID);
+
+        assertEquals(List.of(detalle), resultado);
+        // Nada de cargar logro (con icono) ni condicion por cada trofeo
+        verify(logroRepository, never()).findById(anyInt());
+        verify(condicionRepository, never()).findById(anyInt());
+    }
+
+    // ==========================================
+    // Tests para ganarLogros(IdUser)
+    // ==========================================
+
+    @Test
+    void ganarLogros_cumpleTodos_insertaEnUnSoloBatch() {
+        simularDatosDeUsuarioCumplidor();
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm, logroRegion, logroRutas),
+                List.of(condicionKm, condicionRegion, condicionRutas), List.of()));
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of());
+        when(trofeoJdbcRepository.insertarIgnorandoExistentes(eq(VALID_USER_ID), eq(List.of(1, 2, 3)), any()))
+                .thenReturn(List.of(1, 2, 3));
+        List<Trofeo> nuevos = List.of(
+                new Trofeo(1, LocalDateTime.now(), VALID_USER_ID, 1),
+                new Trofeo(2, LocalDateTime.now(), VALID_USER_ID, 2),
+                new Trofeo(3, LocalDateTime.now(), VALID_USER_ID, 3));
+        when(trofeoRepository.findByIdUsuarioAndIdLogroIn(VALID_USER_ID, List.of(1, 2, 3))).thenReturn(nuevos);
+
+        List<Trofeo> resultado = logroService.ganarLogros(VALID_USER_ID);
+
+        assertEquals(3, resultado.size());
+        // Estadisticas calculadas una sola vez y ningun save uno a uno
+        verify(usuarioClient, times(1)).getUsuariosById(VALID_USER_ID);
+        verify(rutaClient, times(1)).getRutasByIds(anyCollection());
+        verify(trofeoRepository, never()).save(any());
+        // El conteo en memoria se actualiza con los tres logros nuevos
+        verify(conteoTrofeosCache).registrar(List.of(1, 2, 3));
+    }
+
+    @Test
+    void ganarLogros_omiteLosYaGanados() {
+        simularDatosDeUsuarioCumplidor();
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm, logroRegion, logroRutas),
+                List.of(condicionKm, condicionRegion, condicionRutas), List.of()));
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of(1, 3));
+        when(trofeoJdbcRepository.insertarIgnorandoExistentes(eq(VALID_USER_ID), eq(List.of(2)), any()))
+                .thenReturn(List.of(2));
+        when(trofeoRepository.findByIdUsuarioAndIdLogroIn(VALID_USER_ID, List.of(2)))
+                .thenReturn(List.of(new Trofeo(5, LocalDateTime.now(), VALID_USER_ID, 2)));
+
+        List<Trofeo> resultado = logroService.ganarLogros(VALID_USER_ID);
+
+        assertEquals(1, resultado.size());
+        assertEquals(2, resultado.get(0).getIdLogro());
+    }
+
+    @Test
+    void ganarLogros_insercionConcurrenteIgnorada_retornaVacio() {
+        simularDatosDeUsuarioCumplidor();
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(logroKm),
+                List.of(condicionKm), List.of()));
+        when(trofeoRepository.findIdLogroByIdUsuario(VALID_USER_ID)).thenReturn(Set.of());
+        // Otra peticion inserto el trofeo entre la lectura y el INSERT IGNORE
+        when(trofeoJdbcRepository.insertarIgnorandoExistentes(eq(VALID_USER_ID), eq(List.of(1)), any()))
+                .thenReturn(List.of());
+
+        List<Trofeo> resultado = logroService.ganarLogros(VALID_USER_ID);
+
+        assertTrue(resultado.isEmpty());
+        verify(trofeoRepository, never()).findByIdUsuarioAndIdLogroIn(anyInt(), anyCollection());
+    }
+
     // ==========================================
     // Tests para Métodos PATCH (Update)
     // ==========================================
@@ -286,6 +413,50 @@ public class LogroServiceTest {
         verify(logroRepository, never()).save(any());
     }
 
+    @Test
+    void updateIcono_reemplaza_liberaElIconoAnterior() {
+        logroKm.setIconoHash("viejo");
+        when(logroRepository.findById(VALID_ID)).thenReturn(Optional.of(logroKm));
+        when(iconoService.guardar(any())).thenReturn("nuevo");
+        when(logroRepository.save(any(Logro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Logro resultado = logroService.updateIcono(VALID_ID, new byte[]{9});
+
+        assertEquals("/api/v1/logros/icono/nuevo", resultado.getIconoUrl());
+        verify(iconoService).liberarSiHuerfano("viejo");
+    }
+
+    @Test
+    void updateIcono_conTransaccion_liberaRecienDespuesDelCommit() {
+        logroKm.setIconoHash("viejo");
+        when(logroRepository.findById(VALID_ID)).thenReturn(Optional.of(logroKm));
+        when(iconoService.guardar(any())).thenReturn("nuevo");
+        when(logroRepository.save(any(Logro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            logroService.updateIcono(VALID_ID, new byte[]{9});
+            verify(iconoService, never()).liberarSiHuerfano(any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(iconoService).liberarSiHuerfano("viejo");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void updateIcono_mismoContenido_noLiberaNada() {
+        logroKm.setIconoHash("igual");
+        when(logroRepository.findById(VALID_ID)).thenReturn(Optional.of(logroKm));
+        when(iconoService.guardar(any())).thenReturn("igual");
+        when(logroRepository.save(any(Logro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        logroService.updateIcono(VALID_ID, new byte[]{9});
+
+        verify(iconoService, never()).liberarSiHuerfano(any());
+    }
+
     // Nota: Los tests para updateEstado, updateIcono, y updateDescripcion
     // siguen una estructura idéntica a updateNombre/updateDescripcion (findById + save).
 }
@@ -0,0 +1,49 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.service.MotorLogrosPoller;
+import cl.condor.logros_api.service.MotorLogrosService;
+import cl.condor.logros_api.webclient.IniciarRutaClient;
+import cl.condor.logros_api.webclient.RutaClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class MotorLogrosPollerTest {
+
+    @InjectMocks
+    private MotorLogrosPoller motorLogrosPoller;
+
+    @Mock private MotorLogrosService motorLogrosService;
+    @Mock private IniciarRutaClient iniciarRutaClient;
+    @Mock private RutaClient rutaClient;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(motorLogrosPoller, "lote", 100);
+    }
+
+    @Test
+    void procesarEventos_otraInstanciaCreoElCursor_reintentaEnElProximoCiclo() {
+        when(iniciarRutaClient.getEventos(anyLong(), anyInt())).thenReturn(List.of(
+                Map.of("idEvento", 1L, "idUsuario", 10, "idRuta", 5)));
+        when(motorLogrosService.aplicar(any(), any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry 'abrir-ruta' for key 'PRIMARY'"));
+
+        assertDoesNotThrow(() -> motorLogrosPoller.procesarEventos());
+        verify(motorLogrosService, times(1)).aplicar(any(), any());
+    }
+}
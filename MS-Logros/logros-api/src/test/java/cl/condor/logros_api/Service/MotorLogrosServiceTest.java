@@ -0,0 +1,128 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.KilometrosEvaluador;
+import cl.condor.logros_api.condicion.RegionesEvaluador;
+import cl.condor.logros_api.condicion.RutasEvaluador;
+import cl.condor.logros_api.model.Condicion;
+import cl.condor.logros_api.model.CursorEvento;
+import cl.condor.logros_api.model.EstadisticaUsuario;
+import cl.condor.logros_api.model.Logro;
+import cl.condor.logros_api.repository.CursorEventoRepository;
+import cl.condor.logros_api.repository.EstadisticaUsuarioRepository;
+import cl.condor.logros_api.repository.TrofeoJdbcRepository;
+import cl.condor.logros_api.service.CatalogoLogros;
+import cl.condor.logros_api.service.CatalogoLogrosCache;
+import cl.condor.logros_api.service.ConteoTrofeosCache;
+import cl.condor.logros_api.service.MotorLogrosService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MotorLogrosServiceTest {
+
+    @InjectMocks
+    private MotorLogrosService motorLogrosService;
+
+    private final EvaluadorCondiciones evaluador = new EvaluadorCondiciones(
+            List.of(new KilometrosEvaluador(), new RegionesEvaluador(), new RutasEvaluador()));
+
+    @Mock private EstadisticaUsuarioRepository estadisticaUsuarioRepository;
+    @Mock private CursorEventoRepository cursorEventoRepository;
+    @Mock private CatalogoLogrosCache catalogoLogrosCache;
+    @Mock private TrofeoJdbcRepository trofeoJdbcRepository;
+    @Mock private ConteoTrofeosCache conteoTrofeosCache;
+
+    private final Integer USER_ID = 100;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // Logro 1: 40 km, logro 2: 2 regiones, logro 3: 3 rutas, logro 4: 200 km
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(
+                        new Logro(1, "Distanciero", null, null, "", 1, 1),
+                        new Logro(2, "Explorador", null, null, "", 1, 2),
+                        new Logro(3, "Consistente", null, null, "", 1, 3),
+                        new Logro(4, "Maratonero", null, null, "", 1, 4)),
+                List.of(
+                        new Condicion(1, "km", new BigDecimal("40"), 1),
+                        new Condicion(2, "regiones", new BigDecimal("2"), 2),
+                        new Condicion(3, "rutas", new BigDecimal("3"), 3),
+                        new Condicion(4, "km", new BigDecimal("200"), 1)),
+                List.of()));
+        when(cursorEventoRepository.findById(MotorLogrosService.CURSOR_ABRIR_RUTA)).thenReturn(Optional.empty());
+        when(estadisticaUsuarioRepository.findAllById(any())).thenReturn(List.of());
+        when(trofeoJdbcRepository.insertarIgnorandoExistentes(anyInt(), anyList(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
+    private Map<String, Object> evento(long idEvento, int idRuta) {
+        return Map.of("idEvento", idEvento, "idUsuario", USER_ID, "idRuta", idRuta);
+    }
+
+    @Test
+    void aplicar_cruzaUmbralKm_entregaTrofeoYAvanzaCursor() {
+        when(estadisticaUsuarioRepository.findAllById(any())).thenReturn(List.of(
+                new EstadisticaUsuario(USER_ID, new BigDecimal("35.00"), 1, 0b1, null)));
+
+        int entregados = motorLogrosService.aplicar(List.of(evento(7, 10)),
+                Map.of(10, Map.of("distancia", 12.5, "id_region", 1)));
+
+        // 35 -> 47.5 km cruza solo el umbral de 40; 1 -> 2 rutas y misma region no cruzan nada
+        assertEquals(1, entregados);
+        verify(trofeoJdbcRepository).insertarIgnorandoExistentes(eq(USER_ID), eq(List.of(1)), any());
+        verify(cursorEventoRepository).save(argThat(c -> c.getUltimoId() == 7L));
+    }
+
+    @Test
+    void aplicar_regionesDistintas_cuentaCadaRegionUnaVez() {
+        List<Map<String, Object>> eventos = List.of(evento(1, 10), evento(2, 11), evento(3, 12));
+        Map<Integer, Map<String, Object>> rutas = Map.of(
+                10, Map.of("distancia", 1, "id_region", 5),
+                11, Map.of("distancia", 1, "id_region", 5),
+                12, Map.of("distancia", 1, "id_region", 7));
+
+        motorLogrosService.aplicar(eventos, rutas);
+
+        // Region 5 repetida: 2 regiones distintas (logro 2) y 3 rutas (logro 3)
+        verify(trofeoJdbcRepository).insertarIgnorandoExistentes(eq(USER_ID),
+                argThat(ids -> new HashSet<>(ids).equals(Set.of(2, 3))), any());
+        verify(estadisticaUsuarioRepository).saveAll(argThat(it -> {
+            EstadisticaUsuario e = it.iterator().next();
+            return e.regionesDistintas() == 2 && e.getRutasTerminadas() == 3
+                    && e.getKmTotal().compareTo(new BigDecimal("3")) == 0;
+        }));
+    }
+
+    @Test
+    void aplicar_eventosYaProcesados_seIgnoran() {
+        when(cursorEventoRepository.findById(MotorLogrosService.CURSOR_ABRIR_RUTA))
+                .thenReturn(Optional.of(new CursorEvento(MotorLogrosService.CURSOR_ABRIR_RUTA, 10L, 0L)));
+
+        int entregados = motorLogrosService.aplicar(List.of(evento(9, 10), evento(10, 10)),
+                Map.of(10, Map.of("distancia", 500, "id_region", 1)));
+
+        assertEquals(0, entregados);
+        verify(estadisticaUsuarioRepository, never()).saveAll(any());
+        verify(cursorEventoRepository, never()).save(any());
+    }
+
+    @Test
+    void aplicar_rutaInexistente_avanzaCursorSinContar() {
+        int entregados = motorLogrosService.aplicar(List.of(evento(4, 99)), Map.of());
+
+        assertEquals(0, entregados);
+        verify(trofeoJdbcRepository, never()).insertarIgnorandoExistentes(anyInt(), anyList(), any());
+        verify(cursorEventoRepository).save(argThat(c -> c.getUltimoId() == 4L));
+    }
+}
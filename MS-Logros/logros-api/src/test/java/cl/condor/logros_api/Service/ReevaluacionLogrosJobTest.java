@@ -0,0 +1,74 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.model.ReevaluacionLogros;
+import cl.condor.logros_api.service.ReevaluacionLogrosJob;
+import cl.condor.logros_api.service.ReevaluacionLogrosService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReevaluacionLogrosJobTest {
+
+    @InjectMocks
+    private ReevaluacionLogrosJob reevaluacionLogrosJob = new ReevaluacionLogrosJob(1);
+
+    @Mock private ReevaluacionLogrosService reevaluacionLogrosService;
+
+    private final Long ID = 5L;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reevaluacionLogrosJob, "lote", 10);
+        ReflectionTestUtils.setField(reevaluacionLogrosJob, "pausa", Duration.ZERO);
+        when(reevaluacionLogrosService.findById(ID)).thenReturn(new ReevaluacionLogros(ID, ReevaluacionLogros.EN_CURSO,
+                false, null, 0, 0L, 0L, 0L, LocalDateTime.now(), null, null, null, 0L, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reevaluacionLogrosJob.detener();
+    }
+
+    @Test
+    void lanzar_mientrasElHiloAnteriorSale_loVuelveALanzar() {
+        // Primer hilo: se cancela y, antes de que salga, se reanuda (lanzar llega con el hilo aun activo)
+        AtomicInteger llamadas = new AtomicInteger();
+        when(reevaluacionLogrosService.procesarLote(eq(ID), anyInt(), any())).thenAnswer(i -> {
+            if (llamadas.incrementAndGet() == 1) {
+                reevaluacionLogrosJob.lanzar(ID);
+                throw new ObjectOptimisticLockingFailureException(ReevaluacionLogros.class, ID);
+            }
+            return false;
+        });
+
+        reevaluacionLogrosJob.lanzar(ID);
+
+        verify(reevaluacionLogrosService, timeout(2000).times(2)).procesarLote(eq(ID), anyInt(), any());
+    }
+
+    @Test
+    void lanzar_yaEnCursoSinSalir_noDuplicaHilos() throws Exception {
+        when(reevaluacionLogrosService.procesarLote(eq(ID), anyInt(), any())).thenReturn(false);
+
+        reevaluacionLogrosJob.lanzar(ID);
+        verify(reevaluacionLogrosService, timeout(2000).times(1)).procesarLote(eq(ID), anyInt(), any());
+        Thread.sleep(100);
+
+        verify(reevaluacionLogrosService, times(1)).procesarLote(eq(ID), anyInt(), any());
+    }
+}
@@ -0,0 +1,222 @@
+package cl.condor.logros_api.Service;
+
+import cl.condor.logros_api.condicion.EvaluadorCondiciones;
+import cl.condor.logros_api.condicion.KilometrosEvaluador;
+import cl.condor.logros_api.condicion.RegionesEvaluador;
+import cl.condor.logros_api.condicion.RutasEvaluador;
+import cl.condor.logros_api.model.Condicion;
+import cl.condor.logros_api.model.EstadisticaUsuario;
+import cl.condor.logros_api.model.Logro;
+import cl.condor.logros_api.model.ReevaluacionLogros;
+import cl.condor.logros_api.repository.EstadisticaUsuarioRepository;
+import cl.condor.logros_api.repository.ReevaluacionLogrosRepository;
+import cl.condor.logros_api.repository.TrofeoJdbcRepository;
+import cl.condor.logros_api.repository.TrofeoRepository;
+import cl.condor.logros_api.service.CatalogoLogros;
+import cl.condor.logros_api.service.CatalogoLogrosCache;
+import cl.condor.logros_api.service.ConteoTrofeosCache;
+import cl.condor.logros_api.service.ReevaluacionLogrosService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReevaluacionLogrosServiceTest {
+
+    @InjectMocks
+    private ReevaluacionLogrosService reevaluacionLogrosService;
+
+    private final EvaluadorCondiciones evaluador = new EvaluadorCondiciones(
+            List.of(new KilometrosEvaluador(), new RegionesEvaluador(), new RutasEvaluador()));
+
+    @Mock private ReevaluacionLogrosRepository reevaluacionLogrosRepository;
+    @Mock private EstadisticaUsuarioRepository estadisticaUsuarioRepository;
+    @Mock private TrofeoRepository trofeoRepository;
+    @Mock private TrofeoJdbcRepository trofeoJdbcRepository;
+    @Mock private CatalogoLogrosCache catalogoLogrosCache;
+    @Mock private ConteoTrofeosCache conteoTrofeosCache;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private final Long ID = 5L;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // Logro 1: 40 km, logro 2: 2 regiones, logro 3: 3 rutas
+        when(catalogoLogrosCache.snapshot()).thenReturn(CatalogoLogros.compilar(evaluador,
+                List.of(
+                        new Logro(1, "Distanciero", null, null, "", 1, 1),
+                        new Logro(2, "Explorador", null, null, "", 1, 2),
+                        new Logro(3, "Consistente", null, null, "", 1, 3)),
+                List.of(
+                        new Condicion(1, "km", new BigDecimal("40"), 1),
+                        new Condicion(2, "regiones", new BigDecimal("2"), 2),
+                        new Condicion(3, "rutas", new BigDecimal("3"), 3)),
+                List.of()));
+        when(reevaluacionLogrosRepository.save(any(ReevaluacionLogros.class))).thenAnswer(i -> i.getArgument(0));
+        when(trofeoJdbcRepository.insertarIgnorandoExistentes(anyMap(), any())).thenAnswer(i -> {
+            List<Integer> insertados = new ArrayList<>();
+            Map<Integer, List<Integer>> porUsuario = i.getArgument(0);
+            porUsuario.values().forEach(insertados::addAll);
+            return insertados;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private ReevaluacionLogros enCurso(boolean simulacion, String logros, int ultimoIdUsuario) {
+        ReevaluacionLogros r = new ReevaluacionLogros(ID, ReevaluacionLogros.EN_CURSO, simulacion, logros,
+                ultimoIdUsuario, 3L, 0L, 0L, LocalDateTime.now(), null, null, null, 0L, null);
+        when(reevaluacionLogrosRepository.findById(ID)).thenReturn(Optional.of(r));
+        return r;
+    }
+
+    private void lote(int despuesDe, EstadisticaUsuario... usuarios) {
+        when(estadisticaUsuarioRepository.findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(eq(despuesDe), any(Pageable.class)))
+                .thenReturn(List.of(usuarios));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void procesarLote_entregaSoloLosQueFaltanYAvanzaCheckpoint() {
+        ReevaluacionLogros r = enCurso(false, null, 0);
+        lote(0,
+                new EstadisticaUsuario(10, new BigDecimal("50"), 3, 0b11, null),
+                new EstadisticaUsuario(11, new BigDecimal("5"), 1, 0b1, null));
+        // El usuario 10 ya tenia el logro 1
+        when(trofeoRepository.findParesByIdUsuarioIn(List.of(10, 11))).thenReturn(List.<Object[]>of(new Object[]{10, 1}));
+
+        assertTrue(reevaluacionLogrosService.procesarLote(ID, 2, pool));
+
+        ArgumentCaptor<Map<Integer, List<Integer>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(trofeoJdbcRepository).insertarIgnorandoExistentes(captor.capture(), any());
+        assertEquals(Map.of(10, List.of(2, 3)), captor.getValue());
+        verify(conteoTrofeosCache).registrar(List.of(2, 3));
+        assertEquals(11, r.getUltimoIdUsuario());
+        assertEquals(2L, r.getUsuariosProcesados());
+        assertEquals(2L, r.getTrofeosEntregados());
+    }
+
+    @Test
+    void procesarLote_simulacion_cuentaSinInsertar() {
+        ReevaluacionLogros r = enCurso(true, null, 0);
+        lote(0, new EstadisticaUsuario(10, new BigDecimal("50"), 3, 0b11, null));
+        when(trofeoRepository.findParesByIdUsuarioIn(any())).thenReturn(List.of());
+
+        assertTrue(reevaluacionLogrosService.procesarLote(ID, 100, pool));
+
+        verify(trofeoJdbcRepository, never()).insertarIgnorandoExistentes(anyMap(), any());
+        verify(conteoTrofeosCache, never()).registrar(any());
+        assertEquals(3L, r.getTrofeosEntregados());
+        assertEquals(10, r.getUltimoIdUsuario());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void procesarLote_conFiltro_soloEvaluaLosLogrosIndicados() {
+        enCurso(false, "3", 0);
+        lote(0, new EstadisticaUsuario(10, new BigDecimal("50"), 3, 0b11, null));
+        when(trofeoRepository.findParesByIdUsuarioIn(any())).thenReturn(List.of());
+
+        reevaluacionLogrosService.procesarLote(ID, 100, pool);
+
+        ArgumentCaptor<Map<Integer, List<Integer>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(trofeoJdbcRepository).insertarIgnorandoExistentes(captor.capture(), any());
+        assertEquals(Map.of(10, List.of(3)), captor.getValue());
+    }
+
+    @Test
+    void procesarLote_reanudaDesdeCheckpointYCompletaAlTerminar() {
+        ReevaluacionLogros r = enCurso(false, null, 11);
+        lote(11);
+
+        assertFalse(reevaluacionLogrosService.procesarLote(ID, 100, pool));
+
+        assertEquals(ReevaluacionLogros.COMPLETADA, r.getEstado());
+        assertNotNull(r.getFFin());
+        verify(estadisticaUsuarioRepository).findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(eq(11), any(Pageable.class));
+    }
+
+    @Test
+    void procesarLote_cancelada_noProcesa() {
+        ReevaluacionLogros r = enCurso(false, null, 0);
+        r.setEstado(ReevaluacionLogros.CANCELADA);
+
+        assertFalse(reevaluacionLogrosService.procesarLote(ID, 100, pool));
+
+        verifyNoInteractions(estadisticaUsuarioRepository, trofeoJdbcRepository);
+    }
+
+    @Test
+    void iniciar_conOtraEnCurso_lanzaExcepcion() {
+        when(reevaluacionLogrosRepository.existsByEstado(ReevaluacionLogros.EN_CURSO)).thenReturn(true);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> reevaluacionLogrosService.iniciar(false, null));
+
+        assertEquals("Ya hay una reevaluacion en curso", e.getMessage());
+        verify(reevaluacionLogrosRepository, never()).save(any());
+    }
+
+    @Test
+    void iniciar_otraEnCursoConcurrente_indiceUnicoLaRechaza() {
+        when(reevaluacionLogrosRepository.save(any(ReevaluacionLogros.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry '1' for key 'en_curso'"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> reevaluacionLogrosService.iniciar(false, null));
+
+        assertEquals("Ya hay una reevaluacion en curso", e.getMessage());
+    }
+
+    @Test
+    void reanudar_otraEnCursoConcurrente_indiceUnicoLaRechaza() {
+        ReevaluacionLogros r = enCurso(false, null, 0);
+        r.setEstado(ReevaluacionLogros.CANCELADA);
+        when(reevaluacionLogrosRepository.saveAndFlush(any(ReevaluacionLogros.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry '1' for key 'en_curso'"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> reevaluacionLogrosService.reanudar(ID));
+
+        assertEquals("Ya hay una reevaluacion en curso", e.getMessage());
+    }
+
+    @Test
+    void iniciar_logroInexistente_lanzaExcepcion() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> reevaluacionLogrosService.iniciar(false, List.of(1, 99)));
+
+        assertEquals("Logro no encontrado", e.getMessage());
+    }
+
+    @Test
+    void iniciar_guardaFiltroOrdenadoYTotal() {
+        when(estadisticaUsuarioRepository.count()).thenReturn(100_000L);
+
+        ReevaluacionLogros r = reevaluacionLogrosService.iniciar(true, List.of(3, 1));
+
+        assertEquals(ReevaluacionLogros.EN_CURSO, r.getEstado());
+        assertEquals("1,3", r.getLogros());
+        assertEquals(0, r.getUltimoIdUsuario());
+        assertEquals(100_000L, r.getUsuariosTotal());
+        assertTrue(r.getSimulacion());
+    }
+}
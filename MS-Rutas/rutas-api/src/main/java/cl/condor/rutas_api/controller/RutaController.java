@@ -1,20 +1,32 @@
 package cl.condor.rutas_api.controller;
 
+import cl.condor.rutas_api.dto.CalificacionResumenRequest;
 import cl.condor.rutas_api.model.Dificultad;
 import cl.condor.rutas_api.model.Foto;
 import cl.condor.rutas_api.model.Ruta;
 import cl.condor.rutas_api.model.Tipo;
+import cl.condor.rutas_api.service.GeometriaService;
 import cl.condor.rutas_api.service.RutaService;
 import io.swagger.v3.oas.annotations.Operation; // Importación necesaria
 import io.swagger.v3.oas.annotations.tags.Tag; // Importación necesaria
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
@@ -30,6 +42,9 @@ public class RutaController {
     @Autowired
     private RutaService rutaService;
 
+    @Autowired
+    private GeometriaService geometriaService;
+
     // --- ENDPOINTS: RUTAS (CRUD BÁSICO) --------------------------------------
 
     @Operation(
@@ -59,6 +74,138 @@ public class RutaController {
     }
 
 
+    @Operation(
+            summary = "Exportar todas las rutas (NDJSON)",
+            description = "Escribe una ruta por linea, con el mismo formato de GET /rutas, a medida que se leen por bloques. Con gzip=true la salida va comprimida.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Rutas transmitidas en application/x-ndjson.")
+            }
+    )
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody cuerpo = out -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(out, 8192) : out;
+            rutaService.exportar(destino);
+            if (destino instanceof GZIPOutputStream comprimido) {
+                comprimido.finish();
+            }
+        };
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+
+    @Operation(
+            summary = "Obtener rutas paginadas",
+            description = "Retorna una página de rutas ordenadas por ID usando paginación por cursor. Para la siguiente página se envía el 'siguienteCursor' recibido. Admite filtros opcionales por región, tipo, dificultad, estado y rango de distancia.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Página de rutas obtenida exitosamente."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Parámetros de paginación o filtros inválidos."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Servicio externo no disponible.")
+            }
+    )
+    @GetMapping("/pagina")
+    public ResponseEntity<?> findPagina(@RequestParam(required = false) Integer cursor,
+                                        @RequestParam(required = false) Integer limite,
+                                        @RequestParam(required = false) Integer idRegion,
+                                        @RequestParam(required = false) Integer idTipo,
+                                        @RequestParam(required = false) Integer idDificultad,
+                                        @RequestParam(required = false) Integer idEstado,
+                                        @RequestParam(required = false) BigDecimal distanciaMin,
+                                        @RequestParam(required = false) BigDecimal distanciaMax) {
+        try {
+            return ResponseEntity.ok(rutaService.findPagina(cursor, limite, idRegion, idTipo,
+                    idDificultad, idEstado, distanciaMin, distanciaMax));
+        }catch (WebClientRequestException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+
+    @Operation(
+            summary = "Obtener varias rutas por ID",
+            description = "Retorna las rutas de los IDs indicados (máximo 100 por llamada) en el mismo orden. Los IDs que no existen se omiten. Pensado para otros microservicios que necesitan muchas rutas a la vez.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Rutas encontradas (puede ser vacía)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Se pidieron más de 100 IDs.")
+            }
+    )
+    @GetMapping("/lote")
+    public ResponseEntity<?> findLote(@RequestParam List<Integer> ids) {
+        try {
+            return ResponseEntity.ok(rutaService.findLote(ids));
+        }catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @Operation(
+            summary = "Buscar rutas cercanas",
+            description = "Retorna las rutas cuyo punto de inicio está a menos de 'radioKm' kilómetros de (lat, lng), de la más cercana a la más lejana. Usa el índice espacial en memoria.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Rutas cercanas (puede ser vacía)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Coordenadas, radio o límite inválidos.")
+            }
+    )
+    @GetMapping("/cercanas")
+    public ResponseEntity<?> findCercanas(@RequestParam double lat,
+                                          @RequestParam double lng,
+                                          @RequestParam(defaultValue = "10") double radioKm,
+                                          @RequestParam(required = false) Integer limite) {
+        try {
+            List<Integer> ids = geometriaService.idsCercanas(lat, lng, radioKm);
+            return ResponseEntity.ok(rutaService.findResponsesByIds(ids, limite));
+        }catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @Operation(
+            summary = "Buscar rutas en un área",
+            description = "Retorna las rutas cuyo bounding box intersecta el rectángulo (latMin, lngMin) - (latMax, lngMax), por ejemplo el área visible del mapa.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Rutas en el área (puede ser vacía)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Área o límite inválidos.")
+            }
+    )
+    @GetMapping("/area")
+    public ResponseEntity<?> findEnArea(@RequestParam double latMin,
+                                        @RequestParam double lngMin,
+                                        @RequestParam double latMax,
+                                        @RequestParam double lngMax,
+                                        @RequestParam(required = false) Integer limite) {
+        try {
+            List<Integer> ids = geometriaService.idsEnArea(latMin, lngMin, latMax, lngMax);
+            return ResponseEntity.ok(rutaService.findResponsesByIds(ids, limite));
+        }catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @Operation(
+            summary = "Obtener geometría de una ruta",
+            description = "Retorna el trazado de la ruta como encoded polyline. Con 'zoom' (0-22) se entrega una versión simplificada (Douglas-Peucker) con el detalle justo para ese nivel del mapa; sin 'zoom' se entrega completa.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Geometría obtenida."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Zoom inválido."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "La ruta no tiene una geometría válida.")
+            }
+    )
+    @GetMapping("/{id}/geometria")
+    public ResponseEntity<?> getGeometria(@PathVariable Integer id,
+                                          @RequestParam(required = false) Integer zoom) {
+        try {
+            return ResponseEntity.ok(geometriaService.simplificada(id, zoom));
+        }catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+
     @Operation(
             summary = "Obtener ruta por ID",
             description = "Busca y retorna una ruta específica utilizando su identificador único.",
@@ -80,6 +227,19 @@ public class RutaController {
     }
 
 
+    @Operation(
+            summary = "Verificar si existe una ruta",
+            description = "Responde sin cuerpo: 204 si la ruta existe y 404 si no. Pensado para validar FKs desde otros microservicios.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "204", description = "La ruta existe."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Ruta no encontrada.")
+            }
+    )
+    @GetMapping("/{id}/existe")
+    public ResponseEntity<Void> existe(@PathVariable Integer id) {
+        return rutaService.existsById(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
     @Operation(
             summary = "Crear una nueva ruta",
             description = "Registra una nueva ruta. Requiere IDs válidos para estado, región, tipo y dificultad (gestionados por servicios externos).",
@@ -106,7 +266,6 @@ public class RutaController {
             ruta.setF_baneo(null);
             ruta.setGeometriaPolyline(req.getGeometria_polyline() != null ? req.getGeometria_polyline() : "");
             ruta.setTiempoSegundos(req.getTiempo_segundos() != null ? req.getTiempo_segundos() : 0);
-            ruta.setProm_calificacion(req.getProm_calificacion() != null ? req.getProm_calificacion() : java.math.BigDecimal.ZERO);
             ruta.setId_estado(req.getId_estado());
             ruta.setId_region(req.getId_region());
             ruta.setId_tipo(req.getId_tipo());
@@ -138,7 +297,7 @@ public class RutaController {
 
     @Operation(
             summary = "Subir una nueva foto a una ruta",
-            description = "Registra una nueva foto asociada a una ruta existente (id_ruta). Requiere datos binarios (byte[]) para el campo 'imagen'.",
+            description = "Registra una nueva foto asociada a una ruta existente (id_ruta). El campo 'imagen' (byte[] en base64) es opcional; si viene, se guarda en el almacén de blobs y se descarga por /foto/{idFoto}/imagen.",
             responses = {
                     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Foto registrada exitosamente."),
                     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Solicitud inválida (e.g., id_ruta no existe, formato incorrecto)."),
@@ -177,6 +336,34 @@ public class RutaController {
         }
     }
 
+    @Operation(
+            summary = "Descargar imagen de una foto",
+            description = "Transmite los bytes de la imagen de una foto desde el almacén de blobs, sin cargarlos en memoria. Soporta descargas parciales (Range) y validación por ETag (If-None-Match → 304).",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Imagen completa."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "206", description = "Rango parcial de la imagen."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "La imagen no cambió (ETag)."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Foto o imagen no encontrada."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "Error al leer el almacén de blobs.")
+            }
+    )
+    @GetMapping("/foto/{idFoto}/imagen")
+    public ResponseEntity<Resource> getImagenFoto(@PathVariable Integer idFoto) {
+        try {
+            Foto foto = rutaService.findFotoById(idFoto);
+            Resource imagen = rutaService.findImagen(foto);
+            // El contenido de una foto nunca cambia (el ETag es su hash), se puede cachear sin revalidar
+            return ResponseEntity.ok()
+                    .eTag(foto.getHashImagen())
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .contentType(MediaType.parseMediaType(foto.getTipoContenido() != null
+                            ? foto.getTipoContenido() : MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                    .body(imagen);
+        }catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+    }
+
     @Operation(
             summary = "Borrar foto por ID",
             description = "Elimina permanentemente una foto de la base de datos utilizando su identificador único (id_foto).",
@@ -237,13 +424,13 @@ public class RutaController {
 
     @Operation(
             summary = "Actualizar Polyline (Geometría de la Ruta)",
-            description = "Actualiza la cadena de texto Polyline que define la geografía de la ruta."
+            description = "Actualiza la cadena de texto Polyline que define la geografía de la ruta. Responde la ruta sin la polyline (puntos y bbox); el trazado se consulta en /{id}/geometria."
     )
     @PatchMapping("/{id}/polyline")
-    public ResponseEntity<Ruta> updatePolyline(@PathVariable Integer id, @RequestBody String polyline) {
+    public ResponseEntity<cl.condor.rutas_api.dto.RutaResponse> updatePolyline(@PathVariable Integer id, @RequestBody String polyline) {
         try{
-            Ruta ruta = rutaService.updatePolyLine(id, polyline);
-            return ResponseEntity.ok(ruta);
+            rutaService.updatePolyLine(id, polyline);
+            return ResponseEntity.ok(rutaService.findResponseById(id));
         }catch (WebClientRequestException e) {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }catch (RuntimeException e) {
@@ -251,6 +438,46 @@ public class RutaController {
         }
     }
 
+    @Operation(
+            summary = "Actualizar el resumen de calificaciones de una ruta",
+            description = "Guarda promedio y cantidad de calificaciones con un UPDATE de esas columnas, sin reescribir la ruta. Un resumen con una version menor a la guardada se rechaza por desactualizado.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "204", description = "Resumen aplicado."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Promedio, conteo o version inválidos."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Ruta no encontrada."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "La ruta ya tiene un resumen más reciente.")
+            }
+    )
+    @PatchMapping("/{id}/calificacion")
+    public ResponseEntity<?> updateCalificacion(@PathVariable Integer id, @RequestBody CalificacionResumenRequest req) {
+        try {
+            rutaService.actualizarCalificacion(id, req.getPromedio(), req.getConteo(), req.getVersion());
+            return ResponseEntity.noContent().build();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Actualizar resúmenes de calificaciones en lote",
+            description = "Recibe hasta 500 tuplas (idRuta, promedio, conteo, version) y las aplica en un solo UPDATE. Las rutas inexistentes o con un resumen más reciente se omiten. Usado por calificaciones-api.",
+            responses = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Cantidad de resúmenes recibidos y aplicados."),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Lote demasiado grande o con datos inválidos.")
+            }
+    )
+    @PatchMapping("/calificaciones")
+    public ResponseEntity<?> updateCalificaciones(@RequestBody List<CalificacionResumenRequest> resumenes) {
+        try {
+            int aplicadas = rutaService.actualizarCalificaciones(resumenes);
+            return ResponseEntity.ok(Map.of("recibidas", resumenes.size(), "aplicadas", aplicadas));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
     @Operation(
             summary = "Actualizar ruta (reemplazo completo)",
             description = "Actualiza todos los campos editables de una ruta mediante PUT."
@@ -0,0 +1,19 @@
+package cl.condor.rutas_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Promedio y cantidad de calificaciones de una ruta, tal como los calcula calificaciones-api.
+// 'version' es la del agregado en calificaciones-api y solo crece (tambien con las correcciones).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalificacionResumenRequest {
+    private Integer idRuta;
+    private BigDecimal promedio;
+    private Integer conteo;
+    private Long version;
+}
@@ -0,0 +1,19 @@
+package cl.condor.rutas_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RutaGeometriaResponse {
+    private Integer idRuta;
+    private Integer zoom;           // null = resolucion completa
+    private Integer puntos;         // puntos de la version entregada
+    private Integer puntosOriginales;
+    private List<Double> bbox;      // [latMin, lngMin, latMax, lngMax]
+    private String polyline;        // encoded polyline simplificada
+}
@@ -0,0 +1,16 @@
+package cl.condor.rutas_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RutaPageResponse {
+    private List<RutaResponse> rutas;
+    private Integer siguienteCursor; // null cuando no quedan mas paginas
+    private boolean hayMas;
+}
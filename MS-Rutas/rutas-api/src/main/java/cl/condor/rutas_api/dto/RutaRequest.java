@@ -18,7 +18,6 @@ public class RutaRequest {
     private Boolean f_baneo;
     private String geometria_polyline;
     private Integer tiempo_segundos;
-    private BigDecimal prom_calificacion;
     private Integer id_estado;
     private Integer id_region;
     private Integer id_tipo;
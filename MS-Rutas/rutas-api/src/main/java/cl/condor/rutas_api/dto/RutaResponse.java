@@ -24,4 +24,7 @@ public class RutaResponse {
     private BigDecimal distancia;
     private Integer tiempo_segundos;
     private BigDecimal prom_calificacion;
+    private Integer conteo_calificaciones;
+    private List<Double> bbox;   // [latMin, lngMin, latMax, lngMax], null si la polyline no es valida
+    private Integer puntos;
 }
@@ -0,0 +1,8 @@
+package cl.condor.rutas_api.geometria;
+
+// Datos de una ruta que necesita el indice espacial (grados * 1e5), sin la geometria completa
+public record EntradaEspacial(Integer idRuta,
+                              Integer latInicioE5, Integer lngInicioE5,
+                              Integer latMinE5, Integer lngMinE5,
+                              Integer latMaxE5, Integer lngMaxE5) {
+}
@@ -0,0 +1,58 @@
+package cl.condor.rutas_api.geometria;
+
+import cl.condor.rutas_api.model.Ruta;
+import cl.condor.rutas_api.repository.RutaGeometriaRepository;
+import cl.condor.rutas_api.repository.RutaJdbcRepository;
+import cl.condor.rutas_api.repository.RutaRepository;
+import cl.condor.rutas_api.service.GeometriaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Al iniciar, genera la geometria binaria de las rutas que aun no la tienen
+// (rutas creadas antes de existir ruta_geometria o cargadas directo por SQL) y vacia el
+// TEXT de las polylines que ya quedaron en binario
+@Component
+public class GeometriaBackfillRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeometriaBackfillRunner.class);
+
+    @Autowired
+    private RutaRepository rutaRepository;
+
+    @Autowired
+    private RutaGeometriaRepository rutaGeometriaRepository;
+
+    @Autowired
+    private RutaJdbcRepository rutaJdbcRepository;
+
+    @Autowired
+    private GeometriaService geometriaService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Set<Integer> conGeometria = new HashSet<>(rutaGeometriaRepository.findAllIds());
+        int generadas = 0;
+        for (Ruta ruta : rutaRepository.findAll()) {
+            if (conGeometria.contains(ruta.getId_ruta()) || !PolylineCodec.esValida(ruta.getGeometriaPolyline())) {
+                continue;
+            }
+            geometriaService.actualizar(ruta);
+            generadas++;
+        }
+        if (generadas > 0) {
+            logger.info("Geometrias generadas al iniciar: {}", generadas);
+        }
+        // Las rutas de este recorrido no estan administradas, el null de actualizar() no se guarda
+        int vaciadas = rutaJdbcRepository.vaciarPolylinesConGeometria();
+        if (vaciadas > 0) {
+            logger.info("Polylines TEXT vaciadas al iniciar: {}", vaciadas);
+        }
+    }
+}
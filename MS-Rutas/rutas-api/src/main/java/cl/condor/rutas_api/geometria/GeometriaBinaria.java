@@ -0,0 +1,90 @@
+package cl.condor.rutas_api.geometria;
+
+import java.io.ByteArrayOutputStream;
+
+// Formato binario compacto de una geometria: cantidad de puntos y luego los deltas
+// entre puntos consecutivos, en zigzag + varint. Un punto tipico de un trekking ocupa 2-4 bytes.
+public final class GeometriaBinaria {
+
+    private GeometriaBinaria() {
+    }
+
+    public static byte[] comprimir(int[] coords) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(coords.length * 2 + 5);
+        escribirVarint(out, coords.length / 2);
+        int prevLat = 0;
+        int prevLng = 0;
+        for (int i = 0; i + 1 < coords.length; i += 2) {
+            escribirVarint(out, zigzag(coords[i] - prevLat));
+            escribirVarint(out, zigzag(coords[i + 1] - prevLng));
+            prevLat = coords[i];
+            prevLng = coords[i + 1];
+        }
+        return out.toByteArray();
+    }
+
+    public static int[] descomprimir(byte[] datos) {
+        int[] pos = {0};
+        int puntos = leerVarint(datos, pos);
+        if (puntos < 0 || puntos > datos.length) {
+            throw new IllegalArgumentException("Geometria binaria corrupta");
+        }
+        int[] coords = new int[puntos * 2];
+        int lat = 0;
+        int lng = 0;
+        for (int i = 0; i < coords.length; i += 2) {
+            lat += unzigzag(leerVarint(datos, pos));
+            lng += unzigzag(leerVarint(datos, pos));
+            coords[i] = lat;
+            coords[i + 1] = lng;
+        }
+        return coords;
+    }
+
+    // {latMin, lngMin, latMax, lngMax} en grados * 1e5
+    public static int[] bbox(int[] coords) {
+        if (coords.length < 2) {
+            return new int[0];
+        }
+        int[] bbox = {coords[0], coords[1], coords[0], coords[1]};
+        for (int i = 2; i + 1 < coords.length; i += 2) {
+            bbox[0] = Math.min(bbox[0], coords[i]);
+            bbox[1] = Math.min(bbox[1], coords[i + 1]);
+            bbox[2] = Math.max(bbox[2], coords[i]);
+            bbox[3] = Math.max(bbox[3], coords[i + 1]);
+        }
+        return bbox;
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7f) != 0) {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int leerVarint(byte[] datos, int[] pos) {
+        int resultado = 0;
+        int shift = 0;
+        while (true) {
+            if (pos[0] >= datos.length || shift > 28) {
+                throw new IllegalArgumentException("Geometria binaria corrupta");
+            }
+            byte b = datos[pos[0]++];
+            resultado |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return resultado;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package cl.condor.rutas_api.geometria;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Indice espacial en memoria: grilla de celdas de 0.1 grados (~11 km). Cada ruta se registra
+// en todas las celdas que toca su bbox, asi una consulta solo revisa las rutas de las celdas
+// que cubren el area buscada en vez de recorrer todo el catalogo.
+@Component
+public class IndiceEspacial {
+
+    static final int TAMANO_CELDA_E5 = 10_000;           // 0.1 grados
+    private static final int MAX_CELDAS_POR_RUTA = 400;   // rutas mas grandes van a la lista "extensas"
+    private static final double RADIO_TIERRA_KM = 6371.0088;
+
+    private final Map<Long, Set<Integer>> celdas = new ConcurrentHashMap<>();
+    private final Map<Integer, EntradaEspacial> rutas = new ConcurrentHashMap<>();
+    private final Set<Integer> extensas = ConcurrentHashMap.newKeySet();
+
+    public synchronized void reconstruir(Collection<EntradaEspacial> entradas) {
+        celdas.clear();
+        rutas.clear();
+        extensas.clear();
+        for (EntradaEspacial e : entradas) {
+            agregar(e);
+        }
+    }
+
+    // Alta o actualizacion de una ruta (reemplaza su entrada anterior)
+    public synchronized void actualizar(EntradaEspacial entrada) {
+        quitar(entrada.idRuta());
+        agregar(entrada);
+    }
+
+    public synchronized void eliminar(Integer idRuta) {
+        quitar(idRuta);
+    }
+
+    public int size() {
+        return rutas.size();
+    }
+
+    // Ids de rutas cuyo punto de inicio esta a menos de radioKm, de la mas cercana a la mas lejana
+    public List<Integer> cercanas(double lat, double lng, double radioKm) {
+        double dLat = Math.toDegrees(radioKm / RADIO_TIERRA_KM);
+        double cosLat = Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+        double dLng = Math.min(180, dLat / cosLat);
+
+        List<double[]> encontradas = new ArrayList<>();
+        for (Integer id : candidatas(lat - dLat, lng - dLng, lat + dLat, lng + dLng)) {
+            EntradaEspacial e = rutas.get(id);
+            if (e == null) continue;
+            double d = haversineKm(lat, lng, e.latInicioE5() / 1e5, e.lngInicioE5() / 1e5);
+            if (d <= radioKm) {
+                encontradas.add(new double[]{d, id});
+            }
+        }
+        encontradas.sort(Comparator.comparingDouble(par -> par[0]));
+        List<Integer> ids = new ArrayList<>(encontradas.size());
+        for (double[] par : encontradas) {
+            ids.add((int) par[1]);
+        }
+        return ids;
+    }
+
+    // Ids de rutas cuyo bbox intersecta el area pedida
+    public List<Integer> enArea(double latMin, double lngMin, double latMax, double lngMax) {
+        int aLatMin = aE5(latMin), aLngMin = aE5(lngMin), aLatMax = aE5(latMax), aLngMax = aE5(lngMax);
+        List<Integer> ids = new ArrayList<>();
+        for (Integer id : candidatas(latMin, lngMin, latMax, lngMax)) {
+            EntradaEspacial e = rutas.get(id);
+            if (e != null && e.latMinE5() <= aLatMax && e.latMaxE5() >= aLatMin
+                    && e.lngMinE5() <= aLngMax && e.lngMaxE5() >= aLngMin) {
+                ids.add(id);
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Set<Integer> candidatas(double latMin, double lngMin, double latMax, double lngMax) {
+        int cLatMin = celda(aE5(latMin)), cLatMax = celda(aE5(latMax));
+        int cLngMin = celda(aE5(lngMin)), cLngMax = celda(aE5(lngMax));
+        // Si el area cubre mas celdas que rutas hay, es mas barato revisar todas las rutas
+        long totalCeldas = (long) (cLatMax - cLatMin + 1) * (cLngMax - cLngMin + 1);
+        if (totalCeldas > rutas.size()) {
+            return new HashSet<>(rutas.keySet());
+        }
+        Set<Integer> ids = new HashSet<>(extensas);
+        for (int cLat = cLatMin; cLat <= cLatMax; cLat++) {
+            for (int cLng = cLngMin; cLng <= cLngMax; cLng++) {
+                Set<Integer> enCelda = celdas.get(clave(cLat, cLng));
+                if (enCelda != null) ids.addAll(enCelda);
+            }
+        }
+        return ids;
+    }
+
+    private void agregar(EntradaEspacial e) {
+        rutas.put(e.idRuta(), e);
+        int cLatMin = celda(e.latMinE5()), cLatMax = celda(e.latMaxE5());
+        int cLngMin = celda(e.lngMinE5()), cLngMax = celda(e.lngMaxE5());
+        long total = (long) (cLatMax - cLatMin + 1) * (cLngMax - cLngMin + 1);
+        if (total > MAX_CELDAS_POR_RUTA) {
+            extensas.add(e.idRuta());
+            return;
+        }
+        for (int cLat = cLatMin; cLat <= cLatMax; cLat++) {
+            for (int cLng = cLngMin; cLng <= cLngMax; cLng++) {
+                celdas.computeIfAbsent(clave(cLat, cLng), k -> ConcurrentHashMap.newKeySet()).add(e.idRuta());
+            }
+        }
+    }
+
+    private void quitar(Integer idRuta) {
+        EntradaEspacial e = rutas.remove(idRuta);
+        if (e == null) return;
+        if (extensas.remove(idRuta)) return;
+        for (int cLat = celda(e.latMinE5()); cLat <= celda(e.latMaxE5()); cLat++) {
+            for (int cLng = celda(e.lngMinE5()); cLng <= celda(e.lngMaxE5()); cLng++) {
+                long k = clave(cLat, cLng);
+                Set<Integer> enCelda = celdas.get(k);
+                if (enCelda != null) {
+                    enCelda.remove(idRuta);
+                    if (enCelda.isEmpty()) celdas.remove(k);
+                }
+            }
+        }
+    }
+
+    private static int aE5(double grados) {
+        return (int) Math.round(grados * 1e5);
+    }
+
+    private static int celda(int e5) {
+        return Math.floorDiv(e5, TAMANO_CELDA_E5);
+    }
+
+    private static long clave(int cLat, int cLng) {
+        return ((long) cLat << 32) | (cLng & 0xffffffffL);
+    }
+
+    static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,94 @@
+package cl.condor.rutas_api.geometria;
+
+import java.util.Arrays;
+
+// Codificacion "encoded polyline" de Google. Las coordenadas se manejan como int[]
+// intercalado {lat0, lng0, lat1, lng1, ...} en grados * 1e5 (la misma precision del formato).
+public final class PolylineCodec {
+
+    private PolylineCodec() {
+    }
+
+    public static int[] decode(String polyline) {
+        if (polyline == null || polyline.isEmpty()) {
+            throw new IllegalArgumentException("Polyline vacia");
+        }
+        int[] coords = new int[Math.max(2, polyline.length())];
+        int n = 0;
+        int i = 0;
+        int lat = 0;
+        int lng = 0;
+        while (i < polyline.length()) {
+            int[] resultado = leerValor(polyline, i);
+            lat += resultado[0];
+            i = resultado[1];
+            if (i >= polyline.length()) {
+                throw new IllegalArgumentException("Polyline truncada");
+            }
+            resultado = leerValor(polyline, i);
+            lng += resultado[0];
+            i = resultado[1];
+
+            if (lat < -9_000_000 || lat > 9_000_000 || lng < -18_000_000 || lng > 18_000_000) {
+                throw new IllegalArgumentException("Coordenada fuera de rango");
+            }
+            if (n + 2 > coords.length) {
+                coords = Arrays.copyOf(coords, coords.length * 2);
+            }
+            coords[n++] = lat;
+            coords[n++] = lng;
+        }
+        return Arrays.copyOf(coords, n);
+    }
+
+    public static String encode(int[] coords) {
+        StringBuilder sb = new StringBuilder(coords.length * 3);
+        int prevLat = 0;
+        int prevLng = 0;
+        for (int i = 0; i + 1 < coords.length; i += 2) {
+            escribirValor(sb, coords[i] - prevLat);
+            escribirValor(sb, coords[i + 1] - prevLng);
+            prevLat = coords[i];
+            prevLng = coords[i + 1];
+        }
+        return sb.toString();
+    }
+
+    public static boolean esValida(String polyline) {
+        try {
+            decode(polyline);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Retorna {valor, siguiente indice}
+    private static int[] leerValor(String s, int i) {
+        int resultado = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (i >= s.length() || shift > 30) {
+                throw new IllegalArgumentException("Polyline mal formada");
+            }
+            b = s.charAt(i++) - 63;
+            if (b < 0 || b > 63) {
+                throw new IllegalArgumentException("Caracter invalido en polyline");
+            }
+            resultado |= (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        int valor = (resultado & 1) != 0 ? ~(resultado >> 1) : (resultado >> 1);
+        return new int[]{valor, i};
+    }
+
+    private static void escribirValor(StringBuilder sb, int valor) {
+        int v = valor < 0 ? ~(valor << 1) : (valor << 1);
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
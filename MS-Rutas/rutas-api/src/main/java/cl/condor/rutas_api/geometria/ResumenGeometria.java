@@ -0,0 +1,14 @@
+package cl.condor.rutas_api.geometria;
+
+import java.util.List;
+
+// Lo que los listados muestran de la geometria (cantidad de puntos y bbox en grados * 1e5).
+// Se lee con una proyeccion JPQL para no traer la columna 'datos' (MEDIUMBLOB).
+public record ResumenGeometria(Integer idRuta, Integer puntos,
+                               Integer latMinE5, Integer lngMinE5,
+                               Integer latMaxE5, Integer lngMaxE5) {
+
+    public List<Double> bbox() {
+        return List.of(latMinE5 / 1e5, lngMinE5 / 1e5, latMaxE5 / 1e5, lngMaxE5 / 1e5);
+    }
+}
@@ -0,0 +1,85 @@
+package cl.condor.rutas_api.geometria;
+
+import java.util.Arrays;
+
+// Simplificacion Douglas-Peucker sobre coordenadas int[] intercalado (grados * 1e5)
+public final class Simplificador {
+
+    public static final int ZOOM_MAXIMO = 22;
+
+    private Simplificador() {
+    }
+
+    // Tolerancia de ~1 pixel (tiles de 256px) para el zoom pedido, en grados * 1e5
+    public static double toleranciaParaZoom(int zoom) {
+        int z = Math.max(0, Math.min(ZOOM_MAXIMO, zoom));
+        return (360.0 / 256.0) * 1e5 / (1L << z);
+    }
+
+    public static int[] simplificar(int[] coords, double tolerancia) {
+        int n = coords.length / 2;
+        if (n <= 2 || tolerancia <= 0) {
+            return coords;
+        }
+        boolean[] conservar = new boolean[n];
+        conservar[0] = true;
+        conservar[n - 1] = true;
+        double tol2 = tolerancia * tolerancia;
+
+        // Pila explicita en vez de recursion: los tracks largos no revientan el stack
+        int[] pila = new int[64];
+        int tope = 0;
+        pila[tope++] = 0;
+        pila[tope++] = n - 1;
+        while (tope > 0) {
+            int fin = pila[--tope];
+            int inicio = pila[--tope];
+            double maxDist = -1;
+            int indice = -1;
+            for (int i = inicio + 1; i < fin; i++) {
+                double d = distanciaSegmento2(coords, i, inicio, fin);
+                if (d > maxDist) {
+                    maxDist = d;
+                    indice = i;
+                }
+            }
+            if (indice != -1 && maxDist > tol2) {
+                conservar[indice] = true;
+                if (tope + 4 > pila.length) {
+                    pila = Arrays.copyOf(pila, pila.length * 2);
+                }
+                pila[tope++] = inicio;
+                pila[tope++] = indice;
+                pila[tope++] = indice;
+                pila[tope++] = fin;
+            }
+        }
+
+        int total = 0;
+        for (boolean c : conservar) {
+            if (c) total++;
+        }
+        int[] resultado = new int[total * 2];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (conservar[i]) {
+                resultado[j++] = coords[2 * i];
+                resultado[j++] = coords[2 * i + 1];
+            }
+        }
+        return resultado;
+    }
+
+    // Distancia al cuadrado del punto p al segmento a-b
+    private static double distanciaSegmento2(int[] c, int p, int a, int b) {
+        double px = c[2 * p + 1], py = c[2 * p];
+        double ax = c[2 * a + 1], ay = c[2 * a];
+        double bx = c[2 * b + 1], by = c[2 * b];
+        double dx = bx - ax, dy = by - ay;
+        double largo2 = dx * dx + dy * dy;
+        double t = largo2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / largo2));
+        double x = ax + t * dx - px;
+        double y = ay + t * dy - py;
+        return x * x + y * y;
+    }
+}
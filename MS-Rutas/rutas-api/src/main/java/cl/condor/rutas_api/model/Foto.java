@@ -1,12 +1,15 @@
 package cl.condor.rutas_api.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "foto")
+@Table(name = "foto", indexes = {
+        @Index(name = "idx_foto_hash_imagen", columnList = "hash_imagen")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,11 +24,29 @@ public class Foto {
     @Column(name = "nombre", length = 2048)
     private String nombre;
 
-    @Lob
-    @Column(name = "imagen", columnDefinition = "LONGBLOB")
+    // Los bytes ya no viven en la fila: solo se reciben al subir la foto y se guardan en el BlobStore.
+    // Se descargan por GET /api/v1/rutas/foto/{idFoto}/imagen
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] imagen;
 
     @Column(name = "id_ruta")
     private Integer idRuta;
-}
 
+    // SHA-256 del contenido, clave del blob en el BlobStore
+    @Column(name = "hash_imagen", length = 64)
+    private String hashImagen;
+
+    @Column(name = "tipo_contenido", length = 100)
+    private String tipoContenido;
+
+    @Column(name = "tamano")
+    private Long tamano;
+
+    public Foto(Integer id_foto, String nombre, byte[] imagen, Integer idRuta) {
+        this.id_foto = id_foto;
+        this.nombre = nombre;
+        this.imagen = imagen;
+        this.idRuta = idRuta;
+    }
+}
@@ -9,7 +9,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ruta")
+@Table(name = "ruta", indexes = {
+        // Indices compuestos (filtro, id_ruta) para la paginacion por cursor filtrada
+        @Index(name = "idx_ruta_region_id", columnList = "id_region, id_ruta"),
+        @Index(name = "idx_ruta_tipo_id", columnList = "id_tipo, id_ruta"),
+        @Index(name = "idx_ruta_dificultad_id", columnList = "id_dificultad, id_ruta"),
+        @Index(name = "idx_ruta_estado_id", columnList = "id_estado, id_ruta"),
+        @Index(name = "idx_ruta_distancia_id", columnList = "distancia, id_ruta")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,15 +42,26 @@ public class Ruta {
     @Column(name = "f_baneo")
     private LocalDateTime f_baneo;
 
+    // Solo se conserva si la polyline no se pudo decodificar; las validas viven en ruta_geometria
     @Column(name = "geometria_polyline", columnDefinition = "TEXT")
     private String geometriaPolyline;
 
     @Column(name = "tiempo_segundos")
     private Integer tiempoSegundos;
 
-    @Column(name = "prom_calificacion", precision = 3, scale = 2)
+    // Promedio y cantidad de calificaciones: solo los escribe RutaJdbcRepository (PATCH de
+    // calificaciones-api). Fuera del INSERT/UPDATE de la entidad para que guardar una ruta
+    // editada no pise un resumen aplicado mientras tanto con el valor leido en findById.
+    @Column(name = "prom_calificacion", precision = 3, scale = 2, insertable = false, updatable = false)
     private BigDecimal prom_calificacion;
 
+    @Column(name = "conteo_calificaciones", insertable = false, updatable = false)
+    private Integer conteo_calificaciones;
+
+    // Version del resumen aplicado; un resumen con version menor llego tarde y se ignora
+    @Column(name = "version_calificaciones", insertable = false, updatable = false)
+    private Long version_calificaciones;
+
     @Column(name = "f_creacion", updatable = false, insertable = false)
     private LocalDateTime f_creacion;
 
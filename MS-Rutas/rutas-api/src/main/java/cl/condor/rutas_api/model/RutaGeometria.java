@@ -0,0 +1,49 @@
+package cl.condor.rutas_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Geometria de la ruta decodificada desde geometria_polyline y guardada en binario compacto
+// (deltas zigzag-varint). El bbox y la cantidad de puntos se guardan aparte para los listados.
+@Entity
+@Table(name = "ruta_geometria")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RutaGeometria {
+
+    @Id
+    @Column(name = "id_ruta")
+    private Integer idRuta;
+
+    @Column(name = "puntos", nullable = false)
+    private Integer puntos;
+
+    // Punto de inicio de la ruta, grados * 1e5 (nulo en filas anteriores, se regeneran al iniciar)
+    @Column(name = "lat_inicio_e5")
+    private Integer latInicioE5;
+
+    @Column(name = "lng_inicio_e5")
+    private Integer lngInicioE5;
+
+    // Bounding box en grados * 1e5
+    @Column(name = "lat_min_e5", nullable = false)
+    private Integer latMinE5;
+
+    @Column(name = "lng_min_e5", nullable = false)
+    private Integer lngMinE5;
+
+    @Column(name = "lat_max_e5", nullable = false)
+    private Integer latMaxE5;
+
+    @Column(name = "lng_max_e5", nullable = false)
+    private Integer lngMaxE5;
+
+    // Sin bytecode enhancement un LAZY sobre un basico no tiene efecto: cargar la entidad trae
+    // siempre este blob. Los listados usan ResumenGeometria, que no lo selecciona.
+    @Lob
+    @Column(name = "datos", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] datos;
+}
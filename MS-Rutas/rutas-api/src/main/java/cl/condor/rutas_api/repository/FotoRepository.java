@@ -5,9 +5,16 @@ import cl.condor.rutas_api.model.Ruta;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface FotoRepository extends JpaRepository<Foto, Integer> {
     List<Foto> findByIdRuta(Integer id_ruta);
+
+    // Carga las fotos de varias rutas en una sola consulta (armado por lotes de RutaResponse)
+    List<Foto> findByIdRutaIn(Collection<Integer> idsRuta);
+
+    // Un blob solo se borra cuando ninguna foto lo referencia (dedup por hash)
+    long countByHashImagen(String hashImagen);
 }
@@ -0,0 +1,47 @@
+package cl.condor.rutas_api.repository;
+
+import cl.condor.rutas_api.geometria.EntradaEspacial;
+import cl.condor.rutas_api.geometria.ResumenGeometria;
+import cl.condor.rutas_api.model.RutaGeometria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RutaGeometriaRepository extends JpaRepository<RutaGeometria, Integer> {
+
+    // Solo los ids de geometrias completas, sin cargar los datos binarios
+    @Query("SELECT g.idRuta FROM RutaGeometria g WHERE g.latInicioE5 IS NOT NULL")
+    List<Integer> findAllIds();
+
+    // Entradas del indice espacial, sin cargar los datos binarios
+    @Query("""
+            SELECT new cl.condor.rutas_api.geometria.EntradaEspacial(
+                g.idRuta, g.latInicioE5, g.lngInicioE5, g.latMinE5, g.lngMinE5, g.latMaxE5, g.lngMaxE5)
+            FROM RutaGeometria g
+            WHERE g.latInicioE5 IS NOT NULL
+            """)
+    List<EntradaEspacial> findEntradasEspaciales();
+
+    // Puntos y bbox para los listados, sin cargar los datos binarios
+    @Query("""
+            SELECT new cl.condor.rutas_api.geometria.ResumenGeometria(
+                g.idRuta, g.puntos, g.latMinE5, g.lngMinE5, g.latMaxE5, g.lngMaxE5)
+            FROM RutaGeometria g
+            WHERE g.idRuta IN :ids
+            """)
+    List<ResumenGeometria> findResumenes(@Param("ids") Collection<Integer> ids);
+
+    @Query("""
+            SELECT new cl.condor.rutas_api.geometria.ResumenGeometria(
+                g.idRuta, g.puntos, g.latMinE5, g.lngMinE5, g.latMaxE5, g.lngMaxE5)
+            FROM RutaGeometria g
+            WHERE g.idRuta = :id
+            """)
+    Optional<ResumenGeometria> findResumen(@Param("id") Integer id);
+}
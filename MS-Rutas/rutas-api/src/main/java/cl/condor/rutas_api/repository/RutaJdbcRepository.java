@@ -0,0 +1,67 @@
+package cl.condor.rutas_api.repository;
+
+import cl.condor.rutas_api.dto.CalificacionResumenRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Escrituras puntuales sobre ruta que no necesitan cargar la entidad (descripcion LONGTEXT,
+// polyline) ni pasar por el contexto de persistencia.
+@Repository
+public class RutaJdbcRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Aplica varios resumenes de calificacion en un solo UPDATE que toca solo prom_calificacion,
+    // conteo_calificaciones y version_calificaciones. Se compara la version y no el conteo: una
+    // correccion de la conciliacion puede bajar el conteo pero siempre trae una version mayor.
+    // Un resumen con version menor a la guardada llego tarde y se ignora; la misma version se
+    // reaplica (reintentos). Retorna cuantas rutas se actualizaron.
+    public int actualizarCalificaciones(List<CalificacionResumenRequest> resumenes) {
+        if (resumenes.isEmpty()) {
+            return 0;
+        }
+        String casos = String.join(" ", Collections.nCopies(resumenes.size(), "WHEN ? THEN ?"));
+        String ids = String.join(", ", Collections.nCopies(resumenes.size(), "?"));
+        String sql = "UPDATE ruta SET"
+                + " prom_calificacion = CASE id_ruta " + casos + " END,"
+                + " conteo_calificaciones = CASE id_ruta " + casos + " END,"
+                + " version_calificaciones = CASE id_ruta " + casos + " END"
+                + " WHERE id_ruta IN (" + ids + ")"
+                + " AND (version_calificaciones IS NULL OR version_calificaciones <= CASE id_ruta " + casos + " END)";
+
+        List<Object> params = new ArrayList<>(resumenes.size() * 9);
+        for (CalificacionResumenRequest r : resumenes) {
+            params.add(r.getIdRuta());
+            params.add(r.getPromedio());
+        }
+        for (CalificacionResumenRequest r : resumenes) {
+            params.add(r.getIdRuta());
+            params.add(r.getConteo());
+        }
+        for (CalificacionResumenRequest r : resumenes) {
+            params.add(r.getIdRuta());
+            params.add(r.getVersion());
+        }
+        for (CalificacionResumenRequest r : resumenes) {
+            params.add(r.getIdRuta());
+        }
+        for (CalificacionResumenRequest r : resumenes) {
+            params.add(r.getIdRuta());
+            params.add(r.getVersion());
+        }
+        return jdbcTemplate.update(sql, params.toArray());
+    }
+
+    // Borra el TEXT de las rutas cuya polyline ya esta en ruta_geometria, el binario es la copia
+    // que se usa. Las polylines invalidas no tienen fila en ruta_geometria y se conservan.
+    public int vaciarPolylinesConGeometria() {
+        return jdbcTemplate.update("UPDATE ruta r JOIN ruta_geometria g ON g.id_ruta = r.id_ruta"
+                + " SET r.geometria_polyline = NULL WHERE r.geometria_polyline IS NOT NULL");
+    }
+}
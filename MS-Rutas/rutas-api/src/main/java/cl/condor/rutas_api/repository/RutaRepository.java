@@ -1,10 +1,37 @@
 package cl.condor.rutas_api.repository;
 
 import cl.condor.rutas_api.model.Ruta;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Repository
 public interface RutaRepository extends JpaRepository<Ruta, Integer> {
+
+    // Paginacion por cursor (keyset) sobre id_ruta: cada pagina parte desde el ultimo id
+    // entregado, asi la pagina N cuesta lo mismo que la primera. Los filtros nulos se ignoran.
+    @Query("""
+            SELECT r FROM Ruta r
+            WHERE (:cursor IS NULL OR r.id_ruta > :cursor)
+              AND (:idRegion IS NULL OR r.id_region = :idRegion)
+              AND (:idTipo IS NULL OR r.id_tipo = :idTipo)
+              AND (:idDificultad IS NULL OR r.id_dificultad = :idDificultad)
+              AND (:idEstado IS NULL OR r.id_estado = :idEstado)
+              AND (:distanciaMin IS NULL OR r.distancia >= :distanciaMin)
+              AND (:distanciaMax IS NULL OR r.distancia <= :distanciaMax)
+            ORDER BY r.id_ruta ASC
+            """)
+    List<Ruta> buscarPagina(@Param("cursor") Integer cursor,
+                            @Param("idRegion") Integer idRegion,
+                            @Param("idTipo") Integer idTipo,
+                            @Param("idDificultad") Integer idDificultad,
+                            @Param("idEstado") Integer idEstado,
+                            @Param("distanciaMin") BigDecimal distanciaMin,
+                            @Param("distanciaMax") BigDecimal distanciaMax,
+                            Pageable pageable);
 }
@@ -0,0 +1,145 @@
+package cl.condor.rutas_api.service;
+
+import cl.condor.rutas_api.dto.RutaGeometriaResponse;
+import cl.condor.rutas_api.geometria.EntradaEspacial;
+import cl.condor.rutas_api.geometria.GeometriaBinaria;
+import cl.condor.rutas_api.geometria.IndiceEspacial;
+import cl.condor.rutas_api.geometria.PolylineCodec;
+import cl.condor.rutas_api.geometria.ResumenGeometria;
+import cl.condor.rutas_api.geometria.Simplificador;
+import cl.condor.rutas_api.model.Ruta;
+import cl.condor.rutas_api.model.RutaGeometria;
+import cl.condor.rutas_api.repository.RutaGeometriaRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class GeometriaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeometriaService.class);
+
+    static final double RADIO_MAXIMO_KM = 500;
+
+    @Autowired
+    private RutaGeometriaRepository rutaGeometriaRepository;
+
+    @Autowired
+    private IndiceEspacial indiceEspacial;
+
+    // Recalcula la geometria binaria a partir de geometria_polyline. Si la polyline no se
+    // puede decodificar se deja solo el TEXT original y se borra la geometria anterior; si se
+    // decodifica, el binario pasa a ser la unica copia y el TEXT de la ruta queda en null.
+    public RutaGeometria actualizar(Ruta ruta) {
+        if (ruta == null || ruta.getId_ruta() == null || ruta.getGeometriaPolyline() == null) {
+            return null;
+        }
+        int[] coords;
+        try {
+            coords = PolylineCodec.decode(ruta.getGeometriaPolyline());
+        } catch (IllegalArgumentException e) {
+            eliminar(ruta.getId_ruta());
+            return null;
+        }
+        int[] bbox = GeometriaBinaria.bbox(coords);
+        RutaGeometria geometria = new RutaGeometria(ruta.getId_ruta(), coords.length / 2,
+                coords[0], coords[1], bbox[0], bbox[1], bbox[2], bbox[3], GeometriaBinaria.comprimir(coords));
+        RutaGeometria guardada = rutaGeometriaRepository.save(geometria);
+        // La ruta viene administrada por la transaccion del llamador, el null se escribe al hacer flush
+        ruta.setGeometriaPolyline(null);
+
+        EntradaEspacial entrada = new EntradaEspacial(ruta.getId_ruta(), coords[0], coords[1],
+                bbox[0], bbox[1], bbox[2], bbox[3]);
+        DespuesDelCommit.ejecutar(() -> indiceEspacial.actualizar(entrada));
+        return guardada;
+    }
+
+    public void eliminar(Integer idRuta) {
+        if (rutaGeometriaRepository.existsById(idRuta)) {
+            rutaGeometriaRepository.deleteById(idRuta);
+        }
+        DespuesDelCommit.ejecutar(() -> indiceEspacial.eliminar(idRuta));
+    }
+
+    // Carga el indice espacial completo una vez que la aplicacion (y el backfill) termino de iniciar
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirIndice() {
+        List<EntradaEspacial> entradas = rutaGeometriaRepository.findEntradasEspaciales();
+        indiceEspacial.reconstruir(entradas);
+        logger.info("Indice espacial cargado con {} rutas", entradas.size());
+    }
+
+    // Rutas cuyo inicio esta dentro del radio, ordenadas por cercania
+    public List<Integer> idsCercanas(double lat, double lng, double radioKm) {
+        validarCoordenada(lat, lng);
+        if (radioKm <= 0 || radioKm > RADIO_MAXIMO_KM) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El radio debe ser mayor a 0 y como maximo " + RADIO_MAXIMO_KM + " km");
+        }
+        return indiceEspacial.cercanas(lat, lng, radioKm);
+    }
+
+    // Rutas cuyo bbox intersecta el area pedida
+    public List<Integer> idsEnArea(double latMin, double lngMin, double latMax, double lngMax) {
+        validarCoordenada(latMin, lngMin);
+        validarCoordenada(latMax, lngMax);
+        if (latMin > latMax || lngMin > lngMax) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El area pedida no es valida");
+        }
+        return indiceEspacial.enArea(latMin, lngMin, latMax, lngMax);
+    }
+
+    private static void validarCoordenada(double lat, double lng) {
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Coordenadas fuera de rango");
+        }
+    }
+
+    // Puntos y bbox de una ruta, sin cargar el blob de la geometria
+    public ResumenGeometria findResumen(Integer idRuta) {
+        return rutaGeometriaRepository.findResumen(idRuta).orElse(null);
+    }
+
+    // Puntos y bbox de varias rutas en una sola consulta, para armar los listados
+    public Map<Integer, ResumenGeometria> findResumenes(Collection<Integer> idsRuta) {
+        if (idsRuta.isEmpty()) {
+            return Map.of();
+        }
+        return rutaGeometriaRepository.findResumenes(idsRuta).stream()
+                .collect(Collectors.toMap(ResumenGeometria::idRuta, Function.identity()));
+    }
+
+    // Geometria simplificada para un nivel de zoom (sin zoom se entrega completa)
+    public RutaGeometriaResponse simplificada(Integer idRuta, Integer zoom) {
+        if (zoom != null && (zoom < 0 || zoom > Simplificador.ZOOM_MAXIMO)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El zoom debe estar entre 0 y " + Simplificador.ZOOM_MAXIMO);
+        }
+        RutaGeometria geometria = rutaGeometriaRepository.findById(idRuta)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Geometria no encontrada"));
+
+        int[] coords = GeometriaBinaria.descomprimir(geometria.getDatos());
+        if (zoom != null) {
+            coords = Simplificador.simplificar(coords, Simplificador.toleranciaParaZoom(zoom));
+        }
+        return new RutaGeometriaResponse(idRuta, zoom, coords.length / 2, geometria.getPuntos(),
+                bbox(geometria), PolylineCodec.encode(coords));
+    }
+
+    public static List<Double> bbox(RutaGeometria g) {
+        return List.of(g.getLatMinE5() / 1e5, g.getLngMinE5() / 1e5, g.getLatMaxE5() / 1e5, g.getLngMaxE5() / 1e5);
+    }
+}
@@ -0,0 +1,152 @@
+package cl.condor.rutas_api.service;
+
+import cl.condor.rutas_api.webclient.EstadoClient;
+import cl.condor.rutas_api.webclient.RegionClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Cache local de regiones y estados (datos de referencia de usuarios-api, casi estaticos).
+// Se precarga al iniciar y se refresca en segundo plano cuando se acerca al TTL (refresh-ahead),
+// asi validar una ruta no hace llamadas remotas. Si usuarios-api no responde se sigue usando
+// la ultima copia cargada.
+@Component
+public class ReferenciaCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenciaCache.class);
+
+    private final Referencias regiones;
+    private final Referencias estados;
+
+    @Autowired
+    public ReferenciaCache(RegionClient regionClient, EstadoClient estadoClient,
+                           @Value("${referencias.ttl:PT10M}") Duration ttl) {
+        this(regionClient, estadoClient, ttl, CompletableFuture::runAsync);
+    }
+
+    public ReferenciaCache(RegionClient regionClient, EstadoClient estadoClient, Duration ttl, Executor executor) {
+        this.regiones = new Referencias("regiones", regionClient::getRegiones, regionClient::getRegionesById, ttl, executor);
+        this.estados = new Referencias("estados", estadoClient::getEstados, estadoClient::getEstadosById, ttl, executor);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        try {
+            regiones.recargar();
+            estados.recargar();
+        } catch (RuntimeException e) {
+            // No impide el arranque: se cargara en la primera validacion
+            logger.warn("No se pudo precargar regiones/estados desde usuarios-api: {}", e.getMessage());
+        }
+    }
+
+    public boolean existeRegion(Integer id) {
+        return regiones.existe(id);
+    }
+
+    public boolean existeEstado(Integer id) {
+        return estados.existe(id);
+    }
+
+    private static final class Referencias {
+
+        private record Snapshot(Set<Integer> ids, long cargadoEnNanos) {
+        }
+
+        private final String nombre;
+        private final Supplier<List<Map<String, Object>>> listar;
+        private final IntFunction<Map<String, Object>> buscarPorId;
+        private final long ttlNanos;
+        private final Executor executor;
+        private final AtomicBoolean refrescando = new AtomicBoolean(false);
+        private volatile Snapshot snapshot;
+
+        Referencias(String nombre, Supplier<List<Map<String, Object>>> listar,
+                    IntFunction<Map<String, Object>> buscarPorId, Duration ttl, Executor executor) {
+            this.nombre = nombre;
+            this.listar = listar;
+            this.buscarPorId = buscarPorId;
+            this.ttlNanos = ttl.toNanos();
+            this.executor = executor;
+        }
+
+        boolean existe(Integer id) {
+            if (id == null) return false;
+            Snapshot actual = snapshot;
+            if (actual == null) {
+                // Sin copia local: se carga en linea (si usuarios-api esta caido, el error sube)
+                actual = recargar();
+            } else {
+                refrescarSiCorresponde(actual);
+            }
+            if (actual.ids().contains(id)) {
+                return true;
+            }
+            // Puede ser un registro creado despues de la ultima carga: se consulta solo ese id
+            Map<String, Object> remoto;
+            try {
+                remoto = buscarPorId.apply(id);
+            } catch (RuntimeException e) {
+                return false;
+            }
+            if (remoto == null || remoto.isEmpty()) {
+                return false;
+            }
+            refrescarEnSegundoPlano();
+            return true;
+        }
+
+        // Refresh-ahead: al pasar el 80% del TTL se recarga en segundo plano sin bloquear al que lee
+        private void refrescarSiCorresponde(Snapshot actual) {
+            if (System.nanoTime() - actual.cargadoEnNanos() >= ttlNanos * 8 / 10) {
+                refrescarEnSegundoPlano();
+            }
+        }
+
+        private void refrescarEnSegundoPlano() {
+            if (!refrescando.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        recargar();
+                    } catch (RuntimeException e) {
+                        logger.warn("No se pudo refrescar {} desde usuarios-api, se mantiene la copia anterior", nombre);
+                    } finally {
+                        refrescando.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                refrescando.set(false);
+            }
+        }
+
+        Snapshot recargar() {
+            Set<Integer> ids = new HashSet<>();
+            for (Map<String, Object> fila : listar.get()) {
+                if (fila.get("id") instanceof Number n) {
+                    ids.add(n.intValue());
+                }
+            }
+            Snapshot nuevo = new Snapshot(Set.copyOf(ids), System.nanoTime());
+            snapshot = nuevo;
+            return nuevo;
+        }
+    }
+}
@@ -1,50 +1,95 @@
 package cl.condor.rutas_api.service;
 
+import cl.condor.rutas_api.geometria.ResumenGeometria;
 import cl.condor.rutas_api.model.Dificultad;
 import cl.condor.rutas_api.model.Foto;
 import cl.condor.rutas_api.model.Ruta;
 import cl.condor.rutas_api.model.Tipo;
 import cl.condor.rutas_api.repository.DificultadRepository;
 import cl.condor.rutas_api.repository.FotoRepository;
+import cl.condor.rutas_api.repository.RutaJdbcRepository;
 import cl.condor.rutas_api.repository.RutaRepository;
 import cl.condor.rutas_api.repository.TipoRepository;
-import cl.condor.rutas_api.webclient.EstadoClient;
-import cl.condor.rutas_api.webclient.RegionClient;
+import cl.condor.rutas_api.storage.BlobStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URLConnection;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import cl.condor.rutas_api.dto.CalificacionResumenRequest;
+import cl.condor.rutas_api.dto.RutaPageResponse;
 import cl.condor.rutas_api.dto.RutaResponse;
 
 @Service
 @Transactional
 public class RutaService {
 
+    private static final Logger logger = LoggerFactory.getLogger(RutaService.class);
+
+    static final int LIMITE_PAGINA_DEFECTO = 20;
+    static final int LIMITE_PAGINA_MAXIMO = 100;
+    static final int LOTE_EXPORTACION = 500;
+    static final int LIMITE_LOTE_CALIFICACIONES = 500;
+    private static final BigDecimal PROMEDIO_MAXIMO = new BigDecimal("5");
+
     @Autowired
     private RutaRepository rutaRepository;
 
     @Autowired
-    private TipoRepository tipoRepository;
+    private RutaJdbcRepository rutaJdbcRepository;
 
     @Autowired
-    private RegionClient regionClient;
+    private TipoRepository tipoRepository;
 
     @Autowired
     private DificultadRepository dificultadRepository;
 
     @Autowired
-    private EstadoClient estadoClient;
+    private ReferenciaCache referenciaCache;
 
     @Autowired
     private FotoRepository fotoRepository;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${blob-store.gracia-borrado:PT1H}")
+    private Duration graciaBorradoBlobs = Duration.ofHours(1);
+
+    @Autowired
+    private GeometriaService geometriaService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
     //Nos entrega una lista de rutas
     public List<Ruta> findAll() {
         return rutaRepository.findAll();
@@ -64,11 +109,46 @@ public class RutaService {
         } catch (Exception ignored) {}
 
         List<Foto> fotos = fotoRepository.findByIdRuta(r.getId_ruta());
-        List<String> fotosUrls = fotos == null ? List.of() : fotos.stream()
+        return buildResponse(r, tipoNombre, difNombre, fotosUrls(fotos), geometriaService.findResumen(r.getId_ruta()));
+    }
+
+    // Arma las respuestas de varias rutas con un numero fijo de consultas:
+    // tipos, dificultades, fotos y geometrias se cargan una sola vez y se cruzan en memoria.
+    public List<RutaResponse> toResponses(List<Ruta> rutas) {
+        if (rutas == null || rutas.isEmpty()) return List.of();
+
+        Map<Integer, String> tipos = tipoRepository.findAll().stream()
+                .collect(Collectors.toMap(Tipo::getId_tipo, Tipo::getNombre, (a, b) -> a));
+        Map<Integer, String> dificultades = dificultadRepository.findAll().stream()
+                .collect(Collectors.toMap(Dificultad::getId_dificultad, Dificultad::getNombre, (a, b) -> a));
+
+        List<Integer> ids = rutas.stream().map(Ruta::getId_ruta).collect(Collectors.toList());
+        Map<Integer, List<Foto>> fotosPorRuta = fotoRepository.findByIdRutaIn(ids).stream()
+                .collect(Collectors.groupingBy(Foto::getIdRuta));
+        Map<Integer, ResumenGeometria> geometrias = geometriaService.findResumenes(ids);
+
+        List<RutaResponse> out = new ArrayList<>(rutas.size());
+        for (Ruta r : rutas) {
+            out.add(buildResponse(
+                    r,
+                    tipos.get(r.getId_tipo()),
+                    dificultades.get(r.getId_dificultad()),
+                    fotosUrls(fotosPorRuta.get(r.getId_ruta())),
+                    geometrias.get(r.getId_ruta())
+            ));
+        }
+        return out;
+    }
+
+    private List<String> fotosUrls(List<Foto> fotos) {
+        return fotos == null ? List.of() : fotos.stream()
                 .map(Foto::getNombre)
                 .filter(u -> u != null && !u.isBlank())
                 .collect(Collectors.toList());
+    }
 
+    private RutaResponse buildResponse(Ruta r, String tipoNombre, String difNombre, List<String> fotosUrls,
+                                       ResumenGeometria geometria) {
         RutaResponse resp = new RutaResponse();
         resp.setIdRuta(r.getId_ruta());
         resp.setNombre(r.getNombre());
@@ -83,11 +163,143 @@ public class RutaService {
         resp.setDistancia(r.getDistancia());
         resp.setTiempo_segundos(r.getTiempoSegundos());
         resp.setProm_calificacion(r.getProm_calificacion());
+        resp.setConteo_calificaciones(r.getConteo_calificaciones());
+        // Los listados solo llevan bbox y cantidad de puntos; el trazado va por /{id}/geometria
+        if (geometria != null) {
+            resp.setBbox(geometria.bbox());
+            resp.setPuntos(geometria.puntos());
+        }
         return resp;
     }
 
     public List<RutaResponse> findAllResponses() {
-        return findAll().stream().map(this::toResponse).collect(Collectors.toList());
+        return toResponses(findAll());
+    }
+
+    // Todas las rutas en NDJSON con el mismo formato de GET /rutas. Se recorre la tabla por
+    // keyset (buscarPagina) en bloques: un cursor de streaming de MySQL no admite las consultas
+    // de fotos y geometrias mientras esta abierto. Cada bloque se escribe y se limpia el contexto.
+    public long exportar(OutputStream out) throws IOException {
+        long filas = 0;
+        Integer cursor = null;
+        while (true) {
+            List<Ruta> bloque = rutaRepository.buscarPagina(cursor, null, null, null, null, null, null,
+                    PageRequest.of(0, LOTE_EXPORTACION));
+            if (bloque.isEmpty()) break;
+            for (RutaResponse resp : toResponses(bloque)) {
+                out.write(objectMapper.writeValueAsBytes(resp));
+                out.write('\n');
+            }
+            filas += bloque.size();
+            cursor = bloque.get(bloque.size() - 1).getId_ruta();
+            entityManager.clear();
+            if (bloque.size() < LOTE_EXPORTACION) break;
+        }
+        out.flush();
+        return filas;
+    }
+
+    // Pagina de rutas por cursor: se pide un registro extra para saber si hay mas paginas
+    public RutaPageResponse findPagina(Integer cursor, Integer limite, Integer idRegion, Integer idTipo,
+                                       Integer idDificultad, Integer idEstado,
+                                       BigDecimal distanciaMin, BigDecimal distanciaMax) {
+        int tamano = (limite == null) ? LIMITE_PAGINA_DEFECTO : limite;
+        if (tamano < 1 || tamano > LIMITE_PAGINA_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El limite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
+        if (distanciaMin != null && distanciaMax != null && distanciaMin.compareTo(distanciaMax) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "La distancia minima no puede ser mayor que la maxima");
+        }
+
+        List<Ruta> rutas = rutaRepository.buscarPagina(cursor, idRegion, idTipo, idDificultad, idEstado,
+                distanciaMin, distanciaMax, PageRequest.of(0, tamano + 1));
+
+        boolean hayMas = rutas.size() > tamano;
+        if (hayMas) {
+            rutas = rutas.subList(0, tamano);
+        }
+        Integer siguienteCursor = hayMas ? rutas.get(rutas.size() - 1).getId_ruta() : null;
+        return new RutaPageResponse(toResponses(rutas), siguienteCursor, hayMas);
+    }
+
+    // Respuestas de las rutas pedidas respetando el orden de los ids (p. ej. por cercania)
+    public List<RutaResponse> findResponsesByIds(List<Integer> ids, Integer limite) {
+        int tamano = (limite == null) ? LIMITE_PAGINA_DEFECTO : limite;
+        if (tamano < 1 || tamano > LIMITE_PAGINA_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El limite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
+        List<Integer> pedidos = ids.size() > tamano ? ids.subList(0, tamano) : ids;
+        Map<Integer, Ruta> porId = rutaRepository.findAllById(pedidos).stream()
+                .collect(Collectors.toMap(Ruta::getId_ruta, r -> r));
+        List<Ruta> rutas = new ArrayList<>(pedidos.size());
+        for (Integer id : pedidos) {
+            Ruta r = porId.get(id);
+            if (r != null) rutas.add(r);
+        }
+        return toResponses(rutas);
+    }
+
+    // Varias rutas por id en una sola llamada (los ids que no existen se omiten)
+    public List<RutaResponse> findLote(List<Integer> ids) {
+        List<Integer> distintos = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distintos.isEmpty()) {
+            return List.of();
+        }
+        if (distintos.size() > LIMITE_PAGINA_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Se pueden pedir como maximo " + LIMITE_PAGINA_MAXIMO + " rutas por lote");
+        }
+        return findResponsesByIds(distintos, distintos.size());
+    }
+
+    // Resumen de calificaciones de una ruta: un UPDATE de dos columnas, sin cargar la entidad
+    public void actualizarCalificacion(Integer id, BigDecimal promedio, Integer conteo, Long version) {
+        CalificacionResumenRequest resumen = new CalificacionResumenRequest(id, promedio, conteo, version);
+        validarResumen(resumen);
+        if (rutaJdbcRepository.actualizarCalificaciones(List.of(resumen)) == 0) {
+            if (!rutaRepository.existsById(id)) {
+                throw new RuntimeException("Ruta no encontrada");
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La ruta ya tiene un resumen mas reciente");
+        }
+    }
+
+    // Varios resumenes en un solo UPDATE. Las rutas que no existen o que ya tienen una version
+    // mayor se omiten; si una ruta viene repetida vale el resumen de mayor version.
+    public int actualizarCalificaciones(List<CalificacionResumenRequest> resumenes) {
+        if (resumenes == null || resumenes.isEmpty()) {
+            return 0;
+        }
+        if (resumenes.size() > LIMITE_LOTE_CALIFICACIONES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Se pueden enviar como maximo " + LIMITE_LOTE_CALIFICACIONES + " resumenes por lote");
+        }
+        Map<Integer, CalificacionResumenRequest> porRuta = new LinkedHashMap<>();
+        for (CalificacionResumenRequest resumen : resumenes) {
+            validarResumen(resumen);
+            porRuta.merge(resumen.getIdRuta(), resumen, (a, b) -> b.getVersion() >= a.getVersion() ? b : a);
+        }
+        return rutaJdbcRepository.actualizarCalificaciones(new ArrayList<>(porRuta.values()));
+    }
+
+    private void validarResumen(CalificacionResumenRequest resumen) {
+        if (resumen == null || resumen.getIdRuta() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "idRuta es obligatorio");
+        }
+        if (resumen.getConteo() == null || resumen.getConteo() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El conteo debe ser 0 o mayor");
+        }
+        if (resumen.getVersion() == null || resumen.getVersion() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La version debe ser 0 o mayor");
+        }
+        BigDecimal promedio = resumen.getPromedio();
+        if (promedio == null || promedio.signum() < 0 || promedio.compareTo(PROMEDIO_MAXIMO) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El promedio debe estar entre 0 y 5");
+        }
     }
 
     public RutaResponse findResponseById(Integer id) {
@@ -103,6 +315,11 @@ public class RutaService {
                 ));
     }
 
+    // Validacion de FK para otros servicios: sin toResponse, fotos ni llamadas remotas
+    public boolean existsById(Integer id) {
+        return rutaRepository.existsById(id);
+    }
+
     public List<Foto> findByIdRuta(Integer  idRuta) {
         List<Foto> fotos = fotoRepository.findByIdRuta(idRuta);
 
@@ -117,12 +334,11 @@ public class RutaService {
     //pueden ser nulas.
     @Transactional
     public Ruta save(Ruta ruta) {
-        Map<String, Object> region = regionClient.getRegionesById(ruta.getId_region());
-        Map<String, Object> estado = estadoClient.getEstadosById(ruta.getId_estado());
-        if (region == null || region.isEmpty()) {
+        // Region y estado se validan contra la cache local (sin llamadas remotas en regimen normal)
+        if (!referenciaCache.existeRegion(ruta.getId_region())) {
             throw new RuntimeException("Region no encontrado, no se puede guardar la ruta");
         }
-        if (estado == null || estado.isEmpty()) {
+        if (!referenciaCache.existeEstado(ruta.getId_estado())) {
             throw new RuntimeException("Estado no encontrado, no se puede guardar la ruta");
         }
         if (!dificultadRepository.existsById(ruta.getId_dificultad())) {
@@ -131,7 +347,9 @@ public class RutaService {
         if (!tipoRepository.existsById(ruta.getId_tipo())) {
             throw new RuntimeException("Tipo ruta no encontrada, no se puede guardar la ruta");
         }
-        return rutaRepository.save(ruta);
+        Ruta guardada = rutaRepository.save(ruta);
+        geometriaService.actualizar(guardada);
+        return guardada;
     }
 
     @Transactional
@@ -139,9 +357,40 @@ public class RutaService {
         if (!rutaRepository.existsById(foto.getIdRuta())) {
             throw new RuntimeException("Ruta no encontrada");
         }
+        if (foto.getImagen() != null && foto.getImagen().length > 0) {
+            guardarImagen(foto);
+        }
         return fotoRepository.save(foto);
     }
 
+    // Pasa los bytes de la foto al BlobStore y deja en la fila solo hash, tipo y tamano
+    private void guardarImagen(Foto foto) {
+        byte[] imagen = foto.getImagen();
+        try {
+            foto.setHashImagen(blobStore.put(new ByteArrayInputStream(imagen)));
+            String tipo = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(imagen));
+            foto.setTipoContenido(tipo != null ? tipo : "application/octet-stream");
+            foto.setTamano((long) imagen.length);
+            foto.setImagen(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la imagen", e);
+        }
+    }
+
+    public Foto findFotoById(Integer idFoto) {
+        return fotoRepository.findById(idFoto)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Foto no encontrada"));
+    }
+
+    // Archivo de la imagen de la foto; no carga los bytes, se transmiten al responder
+    public Resource findImagen(Foto foto) {
+        if (foto.getHashImagen() == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "La foto no tiene imagen");
+        }
+        return blobStore.get(foto.getHashImagen())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Imagen no encontrada"));
+    }
+
     //Update de ciertos datos de la ruta
 
     @Transactional
@@ -165,7 +414,9 @@ public class RutaService {
         Ruta ruta = rutaRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Ruta no encontrada"));
         ruta.setGeometriaPolyline(PolyLine);
-        return rutaRepository.save(ruta);
+        Ruta guardada = rutaRepository.save(ruta);
+        geometriaService.actualizar(guardada);
+        return guardada;
     }
 
     @Transactional
@@ -191,6 +442,7 @@ public class RutaService {
         Foto foto = fotoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Foto no encontrada"));
         fotoRepository.delete(foto);
+        liberarBlobs(List.of(foto));
     }
 
     @Transactional
@@ -203,9 +455,11 @@ public class RutaService {
             java.util.List<Foto> fotos = fotoRepository.findByIdRuta(id);
             if (fotos != null && !fotos.isEmpty()) {
                 fotoRepository.deleteAll(fotos);
+                liberarBlobs(fotos);
             }
         } catch (Exception ignored) {}
 
+        geometriaService.eliminar(id);
         rutaRepository.delete(ruta);
     }
 
@@ -243,13 +497,14 @@ public class RutaService {
         if (payload.getDistancia() != null) existing.setDistancia(payload.getDistancia());
         if (payload.getGeometriaPolyline() != null) existing.setGeometriaPolyline(payload.getGeometriaPolyline());
         if (payload.getTiempoSegundos() != null) existing.setTiempoSegundos(payload.getTiempoSegundos());
-        if (payload.getProm_calificacion() != null) existing.setProm_calificacion(payload.getProm_calificacion());
         if (payload.getId_estado() != null) existing.setId_estado(payload.getId_estado());
         if (payload.getId_region() != null) existing.setId_region(payload.getId_region());
         if (payload.getId_tipo() != null) existing.setId_tipo(payload.getId_tipo());
         if (payload.getId_dificultad() != null) existing.setId_dificultad(payload.getId_dificultad());
 
-        return rutaRepository.save(existing);
+        Ruta guardada = rutaRepository.save(existing);
+        if (payload.getGeometriaPolyline() != null) geometriaService.actualizar(guardada);
+        return guardada;
     }
 
     @Transactional
@@ -261,19 +516,20 @@ public class RutaService {
         if (req.getDistancia() != null) existing.setDistancia(req.getDistancia());
         if (req.getGeometria_polyline() != null) existing.setGeometriaPolyline(req.getGeometria_polyline());
         if (req.getTiempo_segundos() != null) existing.setTiempoSegundos(req.getTiempo_segundos());
-        if (req.getProm_calificacion() != null) existing.setProm_calificacion(req.getProm_calificacion());
         if (req.getId_estado() != null) existing.setId_estado(req.getId_estado());
         if (req.getId_region() != null) existing.setId_region(req.getId_region());
         if (req.getId_tipo() != null) existing.setId_tipo(req.getId_tipo());
         if (req.getId_dificultad() != null) existing.setId_dificultad(req.getId_dificultad());
 
         Ruta saved = rutaRepository.save(existing);
+        if (req.getGeometria_polyline() != null) geometriaService.actualizar(saved);
 
         // If fotos provided, replace existing foto records with new ones (store URL in nombre)
         if (req.getFoto() != null) {
             List<Foto> existingFotos = fotoRepository.findByIdRuta(id);
             if (existingFotos != null && !existingFotos.isEmpty()) {
                 fotoRepository.deleteAll(existingFotos);
+                liberarBlobs(existingFotos);
             }
             for (String url : req.getFoto()) {
                 Foto f = new Foto();
@@ -287,4 +543,30 @@ public class RutaService {
         return saved;
     }
 
-}
\ No newline at end of file
+    // Borra del BlobStore las imagenes que ya ninguna foto referencia. Se hace despues del
+    // commit para no perder un blob si la transaccion que borro las filas se revierte.
+    private void liberarBlobs(List<Foto> fotos) {
+        Set<String> hashes = fotos.stream()
+                .map(Foto::getHashImagen)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (hashes.isEmpty()) {
+            return;
+        }
+        Runnable borrar = () -> {
+            for (String hash : hashes) {
+                if (fotoRepository.countByHashImagen(hash) == 0) {
+                    try {
+                        // Un blob renovado hace poco puede ser de una subida cuya foto aun no
+                        // confirma; ese se deja para LimpiezaBlobsJob
+                        blobStore.deleteSiAnteriorA(hash, Instant.now().minus(graciaBorradoBlobs));
+                    } catch (IOException e) {
+                        logger.warn("No se pudo borrar el blob {}", hash, e);
+                    }
+                }
+            }
+        };
+        DespuesDelCommit.ejecutar(borrar);
+    }
+
+}
@@ -0,0 +1,29 @@
+package cl.condor.rutas_api.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// Almacen de binarios direccionado por contenido: la clave de cada blob es el SHA-256
+// (hex) de sus bytes, por lo que subir dos veces la misma imagen la guarda una sola vez.
+public interface BlobStore {
+
+    // Guarda el contenido y retorna su hash. Si el blob ya existia se renueva su fecha de
+    // modificacion: es lo que protege al blob de la limpieza mientras se confirma la foto que
+    // lo va a referenciar.
+    String put(InputStream contenido) throws IOException;
+
+    Optional<Resource> get(String hash);
+
+    boolean exists(String hash);
+
+    // Borra el blob solo si no se escribio ni renovo desde 'limite'. Retorna si lo borro.
+    boolean deleteSiAnteriorA(String hash, Instant limite) throws IOException;
+
+    // Hashes de los blobs sin renovar desde 'limite' (candidatos a huerfanos)
+    List<String> anterioresA(Instant limite) throws IOException;
+}
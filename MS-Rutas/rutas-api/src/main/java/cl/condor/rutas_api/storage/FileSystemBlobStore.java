@@ -0,0 +1,155 @@
+package cl.condor.rutas_api.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Implementacion por defecto: un archivo por blob en <blob-store.path>/ab/cd/<hash>
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Pattern HASH_VALIDO = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path raiz;
+
+    public FileSystemBlobStore(@Value("${blob-store.path:./data/blobs}") String ruta) {
+        this.raiz = Paths.get(ruta).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String put(InputStream contenido) throws IOException {
+        Path tmpDir = raiz.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "blob-", ".part");
+        try {
+            // Se calcula el hash mientras se copia, sin cargar la imagen completa en memoria
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                contenido.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Path destino = rutaDe(hash);
+            if (!renovar(destino)) {
+                Files.createDirectories(destino.getParent());
+                mover(tmp, destino);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Optional<Resource> get(String hash) {
+        if (!esHashValido(hash)) {
+            return Optional.empty();
+        }
+        Path archivo = rutaDe(hash);
+        return Files.isRegularFile(archivo) ? Optional.of(new FileSystemResource(archivo)) : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return esHashValido(hash) && Files.isRegularFile(rutaDe(hash));
+    }
+
+    @Override
+    public boolean deleteSiAnteriorA(String hash, Instant limite) throws IOException {
+        if (!esHashValido(hash)) {
+            return false;
+        }
+        Path archivo = rutaDe(hash);
+        try {
+            if (!Files.getLastModifiedTime(archivo).toInstant().isBefore(limite)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return Files.deleteIfExists(archivo);
+    }
+
+    @Override
+    public List<String> anterioresA(Instant limite) throws IOException {
+        if (!Files.isDirectory(raiz)) {
+            return List.of();
+        }
+        try (Stream<Path> archivos = Files.walk(raiz, 3)) {
+            return archivos
+                    .filter(p -> esHashValido(p.getFileName().toString()))
+                    .filter(p -> {
+                        try {
+                            return Files.getLastModifiedTime(p).toInstant().isBefore(limite);
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .map(p -> p.getFileName().toString())
+                    .toList();
+        }
+    }
+
+    private Path rutaDe(String hash) {
+        if (!esHashValido(hash)) {
+            throw new IllegalArgumentException("Hash de blob invalido");
+        }
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static boolean esHashValido(String hash) {
+        return hash != null && HASH_VALIDO.matcher(hash).matches();
+    }
+
+    // Si el blob ya existe le pone la fecha actual y retorna true. Si la limpieza lo borro justo
+    // antes, retorna false y el llamador lo vuelve a escribir.
+    private static boolean renovar(Path destino) throws IOException {
+        try {
+            Files.setLastModifiedTime(destino, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    // El archivo final aparece completo o no aparece: nunca se sirve un blob a medio escribir
+    private static void mover(Path origen, Path destino) throws IOException {
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Otro request subio el mismo contenido al mismo tiempo; el blob ya esta y recien escrito
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
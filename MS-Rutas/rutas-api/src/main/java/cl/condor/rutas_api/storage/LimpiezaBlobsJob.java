@@ -0,0 +1,51 @@
+package cl.condor.rutas_api.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+// Borra los blobs que ninguna foto referencia. Al borrar una foto su blob se libera despues del
+// commit, pero si se habia subido hace menos que la gracia se deja (puede haber otra foto con el
+// mismo contenido por confirmarse); esos quedan para esta pasada.
+@Component
+public class LimpiezaBlobsJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(LimpiezaBlobsJob.class);
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${blob-store.gracia-borrado:PT1H}")
+    private Duration gracia;
+
+    @Scheduled(fixedDelayString = "${blob-store.limpieza:PT6H}", initialDelayString = "${blob-store.limpieza:PT6H}")
+    public void limpiar() {
+        Instant limite = Instant.now().minus(gracia);
+        int borrados = 0;
+        try {
+            for (String hash : blobStore.anterioresA(limite)) {
+                Integer refs = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM foto WHERE hash_imagen = ?", Integer.class, hash);
+                if (refs != null && refs == 0 && blobStore.deleteSiAnteriorA(hash, limite)) {
+                    borrados++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("No se pudo completar la limpieza de blobs", e);
+        }
+        if (borrados > 0) {
+            logger.info("Blobs huerfanos borrados: {}", borrados);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package cl.condor.rutas_api.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.List;
+
+// Migracion de una sola vez: mueve las imagenes que quedaron en la antigua columna
+// foto.imagen (LONGBLOB) al BlobStore y vacia la columna. Se activa con
+// blob-store.migrar-longblob=true; es idempotente, solo toma filas sin hash_imagen.
+@Component
+@ConditionalOnProperty(name = "blob-store.migrar-longblob", havingValue = "true")
+public class MigracionImagenesRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionImagenesRunner.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Integer> pendientes;
+        try {
+            pendientes = jdbcTemplate.queryForList(
+                    "SELECT id_foto FROM foto WHERE imagen IS NOT NULL AND hash_imagen IS NULL", Integer.class);
+        } catch (DataAccessException e) {
+            logger.info("Sin columna foto.imagen que migrar");
+            return;
+        }
+
+        int migradas = 0;
+        for (Integer idFoto : pendientes) {
+            try {
+                migrar(idFoto);
+                migradas++;
+            } catch (RuntimeException e) {
+                logger.warn("No se pudo migrar la imagen de la foto {}", idFoto, e);
+            }
+        }
+        logger.info("Imagenes migradas al BlobStore: {} de {}", migradas, pendientes.size());
+    }
+
+    // Cada imagen se lee como stream desde el ResultSet, nunca completa en memoria
+    private void migrar(Integer idFoto) {
+        jdbcTemplate.query("SELECT imagen, LENGTH(imagen) AS tamano FROM foto WHERE id_foto = ?", rs -> {
+            long tamano = rs.getLong("tamano");
+            try (InputStream in = new BufferedInputStream(rs.getBinaryStream("imagen"))) {
+                String tipo = URLConnection.guessContentTypeFromStream(in);
+                String hash = blobStore.put(in);
+                jdbcTemplate.update(
+                        "UPDATE foto SET hash_imagen = ?, tipo_contenido = ?, tamano = ?, imagen = NULL WHERE id_foto = ?",
+                        hash, tipo != null ? tipo : "application/octet-stream", tamano, idFoto);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al copiar la imagen " + idFoto, e);
+            }
+        }, idFoto);
+    }
+}
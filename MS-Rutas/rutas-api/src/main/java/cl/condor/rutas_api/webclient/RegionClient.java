@@ -1,9 +1,11 @@
 package cl.condor.rutas_api.webclient;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.List;
 import java.util.Map;
 
 @Component
@@ -11,8 +13,8 @@ public class RegionClient {
 
     private final WebClient webClient;
 
-    public RegionClient(@Value("${region-service.url}") String regionServiceURL){
-        this.webClient = WebClient.builder()
+    public RegionClient(WebClient.Builder webClientBuilder, @Value("${region-service.url}") String regionServiceURL){
+        this.webClient = webClientBuilder
                 .baseUrl(regionServiceURL)
                 .build();
     }
@@ -29,4 +31,13 @@ public class RegionClient {
                 .bodyToMono(Map.class)
                 .block();
     }
-}
\ No newline at end of file
+
+    // Listado completo, para precargar la cache de referencias
+    public List<Map<String, Object>> getRegiones(){
+        List<Map<String, Object>> lista = this.webClient.get()
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
+                .block();
+        return lista != null ? lista : List.of(); // 204 No Content = sin registros
+    }
+}
@@ -0,0 +1,87 @@
+package cl.condor.rutas_api.Geometria;
+
+import cl.condor.rutas_api.geometria.GeometriaBinaria;
+import cl.condor.rutas_api.geometria.PolylineCodec;
+import cl.condor.rutas_api.geometria.Simplificador;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometriaCodecTest {
+
+    // Ejemplo de la documentacion de Google: (38.5,-120.2), (40.7,-120.95), (43.252,-126.453)
+    private static final String POLYLINE_EJEMPLO = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+    private static final int[] COORDS_EJEMPLO = {3850000, -12020000, 4070000, -12095000, 4325200, -12645300};
+
+    @Test
+    void decode_polylineValida_retornaCoordenadas() {
+        assertArrayEquals(COORDS_EJEMPLO, PolylineCodec.decode(POLYLINE_EJEMPLO));
+    }
+
+    @Test
+    void encode_coordenadas_retornaPolylineOriginal() {
+        assertEquals(POLYLINE_EJEMPLO, PolylineCodec.encode(COORDS_EJEMPLO));
+    }
+
+    @Test
+    void decode_polylineInvalida_lanzaExcepcion() {
+        // Las polylines de ejemplo del seed no son encoded polylines reales
+        assertFalse(PolylineCodec.esValida("polyline-manquehue"));
+        assertFalse(PolylineCodec.esValida(""));
+        assertFalse(PolylineCodec.esValida(null));
+        assertThrows(IllegalArgumentException.class, () -> PolylineCodec.decode("_p~iF"));
+    }
+
+    @Test
+    void comprimir_descomprimir_conservaCoordenadas() {
+        int[] track = trackZigzag(1000);
+
+        byte[] datos = GeometriaBinaria.comprimir(track);
+
+        assertArrayEquals(track, GeometriaBinaria.descomprimir(datos));
+        // Mas compacto que la encoded polyline en texto
+        assertTrue(datos.length < PolylineCodec.encode(track).length());
+    }
+
+    @Test
+    void bbox_retornaMinimosYMaximos() {
+        assertArrayEquals(new int[]{3850000, -12645300, 4325200, -12020000}, GeometriaBinaria.bbox(COORDS_EJEMPLO));
+    }
+
+    @Test
+    void simplificar_lineaRecta_dejaSoloExtremos() {
+        int[] recta = new int[200];
+        for (int i = 0; i < 100; i++) {
+            recta[2 * i] = -3300000 + i * 10;
+            recta[2 * i + 1] = -7050000 + i * 10;
+        }
+
+        int[] resultado = Simplificador.simplificar(recta, Simplificador.toleranciaParaZoom(10));
+
+        assertArrayEquals(new int[]{-3300000, -7050000, -3300000 + 990, -7050000 + 990}, resultado);
+    }
+
+    @Test
+    void simplificar_menorZoom_menosPuntos() {
+        int[] track = trackZigzag(2000);
+
+        int[] zoomBajo = Simplificador.simplificar(track, Simplificador.toleranciaParaZoom(8));
+        int[] zoomAlto = Simplificador.simplificar(track, Simplificador.toleranciaParaZoom(16));
+
+        assertTrue(zoomBajo.length < zoomAlto.length);
+        assertTrue(zoomAlto.length <= track.length);
+        // Los extremos siempre se conservan
+        assertEquals(track[0], zoomBajo[0]);
+        assertEquals(track[track.length - 1], zoomBajo[zoomBajo.length - 1]);
+    }
+
+    // Track sintetico que avanza con pequenas oscilaciones
+    private static int[] trackZigzag(int puntos) {
+        int[] track = new int[puntos * 2];
+        for (int i = 0; i < puntos; i++) {
+            track[2 * i] = -3340000 + i * 7 + (i % 10) * 3;
+            track[2 * i + 1] = -7055000 + i * 5 - (i % 7) * 4;
+        }
+        return track;
+    }
+}
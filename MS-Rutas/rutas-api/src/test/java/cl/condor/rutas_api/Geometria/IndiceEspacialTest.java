@@ -0,0 +1,96 @@
+package cl.condor.rutas_api.Geometria;
+
+import cl.condor.rutas_api.geometria.EntradaEspacial;
+import cl.condor.rutas_api.geometria.IndiceEspacial;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndiceEspacialTest {
+
+    private IndiceEspacial indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceEspacial();
+    }
+
+    @Test
+    void cercanas_retornaSoloDentroDelRadioOrdenadas() {
+        // Cerro San Cristobal (-33.4260, -70.6336), Manquehue (-33.3510, -70.5790), La Campana (-32.9560, -71.0870)
+        indice.reconstruir(List.of(
+                punto(1, -33.4260, -70.6336),
+                punto(2, -33.3510, -70.5790),
+                punto(3, -32.9560, -71.0870)));
+
+        List<Integer> resultado = indice.cercanas(-33.4372, -70.6506, 15);
+
+        assertEquals(List.of(1, 2), resultado);
+    }
+
+    @Test
+    void cercanas_coincideConBusquedaExhaustiva() {
+        Random random = new Random(42);
+        List<EntradaEspacial> entradas = new ArrayList<>();
+        for (int i = 1; i <= 20_000; i++) {
+            entradas.add(punto(i, -56 + random.nextDouble() * 38, -76 + random.nextDouble() * 10));
+        }
+        indice.reconstruir(entradas);
+
+        double lat = -33.45, lng = -70.66, radio = 50;
+        List<Integer> esperado = new ArrayList<>();
+        for (EntradaEspacial e : entradas) {
+            if (haversineKm(lat, lng, e.latInicioE5() / 1e5, e.lngInicioE5() / 1e5) <= radio) {
+                esperado.add(e.idRuta());
+            }
+        }
+
+        List<Integer> resultado = indice.cercanas(lat, lng, radio);
+
+        assertEquals(esperado.size(), resultado.size());
+        assertTrue(resultado.containsAll(esperado));
+    }
+
+    @Test
+    void actualizar_yEliminar_modificanElIndice() {
+        indice.reconstruir(List.of(punto(1, -33.4260, -70.6336)));
+
+        // La ruta se mueve a Valparaiso
+        indice.actualizar(punto(1, -33.0458, -71.6197));
+        assertTrue(indice.cercanas(-33.4372, -70.6506, 15).isEmpty());
+        assertEquals(List.of(1), indice.cercanas(-33.0458, -71.6197, 5));
+
+        indice.eliminar(1);
+        assertTrue(indice.cercanas(-33.0458, -71.6197, 5).isEmpty());
+        assertEquals(0, indice.size());
+    }
+
+    @Test
+    void enArea_retornaRutasQueIntersectanElBbox() {
+        indice.reconstruir(List.of(
+                new EntradaEspacial(1, -3342600, -7063360, -3345000, -7065000, -3340000, -7060000),
+                new EntradaEspacial(2, -3295600, -7108700, -3300000, -7110000, -3290000, -7100000)));
+
+        assertEquals(List.of(1), indice.enArea(-33.5, -70.7, -33.41, -70.5));
+        assertEquals(List.of(1, 2), indice.enArea(-34, -72, -32, -70));
+    }
+
+    private static EntradaEspacial punto(int id, double lat, double lng) {
+        int latE5 = (int) Math.round(lat * 1e5);
+        int lngE5 = (int) Math.round(lng * 1e5);
+        return new EntradaEspacial(id, latE5, lngE5, latE5, lngE5, latE5, lngE5);
+    }
+
+    private static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLng / 2), 2);
+        return 2 * 6371.0088 * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,94 @@
+package cl.condor.rutas_api.Service;
+
+import cl.condor.rutas_api.geometria.IndiceEspacial;
+import cl.condor.rutas_api.geometria.ResumenGeometria;
+import cl.condor.rutas_api.model.Ruta;
+import cl.condor.rutas_api.model.RutaGeometria;
+import cl.condor.rutas_api.repository.RutaGeometriaRepository;
+import cl.condor.rutas_api.service.GeometriaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GeometriaServiceTest {
+
+    @InjectMocks
+    private GeometriaService geometriaService;
+
+    @Mock
+    private RutaGeometriaRepository rutaGeometriaRepository;
+
+    @Mock
+    private IndiceEspacial indiceEspacial;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void findResumenes_usaLaProyeccionSinCargarElBlob() {
+        when(rutaGeometriaRepository.findResumenes(List.of(1, 2))).thenReturn(List.of(
+                new ResumenGeometria(1, 120, -3345000, -7066000, -3340000, -7060000)));
+
+        Map<Integer, ResumenGeometria> resumenes = geometriaService.findResumenes(List.of(1, 2));
+
+        assertEquals(120, resumenes.get(1).puntos());
+        assertEquals(List.of(-33.45, -70.66, -33.4, -70.6), resumenes.get(1).bbox());
+        assertNull(resumenes.get(2));
+        // Cargar la entidad RutaGeometria traeria la columna 'datos' (MEDIUMBLOB) de cada ruta
+        verify(rutaGeometriaRepository, never()).findAllById(any());
+        verify(rutaGeometriaRepository, never()).findById(any());
+    }
+
+    @Test
+    void findResumen_usaLaProyeccionSinCargarElBlob() {
+        when(rutaGeometriaRepository.findResumen(7)).thenReturn(Optional.empty());
+
+        assertNull(geometriaService.findResumen(7));
+        verify(rutaGeometriaRepository, never()).findById(any());
+    }
+
+    @Test
+    void findResumenes_sinIds_noConsulta() {
+        assertTrue(geometriaService.findResumenes(List.of()).isEmpty());
+        verifyNoInteractions(rutaGeometriaRepository);
+    }
+
+    @Test
+    void actualizar_polylineValida_guardaBinarioYVaciaElText() {
+        Ruta ruta = new Ruta();
+        ruta.setId_ruta(3);
+        ruta.setGeometriaPolyline("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+        when(rutaGeometriaRepository.save(any(RutaGeometria.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        RutaGeometria guardada = geometriaService.actualizar(ruta);
+
+        assertEquals(3, guardada.getPuntos());
+        assertNull(ruta.getGeometriaPolyline());
+        verify(indiceEspacial).actualizar(any());
+    }
+
+    @Test
+    void actualizar_polylineInvalida_conservaElText() {
+        Ruta ruta = new Ruta();
+        ruta.setId_ruta(3);
+        ruta.setGeometriaPolyline("no es polyline");
+        when(rutaGeometriaRepository.existsById(3)).thenReturn(true);
+
+        assertNull(geometriaService.actualizar(ruta));
+
+        assertEquals("no es polyline", ruta.getGeometriaPolyline());
+        verify(rutaGeometriaRepository).deleteById(3);
+        verify(rutaGeometriaRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,81 @@
+package cl.condor.rutas_api.Service;
+
+import cl.condor.rutas_api.service.ReferenciaCache;
+import cl.condor.rutas_api.webclient.EstadoClient;
+import cl.condor.rutas_api.webclient.RegionClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ReferenciaCacheTest {
+
+    @Mock private RegionClient regionClient;
+    @Mock private EstadoClient estadoClient;
+
+    private final List<Map<String, Object>> REGIONES = List.of(
+            Map.of("id", 6, "nombre", "Valparaíso"),
+            Map.of("id", 7, "nombre", "Metropolitana"));
+    private final List<Map<String, Object>> ESTADOS = List.of(Map.of("id", 1, "nombre", "Activo"));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(regionClient.getRegiones()).thenReturn(REGIONES);
+        when(estadoClient.getEstados()).thenReturn(ESTADOS);
+    }
+
+    @Test
+    void existe_despuesDePrecargar_noHaceLlamadasRemotas() {
+        ReferenciaCache cache = new ReferenciaCache(regionClient, estadoClient, Duration.ofMinutes(10), Runnable::run);
+        cache.precargar();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(cache.existeRegion(7));
+            assertTrue(cache.existeEstado(1));
+        }
+
+        verify(regionClient, times(1)).getRegiones();
+        verify(estadoClient, times(1)).getEstados();
+        verify(regionClient, never()).getRegionesById(anyInt());
+        verify(estadoClient, never()).getEstadosById(anyInt());
+    }
+
+    @Test
+    void existe_idDesconocido_consultaSoloEseId() {
+        when(regionClient.getRegionesById(99)).thenThrow(new RuntimeException("Region no encontrada"));
+        ReferenciaCache cache = new ReferenciaCache(regionClient, estadoClient, Duration.ofMinutes(10), Runnable::run);
+        cache.precargar();
+
+        assertFalse(cache.existeRegion(99));
+        verify(regionClient, times(1)).getRegionesById(99);
+    }
+
+    @Test
+    void existe_ttlVencidoYUsuariosCaido_usaCopiaAnterior() {
+        ReferenciaCache cache = new ReferenciaCache(regionClient, estadoClient, Duration.ZERO, Runnable::run);
+        cache.precargar();
+        when(regionClient.getRegiones()).thenThrow(new RuntimeException("usuarios-api no disponible"));
+
+        // El refresco falla en segundo plano pero la validacion responde con la copia local
+        assertTrue(cache.existeRegion(6));
+        verify(regionClient, times(2)).getRegiones();
+    }
+
+    @Test
+    void existe_sinPrecarga_cargaEnLaPrimeraConsulta() {
+        ReferenciaCache cache = new ReferenciaCache(regionClient, estadoClient, Duration.ofMinutes(10), Runnable::run);
+
+        assertTrue(cache.existeEstado(1));
+        assertTrue(cache.existeEstado(1));
+        verify(estadoClient, times(1)).getEstados();
+    }
+}
@@ -1,33 +1,52 @@
 package cl.condor.rutas_api.Service;
 
+import cl.condor.rutas_api.dto.CalificacionResumenRequest;
+import cl.condor.rutas_api.dto.RutaPageResponse;
+import cl.condor.rutas_api.dto.RutaResponse;
+import cl.condor.rutas_api.model.Dificultad;
 import cl.condor.rutas_api.model.Foto;
 import cl.condor.rutas_api.model.Ruta;
+import cl.condor.rutas_api.model.Tipo;
 import cl.condor.rutas_api.repository.DificultadRepository;
 import cl.condor.rutas_api.repository.FotoRepository;
+import cl.condor.rutas_api.repository.RutaJdbcRepository;
 import cl.condor.rutas_api.repository.RutaRepository;
 import cl.condor.rutas_api.repository.TipoRepository;
+import cl.condor.rutas_api.service.GeometriaService;
+import cl.condor.rutas_api.service.ReferenciaCache;
 import cl.condor.rutas_api.service.RutaService;
-import cl.condor.rutas_api.webclient.EstadoClient;
-import cl.condor.rutas_api.webclient.RegionClient;
+import cl.condor.rutas_api.storage.BlobStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 
 public class RutaServiceTest {
 
@@ -36,21 +55,24 @@ public class RutaServiceTest {
 
     // Repositorios Mockeados
     @Mock private RutaRepository rutaRepository;
+    @Mock private RutaJdbcRepository rutaJdbcRepository;
     @Mock private TipoRepository tipoRepository;
     @Mock private DificultadRepository dificultadRepository;
     @Mock private FotoRepository fotoRepository;
+    @Mock private BlobStore blobStore;
+    @Mock private GeometriaService geometriaService;
 
-    // WebClients Mockeados
-    @Mock private RegionClient regionClient;
-    @Mock private EstadoClient estadoClient;
+    // Cache de regiones/estados Mockeada
+    @Mock private ReferenciaCache referenciaCache;
+
+    @Mock private EntityManager entityManager;
+    @Spy private ObjectMapper objectMapper = new ObjectMapper();
 
     private Ruta rutaEjemplo;
     private Foto fotoEjemplo;
     private final Integer VALID_ID = 1;
     private final String RUTA_NOT_FOUND_MSG = "Ruta no encontrada";
     private final String FOTO_NOT_FOUND_MSG = "Foto no encontrada";
-    private final Map<String, Object> VALID_EXTERNAL_RESPONSE = Map.of("id", 1, "nombre", "Test");
-    private final Map<String, Object> EMPTY_EXTERNAL_RESPONSE = Collections.emptyMap();
 
     @BeforeEach
     void setUp() {
@@ -59,7 +81,7 @@ public class RutaServiceTest {
         // Ruta de ejemplo (Activa, Dificultad 1, Tipo 1, Región 7, Estado 1)
         rutaEjemplo = new Ruta(
                 VALID_ID, "Cerro Test", "Desc Test", new BigDecimal("10.00"),
-                null, null, "polyline_data", 3600, new BigDecimal("4.00"),
+                null, null, "polyline_data", 3600, new BigDecimal("4.00"), 12, 12L,
                 LocalDateTime.now(), LocalDateTime.now(),
                 1, 7, 1, 1
         );
@@ -106,10 +128,230 @@ public class RutaServiceTest {
         verify(rutaRepository, times(1)).findById(VALID_ID);
     }
 
+    @Test
+    void findAllResponses_cantidadConsultasConstante() {
+        for (int cantidad : new int[]{1, 50}) {
+            reset(rutaRepository, tipoRepository, dificultadRepository, fotoRepository, geometriaService);
+
+            List<Ruta> rutas = new ArrayList<>();
+            List<Foto> fotos = new ArrayList<>();
+            for (int i = 1; i <= cantidad; i++) {
+                rutas.add(new Ruta(i, "Ruta " + i, null, BigDecimal.ONE, null, null, null, 60,
+                        BigDecimal.ZERO, 0, 0L, null, null, 1, 7, 1, 2));
+                fotos.add(new Foto(i, "https://foto/" + i, null, i));
+            }
+            when(rutaRepository.findAll()).thenReturn(rutas);
+            when(tipoRepository.findAll()).thenReturn(List.of(new Tipo(1, "Publica")));
+            when(dificultadRepository.findAll()).thenReturn(List.of(new Dificultad(2, "Normal")));
+            when(fotoRepository.findByIdRutaIn(anyCollection())).thenReturn(fotos);
+
+            List<RutaResponse> resultado = rutaService.findAllResponses();
+
+            assertEquals(cantidad, resultado.size());
+            assertEquals("Publica", resultado.get(0).getTipo());
+            assertEquals("Normal", resultado.get(0).getDificultad());
+            assertEquals(List.of("https://foto/" + cantidad), resultado.get(cantidad - 1).getFoto());
+
+            // Siempre 5 consultas, sin importar la cantidad de rutas
+            verify(rutaRepository, times(1)).findAll();
+            verify(tipoRepository, times(1)).findAll();
+            verify(dificultadRepository, times(1)).findAll();
+            verify(fotoRepository, times(1)).findByIdRutaIn(anyCollection());
+            verify(geometriaService, times(1)).findResumenes(anyCollection());
+            verify(tipoRepository, never()).findById(anyInt());
+            verify(dificultadRepository, never()).findById(anyInt());
+            verify(fotoRepository, never()).findByIdRuta(anyInt());
+        }
+    }
+
     // ==========================================
     // Tests: GET Fotos
     // ==========================================
 
+    @Test
+    void findPagina_hayMasRegistros_retornaCursorDelUltimo() {
+        List<Ruta> rutas = new ArrayList<>();
+        for (int i = 11; i <= 13; i++) {
+            rutas.add(new Ruta(i, "Ruta " + i, null, BigDecimal.ONE, null, null, null, 60,
+                    BigDecimal.ZERO, 0, 0L, null, null, 1, 7, 1, 2));
+        }
+        when(rutaRepository.buscarPagina(eq(10), eq(7), isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(rutas);
+        when(tipoRepository.findAll()).thenReturn(List.of(new Tipo(1, "Publica")));
+        when(dificultadRepository.findAll()).thenReturn(List.of(new Dificultad(2, "Normal")));
+        when(fotoRepository.findByIdRutaIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        RutaPageResponse pagina = rutaService.findPagina(10, 2, 7, null, null, null, null, null);
+
+        assertEquals(2, pagina.getRutas().size());
+        assertTrue(pagina.isHayMas());
+        assertEquals(12, pagina.getSiguienteCursor());
+        // Se pide un registro extra para detectar la siguiente pagina
+        verify(rutaRepository).buscarPagina(eq(10), eq(7), isNull(), isNull(), isNull(), isNull(), isNull(),
+                eq(PageRequest.of(0, 3)));
+    }
+
+    @Test
+    void findPagina_ultimaPagina_sinCursor() {
+        Ruta ruta = new Ruta(5, "Ruta 5", null, BigDecimal.ONE, null, null, null, 60,
+                BigDecimal.ZERO, 0, 0L, null, null, 1, 7, 1, 2);
+        when(rutaRepository.buscarPagina(any(), any(), any(), any(), any(), any(), any(), any(Pageable.class)))
+                .thenReturn(List.of(ruta));
+        when(fotoRepository.findByIdRutaIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        RutaPageResponse pagina = rutaService.findPagina(null, null, null, null, null, null, null, null);
+
+        assertEquals(1, pagina.getRutas().size());
+        assertFalse(pagina.isHayMas());
+        assertNull(pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void exportar_recorreBloquesPorCursorYEscribeUnaLineaPorRuta() throws Exception {
+        List<Ruta> primerBloque = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            primerBloque.add(new Ruta(i, "Ruta " + i, null, BigDecimal.ONE, null, null, null, 60,
+                    BigDecimal.ZERO, 0, 0L, null, null, 1, 7, 1, 2));
+        }
+        Ruta ultima = new Ruta(501, "Ruta 501", null, BigDecimal.ONE, null, null, null, 60,
+                BigDecimal.ZERO, 0, 0L, null, null, 1, 7, 1, 2);
+        when(rutaRepository.buscarPagina(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(primerBloque);
+        when(rutaRepository.buscarPagina(eq(500), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(List.of(ultima));
+        when(tipoRepository.findAll()).thenReturn(List.of(new Tipo(1, "Publica")));
+        when(dificultadRepository.findAll()).thenReturn(List.of(new Dificultad(2, "Normal")));
+        when(fotoRepository.findByIdRutaIn(anyCollection())).thenReturn(Collections.emptyList());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long filas = rutaService.exportar(out);
+
+        String[] lineas = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(501, filas);
+        assertEquals(501, lineas.length);
+        JsonNode ultimaLinea = objectMapper.readTree(lineas[500]);
+        assertEquals(501, ultimaLinea.get("idRuta").asInt());
+        assertEquals("Publica", ultimaLinea.get("tipo").asText());
+        // Un bloque incompleto termina la exportacion sin pedir otra pagina vacia
+        verify(rutaRepository, times(2)).buscarPagina(any(), any(), any(), any(), any(), any(), any(), any(Pageable.class));
+        verify(entityManager, times(2)).clear();
+        verify(rutaRepository, never()).findAll();
+    }
+
+    // ==========================================
+    // Tests: resumen de calificaciones
+    // ==========================================
+
+    @Test
+    void actualizarCalificaciones_loteConRepetidas_quedaElDeMayorVersion() {
+        when(rutaJdbcRepository.actualizarCalificaciones(anyList())).thenReturn(2);
+
+        // La version 5 de la ruta 1 es una correccion con menos calificaciones que la version 4
+        int aplicadas = rutaService.actualizarCalificaciones(List.of(
+                new CalificacionResumenRequest(1, new BigDecimal("4.50"), 2, 5L),
+                new CalificacionResumenRequest(2, new BigDecimal("3.00"), 1, 1L),
+                new CalificacionResumenRequest(1, new BigDecimal("4.00"), 3, 4L)));
+
+        assertEquals(2, aplicadas);
+        verify(rutaJdbcRepository).actualizarCalificaciones(List.of(
+                new CalificacionResumenRequest(1, new BigDecimal("4.50"), 2, 5L),
+                new CalificacionResumenRequest(2, new BigDecimal("3.00"), 1, 1L)));
+        // Nunca se carga ni se guarda la entidad completa
+        verify(rutaRepository, never()).findById(any());
+        verify(rutaRepository, never()).save(any());
+    }
+
+    @Test
+    void actualizarCalificaciones_sinVersion_lanzaBadRequest() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> rutaService.actualizarCalificaciones(List.of(
+                        new CalificacionResumenRequest(1, new BigDecimal("4.00"), 3, null))));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verify(rutaJdbcRepository, never()).actualizarCalificaciones(anyList());
+    }
+
+    @Test
+    void actualizarCalificaciones_promedioFueraDeRango_lanzaBadRequest() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> rutaService.actualizarCalificaciones(List.of(
+                        new CalificacionResumenRequest(1, new BigDecimal("5.01"), 3, 1L))));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verify(rutaJdbcRepository, never()).actualizarCalificaciones(anyList());
+    }
+
+    @Test
+    void actualizarCalificaciones_loteDemasiadoGrande_lanzaBadRequest() {
+        List<CalificacionResumenRequest> lote = new ArrayList<>();
+        for (int i = 1; i <= 501; i++) {
+            lote.add(new CalificacionResumenRequest(i, BigDecimal.ONE, 1, 1L));
+        }
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> rutaService.actualizarCalificaciones(lote));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void actualizarCalificacion_versionMenorALaGuardada_lanzaConflict() {
+        when(rutaJdbcRepository.actualizarCalificaciones(anyList())).thenReturn(0);
+        when(rutaRepository.existsById(VALID_ID)).thenReturn(true);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> rutaService.actualizarCalificacion(VALID_ID, new BigDecimal("4.00"), 3, 2L));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void actualizarCalificacion_rutaInexistente_lanzaNoEncontrada() {
+        when(rutaJdbcRepository.actualizarCalificaciones(anyList())).thenReturn(0);
+        when(rutaRepository.existsById(VALID_ID)).thenReturn(false);
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> rutaService.actualizarCalificacion(VALID_ID, new BigDecimal("4.00"), 3, 2L));
+
+        assertEquals(RUTA_NOT_FOUND_MSG, ex.getMessage());
+    }
+
+    @Test
+    void findPagina_limiteInvalido_lanzaBadRequest() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> rutaService.findPagina(null, 101, null, null, null, null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verify(rutaRepository, never()).buscarPagina(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void findLote_respetaOrdenYOmiteInexistentes() {
+        Ruta ruta3 = new Ruta(3, "Ruta 3", null, BigDecimal.ONE, null, null, null, 60,
+                BigDecimal.ZERO, 0, 0L, null, null, 1, 7, 1, 2);
+        Ruta ruta5 = new Ruta(5, "Ruta 5", null, BigDecimal.ONE, null, null, null, 60,
+                BigDecimal.ZERO, 0, 0L, null, null, 1, 6, 1, 2);
+        when(rutaRepository.findAllById(List.of(5, 3, 9))).thenReturn(List.of(ruta3, ruta5));
+        when(fotoRepository.findByIdRutaIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        List<RutaResponse> resultado = rutaService.findLote(List.of(5, 3, 9, 5));
+
+        assertEquals(2, resultado.size());
+        assertEquals(5, resultado.get(0).getIdRuta());
+        assertEquals(3, resultado.get(1).getIdRuta());
+    }
+
+    @Test
+    void findLote_masDelMaximo_lanzaBadRequest() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 101; i++) ids.add(i);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> rutaService.findLote(ids));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verify(rutaRepository, never()).findAllById(any());
+    }
+
     @Test
     void findByIdRuta_existe_retornaListaFotos() {
         when(fotoRepository.findByIdRuta(VALID_ID)).thenReturn(List.of(fotoEjemplo));
@@ -137,9 +379,9 @@ public class RutaServiceTest {
     // ==========================================
 
     private void simularTodasValidacionesRutaValidas() {
-        // 1. WebClients (remotas)
-        when(regionClient.getRegionesById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
-        when(estadoClient.getEstadosById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
+        // 1. Region y estado (cache local)
+        when(referenciaCache.existeRegion(anyInt())).thenReturn(true);
+        when(referenciaCache.existeEstado(anyInt())).thenReturn(true);
         // 2. Repositorios (locales)
         when(dificultadRepository.existsById(anyInt())).thenReturn(true);
         when(tipoRepository.existsById(anyInt())).thenReturn(true);
@@ -155,15 +397,15 @@ public class RutaServiceTest {
 
         assertNotNull(resultado);
         verify(rutaRepository, times(1)).save(rutaEjemplo);
-        verify(regionClient, times(1)).getRegionesById(rutaEjemplo.getId_region());
-        verify(estadoClient, times(1)).getEstadosById(rutaEjemplo.getId_estado());
+        verify(referenciaCache, times(1)).existeRegion(rutaEjemplo.getId_region());
+        verify(referenciaCache, times(1)).existeEstado(rutaEjemplo.getId_estado());
     }
 
     @Test
     void saveRuta_regionNoEncontrada_lanzaExcepcion() {
-        // Simular: RegionClient devuelve respuesta vacía/nula
-        when(regionClient.getRegionesById(anyInt())).thenReturn(EMPTY_EXTERNAL_RESPONSE);
-        when(estadoClient.getEstadosById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
+        // Simular: la región no existe
+        when(referenciaCache.existeRegion(anyInt())).thenReturn(false);
+        when(referenciaCache.existeEstado(anyInt())).thenReturn(true);
         when(dificultadRepository.existsById(anyInt())).thenReturn(true);
         when(tipoRepository.existsById(anyInt())).thenReturn(true);
 
@@ -176,8 +418,8 @@ public class RutaServiceTest {
     @Test
     void saveRuta_dificultadNoExiste_lanzaExcepcion() {
         // Simular: Dificultad local no existe
-        when(regionClient.getRegionesById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
-        when(estadoClient.getEstadosById(anyInt())).thenReturn(VALID_EXTERNAL_RESPONSE);
+        when(referenciaCache.existeRegion(anyInt())).thenReturn(true);
+        when(referenciaCache.existeEstado(anyInt())).thenReturn(true);
         when(dificultadRepository.existsById(anyInt())).thenReturn(false); // <--- Fallo aquí
         when(tipoRepository.existsById(anyInt())).thenReturn(true);
 
@@ -204,6 +446,22 @@ public class RutaServiceTest {
         verify(fotoRepository, times(1)).save(fotoEjemplo);
     }
 
+    @Test
+    void saveFoto_conImagen_guardaEnBlobStoreYNoEnLaFila() throws Exception {
+        String hash = "a".repeat(64);
+        when(rutaRepository.existsById(fotoEjemplo.getIdRuta())).thenReturn(true);
+        when(blobStore.put(any(InputStream.class))).thenReturn(hash);
+        when(fotoRepository.save(any(Foto.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Foto resultado = rutaService.save(fotoEjemplo);
+
+        assertEquals(hash, resultado.getHashImagen());
+        assertEquals(3L, resultado.getTamano());
+        assertNotNull(resultado.getTipoContenido());
+        assertNull(resultado.getImagen());
+        verify(blobStore, times(1)).put(any(InputStream.class));
+    }
+
     @Test
     void saveFoto_rutaNoExiste_lanzaExcepcion() {
         // Simular: Ruta no existe
@@ -280,6 +538,41 @@ public class RutaServiceTest {
         verify(fotoRepository, times(1)).delete(fotoEjemplo);
     }
 
+    @Test
+    void deleteFoto_ultimaReferencia_borraBlob() throws Exception {
+        String hash = "b".repeat(64);
+        fotoEjemplo.setHashImagen(hash);
+        when(fotoRepository.findById(fotoEjemplo.getId_foto())).thenReturn(Optional.of(fotoEjemplo));
+        when(fotoRepository.countByHashImagen(hash)).thenReturn(0L);
+
+        rutaService.deleteFoto(fotoEjemplo.getId_foto());
+
+        verify(blobStore, times(1)).deleteSiAnteriorA(eq(hash), any());
+    }
+
+    @Test
+    void deleteFoto_blobCompartido_noBorraBlob() throws Exception {
+        String hash = "c".repeat(64);
+        fotoEjemplo.setHashImagen(hash);
+        when(fotoRepository.findById(fotoEjemplo.getId_foto())).thenReturn(Optional.of(fotoEjemplo));
+        when(fotoRepository.countByHashImagen(hash)).thenReturn(1L);
+
+        rutaService.deleteFoto(fotoEjemplo.getId_foto());
+
+        verify(blobStore, never()).deleteSiAnteriorA(anyString(), any());
+    }
+
+    @Test
+    void findImagen_blobAusente_lanzaNotFound() {
+        fotoEjemplo.setHashImagen("d".repeat(64));
+        when(blobStore.get(fotoEjemplo.getHashImagen())).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> rutaService.findImagen(fotoEjemplo));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
     @Test
     void deleteFoto_noExiste_lanzaExcepcion() {
         when(fotoRepository.findById(anyInt())).thenReturn(Optional.empty());
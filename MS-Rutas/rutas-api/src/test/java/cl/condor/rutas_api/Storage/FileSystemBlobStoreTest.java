@@ -0,0 +1,77 @@
+package cl.condor.rutas_api.Storage;
+
+import cl.condor.rutas_api.storage.FileSystemBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path raiz;
+
+    private FileSystemBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new FileSystemBlobStore(raiz.toString());
+    }
+
+    private String subir(String contenido) throws Exception {
+        return blobStore.put(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Path archivo(String hash) {
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    @Test
+    void put_blobExistente_renuevaFecha() throws Exception {
+        String hash = subir("foto");
+        Instant antigua = Instant.now().minus(Duration.ofDays(2));
+        Files.setLastModifiedTime(archivo(hash), FileTime.from(antigua));
+
+        assertEquals(hash, subir("foto"));
+
+        assertTrue(Files.getLastModifiedTime(archivo(hash)).toInstant().isAfter(antigua.plusSeconds(60)));
+    }
+
+    @Test
+    void deleteSiAnteriorA_blobReciente_noSeBorra() throws Exception {
+        String hash = subir("foto");
+
+        assertFalse(blobStore.deleteSiAnteriorA(hash, Instant.now().minus(Duration.ofHours(1))));
+        assertTrue(blobStore.exists(hash));
+    }
+
+    @Test
+    void deleteSiAnteriorA_blobAntiguo_seBorra() throws Exception {
+        String hash = subir("foto");
+        Files.setLastModifiedTime(archivo(hash), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        assertTrue(blobStore.deleteSiAnteriorA(hash, Instant.now().minus(Duration.ofHours(1))));
+        assertFalse(blobStore.exists(hash));
+    }
+
+    @Test
+    void anterioresA_soloListaBlobsSinRenovar() throws Exception {
+        String antiguo = subir("antiguo");
+        String reciente = subir("reciente");
+        Files.setLastModifiedTime(archivo(antiguo), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        var hashes = blobStore.anterioresA(Instant.now().minus(Duration.ofHours(1)));
+
+        assertTrue(hashes.contains(antiguo));
+        assertFalse(hashes.contains(reciente));
+    }
+}
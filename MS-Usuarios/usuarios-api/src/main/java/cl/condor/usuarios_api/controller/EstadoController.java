@@ -50,6 +50,15 @@ public class EstadoController {
         }
     }
 
+    @Operation(
+            summary = "Verificar si existe un estado",
+            description = "Responde HTTP 204 si el estado existe y 404 si no, sin cuerpo. Lo usan otros microservicios para validar FKs."
+    )
+    @GetMapping("/{id}/existe")
+    public ResponseEntity<Void> existe(@PathVariable Integer id) {
+        return estadoService.existsById(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
     @Operation(
             summary = "Crear un nuevo estado",
             description = "Permite registrar un nuevo estado dentro del catálogo (por ejemplo: Activo, Inactivo, Suspendido, etc.)."
@@ -48,6 +48,12 @@ public class UsuarioController {
         }
     }
 
+    @Operation(summary = "Verificar si existe un usuario (204 si existe, 404 si no)")
+    @GetMapping("/{id}/existe")
+    public ResponseEntity<Void> existe(@PathVariable Integer id) {
+        return usuarioService.existsById(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
     @Operation(summary = "Buscar usuario por Correo")
     @GetMapping("/buscar")
     public ResponseEntity<UsuarioDTO> getByCorreo(@RequestParam String correo) {
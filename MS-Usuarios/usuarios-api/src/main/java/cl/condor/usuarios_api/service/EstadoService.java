@@ -24,6 +24,10 @@ public class EstadoService {
                 .orElseThrow(() -> new RuntimeException("Estado no encontrado"));
     }
 
+    public boolean existsById(Integer id) {
+        return estadoRepository.existsById(id);
+    }
+
     public Estado save(Estado estado) {
         return estadoRepository.save(estado);
     }
@@ -51,6 +51,11 @@ public class UsuarioService {
                 .build();
     }
 
+    // Solo la PK: no carga la foto ni el resto del usuario
+    public boolean existsById(Integer id) {
+        return usuarioRepository.existsById(id);
+    }
+
     public Usuario findById(Integer id) {
         return usuarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
@@ -85,4 +85,14 @@ public class EstadoControllerTest {
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
     }
-}
\ No newline at end of file
+
+    @Test
+    void existe_retornaNoContentSiExisteYNotFoundSiNo() {
+        when(estadoService.existsById(1)).thenReturn(true);
+        when(estadoService.existsById(99)).thenReturn(false);
+
+        assertEquals(HttpStatus.NO_CONTENT, estadoController.existe(1).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, estadoController.existe(99).getStatusCode());
+        verify(estadoService, never()).findById(any());
+    }
+}
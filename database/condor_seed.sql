@@ -151,12 +151,20 @@ CREATE TABLE ruta (
   geometria_polyline TEXT,
   tiempo_segundos INT,
   prom_calificacion DECIMAL(3,2),
+  conteo_calificaciones INT,
+  version_calificaciones BIGINT,
   f_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   f_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   id_estado INT,
   id_region INT,
   id_tipo INT,
-  id_dificultad INT
+  id_dificultad INT,
+  -- Indices compuestos (filtro, id_ruta) para la paginacion por cursor filtrada
+  INDEX idx_ruta_region_id (id_region, id_ruta),
+  INDEX idx_ruta_tipo_id (id_tipo, id_ruta),
+  INDEX idx_ruta_dificultad_id (id_dificultad, id_ruta),
+  INDEX idx_ruta_estado_id (id_estado, id_ruta),
+  INDEX idx_ruta_distancia_id (distancia, id_ruta)
 ) ENGINE=InnoDB;
 
 -- NOTA: Eliminada la ruta "Oriente Nocturno" (sendero nocturno).
@@ -186,12 +194,32 @@ INSERT INTO ruta (nombre, descripcion, distancia, geometria_polyline, tiempo_seg
 UPDATE ruta SET id_tipo = 1 WHERE nombre = 'Cerro El Plomo';
 -- Ahora debería haber 6 privadas y 6 publicas.
 
+-- Tabla: ruta_geometria
+-- Geometria decodificada de geometria_polyline en binario compacto (deltas zigzag-varint, grados*1e5).
+-- La genera rutas-api al guardar la ruta o al iniciar y deja ruta.geometria_polyline en NULL;
+-- las polylines invalidas quedan solo como TEXT.
+CREATE TABLE ruta_geometria (
+  id_ruta INT PRIMARY KEY,
+  puntos INT NOT NULL,
+  lat_inicio_e5 INT,
+  lng_inicio_e5 INT,
+  lat_min_e5 INT NOT NULL,
+  lng_min_e5 INT NOT NULL,
+  lat_max_e5 INT NOT NULL,
+  lng_max_e5 INT NOT NULL,
+  datos MEDIUMBLOB NOT NULL
+) ENGINE=InnoDB;
+
 -- Tabla: foto
 CREATE TABLE foto (
   id_foto INT AUTO_INCREMENT PRIMARY KEY,
   nombre VARCHAR(2048),
-  imagen LONGBLOB,
-  id_ruta INT
+  id_ruta INT,
+  -- La imagen vive en el BlobStore (blob-store.path); aqui solo su hash SHA-256 y metadatos
+  hash_imagen VARCHAR(64),
+  tipo_contenido VARCHAR(100),
+  tamano BIGINT,
+  INDEX idx_foto_hash_imagen (hash_imagen)
 ) ENGINE=InnoDB;
 
 -- Mantengo fotos previas y añado 5 fotos nuevas que corresponden a cerros chilenos.
@@ -229,7 +257,15 @@ CREATE TABLE abrir_ruta (
   f_final DATETIME NULL,
   id_usuario INT NOT NULL,
   id_ruta INT NOT NULL,
-  id_estado INT NOT NULL
+  id_estado INT NOT NULL,
+  distancia_metros DOUBLE NULL,
+  puntos_gps INT NULL,
+  duracion_segundos BIGINT NULL,
+  ultima_lat DOUBLE NULL,
+  ultima_lng DOUBLE NULL,
+  ultimo_punto_ms BIGINT NULL,
+  KEY idx_abrir_ruta_usuario (id_usuario),
+  KEY idx_abrir_ruta_usuario_final (id_usuario, f_final, id_ruta)
 ) ENGINE=InnoDB;
 
 -- Mantengo tus registros previos y añado 5 registros nuevos
@@ -249,6 +285,34 @@ INSERT INTO abrir_ruta (f_inicio, f_final, id_usuario, id_ruta, id_estado) VALUE
   (DATE_SUB(NOW(), INTERVAL 30 DAY), DATE_ADD(DATE_SUB(NOW(), INTERVAL 30 DAY), INTERVAL 7 HOUR), 4, 12, 1),
   (DATE_SUB(NOW(), INTERVAL 45 DAY), DATE_ADD(DATE_SUB(NOW(), INTERVAL 45 DAY), INTERVAL 4 HOUR), 5, 13, 1);
 
+-- Outbox de rutas terminadas (lo consume logros-api por id creciente)
+DROP TABLE IF EXISTS evento_ruta;
+CREATE TABLE evento_ruta (
+  id_evento BIGINT AUTO_INCREMENT PRIMARY KEY,
+  id_abrir_ruta INT NOT NULL,
+  id_usuario INT NOT NULL,
+  id_ruta INT NOT NULL,
+  f_evento DATETIME NOT NULL,
+  UNIQUE KEY uk_evento_ruta_abrir_ruta (id_abrir_ruta)
+) ENGINE=InnoDB;
+
+-- Los recorridos ya terminados se publican una vez para inicializar las estadisticas de logros
+INSERT INTO evento_ruta (id_abrir_ruta, id_usuario, id_ruta, f_evento)
+SELECT id_abrir_ruta, id_usuario, id_ruta, f_final
+FROM abrir_ruta
+WHERE f_final IS NOT NULL
+ORDER BY f_final, id_abrir_ruta;
+
+-- Puntos GPS de los recorridos en curso (solo insercion, por lotes)
+DROP TABLE IF EXISTS punto_gps;
+CREATE TABLE punto_gps (
+  id_abrir_ruta INT NOT NULL,
+  t_ms BIGINT NOT NULL,
+  lat DOUBLE NOT NULL,
+  lng DOUBLE NOT NULL,
+  PRIMARY KEY (id_abrir_ruta, t_ms)
+) ENGINE=InnoDB;
+
 -- ==============================================
 -- ⭐ API CALIFICACIONES (BD: calificaciones_db) - API 8082
 -- ==============================================
@@ -264,7 +328,34 @@ CREATE TABLE calificacion (
   id_ruta INT NOT NULL,
   puntuacion INT NOT NULL,
   comentario VARCHAR(120),
-  fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+  fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_calificacion_ruta_puntuacion (id_ruta, puntuacion)
+) ENGINE=InnoDB;
+
+-- Agregado por ruta (conteo, suma e histograma de estrellas) que mantiene la API
+DROP TABLE IF EXISTS calificacion_resumen;
+CREATE TABLE calificacion_resumen (
+  id_ruta INT PRIMARY KEY,
+  conteo BIGINT NOT NULL,
+  suma BIGINT NOT NULL,
+  estrellas_1 BIGINT NOT NULL,
+  estrellas_2 BIGINT NOT NULL,
+  estrellas_3 BIGINT NOT NULL,
+  estrellas_4 BIGINT NOT NULL,
+  estrellas_5 BIGINT NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB;
+
+-- Outbox de promedios por enviar a rutas-api (una fila por ruta)
+DROP TABLE IF EXISTS promedio_pendiente;
+CREATE TABLE promedio_pendiente (
+  id_ruta INT PRIMARY KEY,
+  promedio DECIMAL(3,2) NOT NULL,
+  conteo BIGINT NOT NULL,
+  version BIGINT NOT NULL,
+  version_resumen BIGINT NOT NULL,
+  f_pendiente DATETIME(6) NOT NULL,
+  INDEX idx_promedio_pendiente_f (f_pendiente)
 ) ENGINE=InnoDB;
 
 -- Mantengo calificaciones previas y agrego 5 extra
@@ -284,6 +375,12 @@ INSERT INTO calificacion (id_usuario, id_ruta, puntuacion, comentario) VALUES
   (4, 12, 5, 'Desafiante, recomendado con guía'),
   (5, 13, 4, 'Buen acceso y panoramas');
 
+INSERT INTO calificacion_resumen (id_ruta, conteo, suma, estrellas_1, estrellas_2, estrellas_3, estrellas_4, estrellas_5)
+SELECT id_ruta, COUNT(*), SUM(puntuacion),
+       SUM(puntuacion = 1), SUM(puntuacion = 2), SUM(puntuacion = 3), SUM(puntuacion = 4), SUM(puntuacion = 5)
+FROM calificacion
+GROUP BY id_ruta;
+
 -- ==============================================
 -- 🏆 API LOGROS (BD: logros_db) - API 8084
 -- ==============================================
@@ -292,7 +389,11 @@ CREATE DATABASE IF NOT EXISTS logros_db
   COLLATE utf8mb4_0900_ai_ci;
 USE logros_db;
 
+DROP TABLE IF EXISTS reevaluacion_logros;
+DROP TABLE IF EXISTS cursor_evento;
+DROP TABLE IF EXISTS estadistica_usuario;
 DROP TABLE IF EXISTS trofeo;
+DROP TABLE IF EXISTS logro_icono;
 DROP TABLE IF EXISTS logro;
 DROP TABLE IF EXISTS condicion;
 DROP TABLE IF EXISTS tipo_condicion;
@@ -327,7 +428,8 @@ INSERT INTO condicion (condicion, restriccion, id_tipo_condicion) VALUES
 CREATE TABLE logro (
   id_logro INT AUTO_INCREMENT PRIMARY KEY,
   nombre VARCHAR(150) NOT NULL,
-  icono LONGBLOB,
+  -- SHA-256 del icono en logro_icono (se sirve por GET /api/v1/logros/icono/{hash})
+  icono_hash VARCHAR(64) NULL,
   f_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   descripcion TEXT,
   id_estado INT,
@@ -352,11 +454,25 @@ INSERT INTO logro (nombre, descripcion, id_estado, id_condicion) VALUES
   ('Maratonero', 'Recorre 200 km acumulados', 1, 1),
   ('Alto Desnivel', 'Acumula 3000 metros de desnivel', 1, 4);
 
+-- Iconos direccionados por contenido, compartidos entre logros
+CREATE TABLE logro_icono (
+  hash VARCHAR(64) PRIMARY KEY,
+  datos MEDIUMBLOB NOT NULL,
+  tipo_contenido VARCHAR(100),
+  tamano INT,
+  -- Ultima vez que un logro volvio a apuntar al icono; el borrado de huerfanos respeta un plazo desde aqui
+  f_renovado DATETIME NULL
+) ENGINE=InnoDB;
+
 CREATE TABLE trofeo (
   id_trofeo INT AUTO_INCREMENT PRIMARY KEY,
   f_obtencion DATETIME NOT NULL,
   id_usuario INT,
-  id_logro INT
+  id_logro INT,
+  -- Un usuario gana cada logro una sola vez
+  UNIQUE KEY uk_trofeo_usuario_logro (id_usuario, id_logro),
+  -- Conteo de usuarios por logro (GROUP BY id_logro)
+  INDEX idx_trofeo_logro (id_logro)
 ) ENGINE=InnoDB;
 
 -- Trofeos previos + 5 trofeos extra
@@ -377,6 +493,41 @@ INSERT INTO trofeo (f_obtencion, id_usuario, id_logro) VALUES
   (DATE_SUB(NOW(), INTERVAL 15 DAY), 12, 12),
   (DATE_SUB(NOW(), INTERVAL 25 DAY), 13, 13);
 
+-- Acumulados del motor incremental de logros (se alimentan de evento_ruta de iniciar_rutas_db)
+CREATE TABLE estadistica_usuario (
+  id_usuario INT PRIMARY KEY,
+  km_total DECIMAL(12,2) NOT NULL DEFAULT 0,
+  rutas_terminadas INT NOT NULL DEFAULT 0,
+  regiones_bits INT NOT NULL DEFAULT 0,
+  f_actualizacion DATETIME NULL
+) ENGINE=InnoDB;
+
+-- Ultimo evento consumido por outbox remoto
+CREATE TABLE cursor_evento (
+  nombre VARCHAR(50) PRIMARY KEY,
+  ultimo_id BIGINT NOT NULL,
+  version BIGINT
+) ENGINE=InnoDB;
+-- Fila inicial del motor de logros: asi el primer lote actualiza con @Version en vez de insertar
+INSERT INTO cursor_evento (nombre, ultimo_id, version) VALUES ('abrir-ruta', 0, 0);
+
+-- Reevaluacion masiva de logros; ultimo_id_usuario es el checkpoint para reanudar
+CREATE TABLE reevaluacion_logros (
+  id_reevaluacion BIGINT AUTO_INCREMENT PRIMARY KEY,
+  estado VARCHAR(20) NOT NULL,
+  simulacion BIT NOT NULL,
+  logros VARCHAR(500) NULL,
+  ultimo_id_usuario INT NOT NULL,
+  usuarios_total BIGINT NOT NULL,
+  usuarios_procesados BIGINT NOT NULL,
+  trofeos_entregados BIGINT NOT NULL,
+  f_inicio DATETIME NOT NULL,
+  f_actualizacion DATETIME NULL,
+  f_fin DATETIME NULL,
+  error VARCHAR(500) NULL,
+  version BIGINT
+) ENGINE=InnoDB;
+
 -- ==============================================
 -- 📧 API CONTACTO (BD: contacto_db) - API 8085
 -- ==============================================